@@ -0,0 +1,272 @@
+package assembler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Tempo e alocação de cada fase do Assembler, em programas gerados de 1K a 10M linhas:
+ * read(), as duas passagens do parse(), allocateAndReplaceVariables(), replaceLabelsInExecutable(),
+ * replaceRegistersInExecutable() e saveExecFile().
+ *
+ * Cada medida é uma execução única da fase (SingleShotTime): antes dela, um Assembler novo é levado
+ * até a fase anterior, fora da medida. Está no pacote assembler para chamar as fases protegidas.
+ *
+ * A taxa de alocação vem do profiler de GC: rodar com "-prof gc" ou pelo main() desta classe
+ * (gc.alloc.rate.norm = bytes alocados por execução da fase). O programa usa sempre 64 variáveis,
+ * porque allocateAndReplaceVariables() imprime o mapa de variáveis no System.out.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class AssemblerBenchmark {
+
+    static final int MEMORY_SIZE = 1 << 30; // Variáveis ficam no fim; não precisa caber numa Architecture
+    static final int VARIABLES = 64;
+    static final int LABEL_INTERVAL = 16;   // Uma label a cada 16 linhas de código
+    static final long SEED = 0x0AC;
+
+    /**
+     * O programa gerado: as linhas já limpas (como read() as deixa) e o arquivo .dsf equivalente.
+     */
+    @State(Scope.Benchmark)
+    public static class Input {
+
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int lines;
+
+        ArrayList<String> source;
+        String fileName; // Sem extensão, como o Assembler espera
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            source = generate(lines);
+            File file = File.createTempFile("assembler-benchmark", ".dsf");
+            String path = file.getPath();
+            fileName = path.substring(0, path.length() - ".dsf".length());
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+                for (String line : source) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            new File(fileName + ".dsf").delete();
+            new File(fileName + ".dxf").delete();
+        }
+
+        /**
+         * @param phase Quantas fases executar (1 = firstPass, ..., 5 = replaceRegistersInExecutable).
+         * @return Um Assembler novo com as linhas carregadas e as fases até `phase` executadas.
+         */
+        Assembler prepare(int phase) {
+            Assembler assembler = new Assembler(MEMORY_SIZE);
+            assembler.setLines(new ArrayList<>(source));
+            if (phase >= 1) {
+                assembler.firstPass();
+            }
+            if (phase >= 2) {
+                assembler.secondPass();
+                assembler.setExecProgram(new ArrayList<>(assembler.getObjProgram()));
+            }
+            if (phase >= 3) {
+                assembler.allocateAndReplaceVariables();
+            }
+            if (phase >= 4) {
+                assembler.replaceLabelsInExecutable();
+            }
+            if (phase >= 5) {
+                assembler.replaceRegistersInExecutable();
+            }
+            return assembler;
+        }
+    }
+
+    /**
+     * Gera um programa válido com `count` linhas: 64 variáveis, código com uma label a cada 16 linhas
+     * (todas as instruções do Opcodes, desvios só para labels declaradas) e halt no fim.
+     */
+    static ArrayList<String> generate(int count) {
+        ArrayList<String> program = new ArrayList<>(count);
+        for (int v = 0; v < VARIABLES; v++) {
+            program.add("var" + v);
+        }
+        int code = count - VARIABLES - 1;
+        int labels = (code + LABEL_INTERVAL - 1) / LABEL_INTERVAL;
+        Random random = new Random(SEED);
+        for (int i = 0; i < code; i++) {
+            if (i % LABEL_INTERVAL == 0) {
+                program.add("L" + (i / LABEL_INTERVAL) + ":");
+                continue;
+            }
+            String var = "var" + random.nextInt(VARIABLES);
+            String label = "L" + random.nextInt(labels);
+            String regA = "%reg" + random.nextInt(4);
+            String regB = "%reg" + random.nextInt(4);
+            switch (random.nextInt(18)) {
+                case 0:  program.add("add " + var); break;
+                case 1:  program.add("sub " + var); break;
+                case 2:  program.add("jmp " + label); break;
+                case 3:  program.add("jz " + label); break;
+                case 4:  program.add("jn " + label); break;
+                case 5:  program.add("read " + var); break;
+                case 6:  program.add("store " + var); break;
+                case 7:  program.add("ldi " + random.nextInt(1000)); break;
+                case 8:  program.add("inc"); break;
+                case 9:  program.add("moveregreg " + regA + " " + regB); break;
+                case 10: program.add("jnz " + label); break;
+                case 11: program.add("jeq " + regA + " " + regB + " " + label); break;
+                case 12: program.add("jgt " + regA + " " + regB + " " + label); break;
+                case 13: program.add("jlw " + regA + " " + regB + " " + label); break;
+                case 14: program.add("call " + label); break;
+                case 15: program.add("ret"); break;
+                case 16: program.add("imul " + regA + " " + regB); break;
+                default: program.add("halt"); break;
+            }
+        }
+        program.add("halt");
+        return program;
+    }
+
+    /**
+     * Assembler preparado para a fase medida; uma classe por fase, porque o preparo é por invocação.
+     */
+    @State(Scope.Thread)
+    public static class BeforeFirstPass {
+        Assembler assembler;
+        @Setup(Level.Invocation)
+        public void setup(Input input) { assembler = input.prepare(0); }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeSecondPass {
+        Assembler assembler;
+        @Setup(Level.Invocation)
+        public void setup(Input input) { assembler = input.prepare(1); }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeVariables {
+        Assembler assembler;
+        @Setup(Level.Invocation)
+        public void setup(Input input) { assembler = input.prepare(2); }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeLabels {
+        Assembler assembler;
+        @Setup(Level.Invocation)
+        public void setup(Input input) { assembler = input.prepare(3); }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeRegisters {
+        Assembler assembler;
+        @Setup(Level.Invocation)
+        public void setup(Input input) { assembler = input.prepare(4); }
+    }
+
+    @State(Scope.Thread)
+    public static class BeforeSave {
+        Assembler assembler;
+        @Setup(Level.Invocation)
+        public void setup(Input input) { assembler = input.prepare(5); }
+    }
+
+    @Benchmark
+    public Assembler read(Input input) throws IOException {
+        Assembler assembler = new Assembler(MEMORY_SIZE);
+        assembler.read(input.fileName);
+        return assembler;
+    }
+
+    @Benchmark
+    public Assembler firstPass(BeforeFirstPass state) {
+        state.assembler.firstPass();
+        return state.assembler;
+    }
+
+    @Benchmark
+    public Assembler secondPass(BeforeSecondPass state) {
+        state.assembler.secondPass();
+        return state.assembler;
+    }
+
+    @Benchmark
+    public Assembler allocateAndReplaceVariables(BeforeVariables state) {
+        state.assembler.allocateAndReplaceVariables();
+        return state.assembler;
+    }
+
+    @Benchmark
+    public Assembler replaceLabelsInExecutable(BeforeLabels state) {
+        state.assembler.replaceLabelsInExecutable();
+        return state.assembler;
+    }
+
+    @Benchmark
+    public Assembler replaceRegistersInExecutable(BeforeRegisters state) {
+        state.assembler.replaceRegistersInExecutable();
+        return state.assembler;
+    }
+
+    @Benchmark
+    public Assembler saveExecFile(BeforeSave state, Input input) throws IOException {
+        state.assembler.saveExecFile(input.fileName);
+        return state.assembler;
+    }
+
+    /**
+     * Montagem completa do .dsf em uma passagem, para comparar com a soma das fases acima.
+     */
+    @Benchmark
+    public int[] streamingAssemble(Input input) throws IOException {
+        try (Reader reader = new FileReader(input.fileName + ".dsf")) {
+            return new StreamingAssembler(MEMORY_SIZE).assemble(reader);
+        }
+    }
+
+    /**
+     * Roda todas as fases com o profiler de GC (equivale a "-prof gc" na linha de comando).
+     * Argumento opcional: os tamanhos, separados por vírgula (ex: 1000,10000).
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.include(AssemblerBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class);
+        if (args.length > 0) {
+            builder.param("lines", args[0].split(","));
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import architecture.Architecture;
+import architecture.ExecutionMode;
+import components.ArrayMemoryStorage;
+import components.Register;
+
+/**
+ * As formas de executar um programa que os benchmarks comparam, todas com a simulação desligada.
+ * Todas chegam ao mesmo estado arquitetural (ver TestArchitecture.testMicrocodedMatchesFunctional()).
+ */
+public enum Engine {
+    MICROCODED,      // Microprogramas sobre barramentos e registradores (fetch e parâmetros pelos barramentos)
+    PREDECODED,      // Modo MICROCODED com a cache de pré-decodificação: handlers no lugar dos microprogramas (e fusão)
+    FUNCTIONAL,      // Núcleo funcional com banco de registradores int[]
+    FUNCTIONAL_JIT;  // Núcleo funcional compilando blocos quentes para bytecode
+
+    public static final int MEMORY_SIZE = 16384;
+
+    // IDs dos registradores em getRegistersList()
+    static final int RPG = 0;
+    static final int PC = 2;
+    static final int STK_TOP = 5;
+    static final int STK_BOT = 6;
+
+    /**
+     * @param program As palavras do programa, carregadas a partir do endereço 0.
+     * @return Uma arquitetura de MEMORY_SIZE palavras com o programa carregado.
+     */
+    public Architecture create(int[] program) {
+        ExecutionMode mode = this == FUNCTIONAL || this == FUNCTIONAL_JIT ? ExecutionMode.FUNCTIONAL : ExecutionMode.MICROCODED;
+        Architecture arch = new Architecture(false, mode, new ArrayMemoryStorage(MEMORY_SIZE));
+        arch.getMemory().load(0, program);
+        if (this == PREDECODED) {
+            arch.setPredecodeEnabled(true);
+        } else if (this == FUNCTIONAL_JIT) {
+            arch.setBlockJitEnabled(true, 1);
+        }
+        return arch;
+    }
+
+    /**
+     * Prepara uma nova execução do programa: PC no início e pilha vazia.
+     * Os programas dos benchmarks inicializam os próprios dados.
+     */
+    public static void rewind(Architecture arch, int start) {
+        Register pc = arch.getRegistersList().get(PC);
+        pc.setData(start);
+        arch.getRegistersList().get(STK_TOP).setData(arch.getRegistersList().get(STK_BOT).getData());
+    }
+
+    /**
+     * Troca o System.out por um que descarta tudo: halt e imul imprimem a cada execução, e a escrita
+     * no console não deve entrar na medida.
+     * @return O System.out anterior, para ser devolvido com System.setOut() no fim do trial.
+     */
+    public static PrintStream muteSystemOut() {
+        PrintStream previous = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) { }
+
+            @Override
+            public void write(byte[] b, int off, int len) { }
+        }));
+        return previous;
+    }
+
+    /**
+     * Executa o programa a partir de `start` até o halt.
+     * @return O RPG no fim (para o Blackhole).
+     */
+    public static int run(Architecture arch, int start) {
+        rewind(arch, start);
+        arch.controlUnitEexec();
+        return arch.getRegistersList().get(RPG).getData();
+    }
+}
@@ -0,0 +1,114 @@
+package benchmark;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import architecture.Architecture;
+import components.Opcodes;
+
+/**
+ * ns/instrução de cada opcode: o programa é o opcode repetido COPIES vezes em linha reta, seguido de halt,
+ * e cada execução conta como COPIES operações. Os desvios apontam para a instrução seguinte, de modo que
+ * o fluxo é o mesmo tomando ou não o desvio. call e ret são medidos juntos: CALL_RET é o tempo de um
+ * par call + ret. imul e halt encerram a execução e ficam no ProgramBenchmark.
+ *
+ * Execução (com jmh-core e jmh-generator-annprocess no classpath, compilando src e benchmarks):
+ *   java -cp ... org.openjdk.jmh.Main benchmark.InstructionBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class InstructionBenchmark {
+
+    static final int COPIES = 1000;
+    static final int CODE = 64;   // Depois da área do IMUL (endereços 0 a 28)
+    static final int DATA = 40;   // Palavra de dado livre entre a área do IMUL e o código
+
+    @Param({"ADD", "SUB", "JMP", "JZ", "JN", "READ", "STORE", "LDI", "INC", "MOVE_REG_REG",
+            "JNZ", "JEQ", "JGT", "JLW", "CALL_RET"})
+    public String opcode;
+
+    @Param({"MICROCODED", "PREDECODED", "FUNCTIONAL", "FUNCTIONAL_JIT"})
+    public Engine engine;
+
+    private Architecture arch;
+    private PrintStream console;
+
+    @Setup
+    public void setup() {
+        console = Engine.muteSystemOut();
+        arch = engine.create(program(opcode));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    /**
+     * @param name O nome do opcode em Opcodes (ou CALL_RET).
+     * @return O programa: COPIES cópias da instrução a partir de CODE, halt, e a sub-rotina (ret) do CALL_RET.
+     */
+    static int[] program(String name) {
+        int[] memory = new int[CODE + 4 * COPIES + 2];
+        int pc = CODE;
+        int subroutine = CODE + 2 * COPIES + 1; // Só usado por CALL_RET: depois do halt
+        for (int i = 0; i < COPIES; i++) {
+            switch (name) {
+                case "ADD":          pc = emit(memory, pc, Opcodes.ADD, DATA); break;
+                case "SUB":          pc = emit(memory, pc, Opcodes.SUB, DATA); break;
+                case "JMP":          pc = emit(memory, pc, Opcodes.JMP, pc + 2); break;
+                case "JZ":           pc = emit(memory, pc, Opcodes.JZ, pc + 2); break;
+                case "JN":           pc = emit(memory, pc, Opcodes.JN, pc + 2); break;
+                case "JNZ":          pc = emit(memory, pc, Opcodes.JNZ, pc + 2); break;
+                case "READ":         pc = emit(memory, pc, Opcodes.READ, DATA); break;
+                case "STORE":        pc = emit(memory, pc, Opcodes.STORE, DATA); break;
+                case "LDI":          pc = emit(memory, pc, Opcodes.LDI, i); break;
+                case "INC":          pc = emit(memory, pc, Opcodes.INC); break;
+                case "MOVE_REG_REG": pc = emit(memory, pc, Opcodes.MOVE_REG_REG, 0, 1); break;
+                case "JEQ":          pc = emit(memory, pc, Opcodes.JEQ, 0, 1, pc + 4); break;
+                case "JGT":          pc = emit(memory, pc, Opcodes.JGT, 0, 1, pc + 4); break;
+                case "JLW":          pc = emit(memory, pc, Opcodes.JLW, 0, 1, pc + 4); break;
+                case "CALL_RET":     pc = emit(memory, pc, Opcodes.CALL, subroutine); break;
+                default:
+                    throw new IllegalArgumentException("Opcode sem benchmark: " + name);
+            }
+        }
+        memory[pc] = Opcodes.HALT;
+        if (name.equals("CALL_RET")) {
+            memory[subroutine] = Opcodes.RET;
+        }
+        return memory;
+    }
+
+    private static int emit(int[] memory, int pc, int opcode, int... operands) {
+        memory[pc++] = opcode;
+        for (int operand : operands) {
+            memory[pc++] = operand;
+        }
+        return pc;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COPIES)
+    public int execute() {
+        return Engine.run(arch, CODE);
+    }
+}
@@ -0,0 +1,131 @@
+package benchmark;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import architecture.Architecture;
+import components.Opcodes;
+
+/**
+ * Tempo de programas inteiros (do PC inicial ao halt):
+ * - HALT: só o halt, isto é, o custo fixo de uma chamada de controlUnitEexec();
+ * - IMUL: a instrução imul, que salva o contexto e desvia para o microprograma (aqui, um halt);
+ * - IMUL_MICROPROGRAM: o laço de somas de programs/imul_microprogram.dsf (7 x 1000), com os mesmos
+ *   endereços 26/27/28 e o multiplicador recarregado antes de ser decrementado;
+ * - SHOW_COMPONENTES: o programa de TestArchitecture.testShowComponentes(), terminado com halt;
+ * - RECURSION: uma função recursiva com profundidade 1000 (call/ret e a pilha).
+ *
+ * O contador auxiliar "instructions" soma as instruções executadas, para obter ns/instrução.
+ * O System.out fica desligado durante o trial (halt e imul imprimem a cada execução).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ProgramBenchmark {
+
+    static final int CODE = InstructionBenchmark.CODE;
+    static final int ONE = 40;      // Constante 1
+    static final int COUNTER = 41;  // Profundidade restante da recursão
+    static final int DEPTH = 1000;
+
+    @Param({"HALT", "IMUL", "IMUL_MICROPROGRAM", "SHOW_COMPONENTES", "RECURSION"})
+    public String program;
+
+    @Param({"MICROCODED", "PREDECODED", "FUNCTIONAL", "FUNCTIONAL_JIT"})
+    public Engine engine;
+
+    private Architecture arch;
+    private PrintStream console;
+    private int start;
+
+    /**
+     * Instruções executadas, somadas entre as execuções (reportado pelo JMH junto com o tempo).
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long instructions;
+    }
+
+    @Setup
+    public void setup() {
+        console = Engine.muteSystemOut();
+        start = "SHOW_COMPONENTES".equals(program) ? 0 : CODE;
+        arch = engine.create(program(program));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    static int[] program(String name) {
+        switch (name) {
+            case "HALT":
+                return at(CODE, Opcodes.HALT);
+            case "IMUL": {
+                int[] memory = at(CODE, Opcodes.IMUL, 0, 1, Opcodes.HALT);
+                memory[0] = Opcodes.HALT; // Início do microprograma do IMUL
+                return memory;
+            }
+            case "IMUL_MICROPROGRAM":
+                return at(CODE,
+                        Opcodes.LDI, 7, Opcodes.STORE, 27,       // multiplicando
+                        Opcodes.LDI, 1000, Opcodes.STORE, 28,    // multiplicador
+                        Opcodes.LDI, 0, Opcodes.STORE, 26,       // resultado
+                        Opcodes.LDI, 1, Opcodes.STORE, ONE,
+                        // CODE + 16: laço
+                        Opcodes.READ, 28, Opcodes.SUB, ONE, Opcodes.JN, CODE + 32, Opcodes.STORE, 28,
+                        Opcodes.READ, 26, Opcodes.ADD, 27, Opcodes.STORE, 26,
+                        Opcodes.JMP, CODE + 16,
+                        // CODE + 32
+                        Opcodes.HALT);
+            case "SHOW_COMPONENTES":
+                // ldi 2; store 40; ldi -4; point: store 41; read 40; add 40; store 40; read 41; inc; jn point; halt
+                return at(0, 7, 2, 6, 40, 7, -4, 6, 41, 5, 40, 0, 40, 6, 40, 5, 41, 8, 4, 6, Opcodes.HALT);
+            case "RECURSION":
+                return at(CODE,
+                        Opcodes.LDI, 1, Opcodes.STORE, ONE,
+                        Opcodes.LDI, DEPTH, Opcodes.STORE, COUNTER,
+                        Opcodes.CALL, CODE + 11,
+                        Opcodes.HALT,
+                        // CODE + 11: f
+                        Opcodes.READ, COUNTER, Opcodes.SUB, ONE, Opcodes.STORE, COUNTER,
+                        Opcodes.JN, CODE + 21, Opcodes.CALL, CODE + 11,
+                        // CODE + 21
+                        Opcodes.RET);
+            default:
+                throw new IllegalArgumentException("Programa desconhecido: " + name);
+        }
+    }
+
+    private static int[] at(int address, int... words) {
+        int[] memory = new int[address + words.length];
+        System.arraycopy(words, 0, memory, address, words.length);
+        return memory;
+    }
+
+    @Benchmark
+    public int execute(Counters counters) {
+        int result = Engine.run(arch, start);
+        counters.instructions += arch.getInstructionCount();
+        return result;
+    }
+}
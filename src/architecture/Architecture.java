@@ -1,20 +1,32 @@
 package architecture;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
 
 
 import components.Bus;
+import components.CacheHierarchy;
+import components.CycleCounter;
 import components.Demux;
+import components.DirtyPageTracker;
+import components.Instrumentation;
 import components.Memory;
+import components.MemoryStorage;
 import components.Register;
-import components.ULA;
+import components.Ula;
+import components.Watchpoint;
+import components.WatchpointListener;
 import components.Opcodes;
 import components.Stack; // Importar a classe Stack
 import assembler.Assembler; // Importar a classe Assembler
+import assembler.BinaryExecutable;
 
 public class Architecture {
     
@@ -39,7 +51,7 @@ public class Architecture {
     private Register StkBOT; // Stack Bottom Pointer
     private Register Flags; // O registrador de flags, agora um Register normal
     
-    private ULA ula;
+    private Ula ula;
     private Demux demux; //only for multiple register purposes
     
     private ArrayList<String> commandsList; // Nomes dos comandos para depuração e `hasOperands`
@@ -47,22 +59,45 @@ public class Architecture {
     
     // Para o microprograma IMUL
     // Endereços de memória reservados (definidos como constantes na Architecture)
-    private final int IMUL_MICROPROGRAM_START;
-    private final int IMUL_REGS_SAVE_AREA_START;
-    private final int IMUL_RESULT_ADDRESS;
-    private final int IMUL_RETURN_PC_SAVE_ADDR;
-    private final int IMUL_OP1_TEMP_ADDR;
-    private final int IMUL_OP2_TEMP_ADDR;
+    private int IMUL_MICROPROGRAM_START;
+    private int IMUL_REGS_SAVE_AREA_START;
+    private int IMUL_RESULT_ADDRESS;
+    private int IMUL_RETURN_PC_SAVE_ADDR;
+    private int IMUL_OP1_TEMP_ADDR;
+    private int IMUL_OP2_TEMP_ADDR;
 
     // Para a pilha
     private Stack stack; // O objeto Stack que gerencia a pilha
 
+    // Cache de pré-decodificação (null quando desligada). Ver setPredecodeEnabled().
+    private DecodeCache decodeCache;
+
+    // Modo de execução escolhido na construção; o núcleo funcional só existe no modo FUNCTIONAL.
+    private ExecutionMode executionMode;
+    private FunctionalCore functionalCore;
+    private long instructionCount; // Instruções executadas pela última controlUnitEexec()
+    private long instructionLimit; // Máximo de instruções por controlUnitEexec() (0 = sem limite). Ver setInstructionLimit().
+    private TraceRecorder traceRecorder; // Gravador de trace (null = desligado). Ver startTrace().
+    private ExecutionObserver[] observers = new ExecutionObserver[0]; // Ver addExecutionObserver()
+    private CacheAccessObserver cacheObserver; // Acessos dos modos FUNCTIONAL e pré-decodificado à hierarquia de caches
+    private int instructionPC;          // Endereço da instrução em execução no laço microprogramado
+    private boolean functionalRunning;  // O FunctionalCore está executando (o PC está no banco dele)
+    private int[] observedRegisters;
+    private CycleCounter cycleCounter; // Modelo de ciclos (null = desligado). Ver setCycleCounter().
+    private AsyncTraceWriter simulationLog; // Log da simulação em segundo plano (null = interativo). Ver startSimulationLog().
+    private StringBuilder simulationText;   // Texto da instrução em andamento no modo de simulação
+    private final StringBuilder consoleText = new StringBuilder(); // Buffer reutilizado no modo interativo
+    private Scanner console;
+    private DirtyPageTracker dirtyPages; // Páginas escritas desde o último checkpoint() (null = sem checkpoints)
+    private Snapshot lastCheckpoint;
+
 
     /**
      * Instancia todos os componentes nesta arquitetura.
      * Ajustado para os novos construtores de Bus, Register, Memory, ULA.
+     * @param storage O armazenamento da memória principal (null = int[] de 128 palavras).
      */
-    private void componentsInstances() {
+    private void componentsInstances(MemoryStorage storage) {
         // Ordem de instanciação: barramentos -> registradores -> ula -> memória
         extbus1 = new Bus();
         intbus1 = new Bus();
@@ -86,14 +121,19 @@ public class Architecture {
         fillRegistersList(); // Preenche a lista com todos os registradores
 
         // ULA: Conectada a intbus1 e intbus2
-        ula = new ULA(intbus1, intbus2); // ULA com U maiúsculo
+        ula = new Ula(intbus1, intbus2);
 
         // Demux: Usado para operações com múltiplos registradores
         demux = new Demux(); 
         
         // Memória: Conectada a extbus1
-        memorySize = 128; // Define o tamanho padrão da memória (ajuste conforme necessário)
-        memory = new Memory(memorySize, extbus1);
+        if (storage == null) {
+            memorySize = 128; // Define o tamanho padrão da memória (ajuste conforme necessário)
+            memory = new Memory(memorySize, extbus1);
+        } else {
+            memorySize = storage.size(); // Ex: PagedMemoryStorage para espaços de endereçamento grandes
+            memory = new Memory(storage, extbus1);
+        }
         
         // statusMemory: Uma instância separada de Memory para os desvios condicionais (2 posições)
         statusMemory = new Memory(2, extbus1); // Conectada ao extbus1 para jz/jn
@@ -149,8 +189,7 @@ public class Architecture {
      * Construtor que instancia todos os componentes de acordo com o diagrama da arquitetura.
      */
     public Architecture() {
-        componentsInstances();
-        simulation = false; // Por padrão, a execução não é em modo de simulação
+        this(false, ExecutionMode.MICROCODED); // Por padrão, a execução não é em modo de simulação
     }
 
     /**
@@ -158,10 +197,64 @@ public class Architecture {
      * @param sim true para modo de simulação, false caso contrário.
      */
     public Architecture(boolean sim) {
-        componentsInstances();
+        this(sim, ExecutionMode.MICROCODED);
+    }
+
+    /**
+     * Construtor que permite definir o modo de simulação e o modo de execução.
+     * No modo FUNCTIONAL os programas rodam no FunctionalCore (sem micro-passos de barramento);
+     * o modo de simulação, que mostra os barramentos a cada instrução, sempre usa os microprogramas.
+     * @param sim true para modo de simulação, false caso contrário.
+     * @param mode O modo de execução.
+     */
+    public Architecture(boolean sim, ExecutionMode mode) {
+        this(sim, mode, null);
+    }
+
+    /**
+     * Construtor que também define onde a memória principal guarda suas palavras.
+     * O tamanho da memória (e portanto a base da pilha) passa a ser o do armazenamento.
+     * @param sim true para modo de simulação, false caso contrário.
+     * @param mode O modo de execução.
+     * @param storage O armazenamento da memória principal, ou null para a memória padrão de 128 palavras.
+     */
+    public Architecture(boolean sim, ExecutionMode mode, MemoryStorage storage) {
+        componentsInstances(storage);
+        memory.setProgramCounterSource(this::currentInstructionPC); // PC informado pelos watchpoints
         simulation = sim;
+        executionMode = mode;
+        if (mode == ExecutionMode.FUNCTIONAL) {
+            functionalCore = new FunctionalCore(this);
+        }
+    }
+
+    public ExecutionMode getExecutionMode() { return executionMode; }
+
+    /**
+     * @return Quantidade de instruções executadas pela última chamada de controlUnitEexec()
+     *         (uma superinstrução conta como cada uma das instruções que ela substitui).
+     */
+    public long getInstructionCount() { return instructionCount; }
+
+    /**
+     * Limita a quantidade de instruções de cada chamada de controlUnitEexec(). Um programa que passa do
+     * limite sem executar HALT (ex: um laço infinito) é interrompido com IllegalStateException, com os
+     * registradores e a memória no estado em que pararam. Em blocos compilados e superinstruções a
+     * checagem é feita no fim do bloco, então a contagem pode passar um pouco do limite.
+     * @param limit Quantidade máxima de instruções, ou 0 para não limitar.
+     */
+    public void setInstructionLimit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limite de instruções inválido: " + limit);
+        }
+        instructionLimit = limit;
+        if (functionalCore != null) {
+            functionalCore.setInstructionLimit(limit);
+        }
     }
 
+    public long getInstructionLimit() { return instructionLimit; }
+
     // --- Getters (mantidos) ---
     protected Bus getExtbus1() { return extbus1; }
     protected Bus getIntbus1() { return intbus1; }
@@ -172,7 +265,7 @@ public class Architecture {
     protected Register getRPG() { return RPG; }
     protected Register getRPG1() { return RPG1; } // Adicionado getter para RPG1
     protected Register getFlags() { return Flags; }
-    protected ULA getUla() { return ula; }
+    protected Ula getUla() { return ula; }
     public ArrayList<String> getCommandsList() { return commandsList; }
     public ArrayList<Register> getRegistersList() { return registersList; }
     public int getMemorySize() { return memorySize; } // Public para Assembler
@@ -229,37 +322,9 @@ public class Architecture {
 
     // --- Microprogramas Existentes (mantidos e ajustados) ---
 
-    /**
-     * Avança o PC para a próxima "palavra" da instrução (parâmetro ou próxima instrução).
-     * @return O valor do PC antes do incremento.
-     * IMPORTANTE: Esta função faz o PC avançar DUAS vezes: uma para o parâmetro, outra para a próxima instrução.
-     * E coloca o endereço do PARÂMETRO no extbus para ser lido pela memória.
-     */
-    private int getParameterAndAdvancePC() {
-        // 1. PC avança para o endereço do parâmetro.
-        PC.internalRead(); // PC -> intbus2
-        ula.internalStore(1); // intbus2 -> ULA.internalReg1
-        ula.inc(); // ULA.internalReg1++ (PC+1, agora PC tem o endereço do parâmetro)
-        ula.internalRead(1); // ULA.internalReg1 -> intbus2
-        PC.internalStore(); // intbus2 -> PC (PC agora aponta para o parâmetro)
-        
-        // 2. Coloca o endereço do parâmetro no extbus para a memória ler o valor do parâmetro.
-        int paramAddress = PC.getData();
-        extbus1.put(paramAddress); // Coloca o endereço do parâmetro no extbus
-        
-        // 3. PC avança novamente para a próxima instrução (após o parâmetro).
-        PC.internalRead(); // PC -> intbus2
-        ula.internalStore(1); // intbus2 -> ULA.internalReg1
-        ula.inc(); // ULA.internalReg1++ (PC+2, i.e., próximo comando real)
-        ula.internalRead(1); // ULA.internalReg1 -> intbus2
-        PC.internalStore(); // intbus2 -> PC (PC agora aponta para a próxima instrução)
-
-        return paramAddress; // Retorna o endereço do parâmetro (que foi lido na memória)
-    }
-
     /**
      * Avança o PC para a próxima instrução quando a instrução atual não tem parâmetros.
-     * (Usado para INC, RET, HALT)
+     * (Usado para INC, RET, HALT e depois do último operando de move, jeq/jgt/jlw e imul)
      */
     private void advancePCNoParam() {
         PC.internalRead(); // PC -> intbus2
@@ -288,7 +353,8 @@ public class Architecture {
         ula.add();          // ULA.internalReg1 = ULA.internalReg0 + ULA.internalReg1
         ula.internalRead(1); // ULA.internalReg1 -> intbus2 (resultado da soma)
         setStatusFlags(intbus2.get()); // Atualiza flags com o resultado
-        RPG.internalStore(); // RPG <- intbus2 (RPG recebe o resultado)
+        ula.read(1);        // ULA.internalReg1 -> intbus1
+        RPG.internalStore(); // RPG <- intbus1 (RPG recebe o resultado)
         // O PC já foi avançado para a próxima instrução pelo getParameterAndAdvancePC().
     }
     
@@ -309,7 +375,8 @@ public class Architecture {
         ula.sub();          // ULA.internalReg1 = ULA.internalReg0 - ULA.internalReg1
         ula.internalRead(1); // ULA.internalReg1 -> intbus2 (resultado da subtração)
         setStatusFlags(intbus2.get()); // Atualiza flags com o resultado
-        RPG.internalStore(); // RPG <- intbus2 (RPG recebe o resultado)
+        ula.read(1);        // ULA.internalReg1 -> intbus1
+        RPG.internalStore(); // RPG <- intbus1 (RPG recebe o resultado)
     }
 
     // Microprograma para JMP address
@@ -337,7 +404,7 @@ public class Architecture {
         
         // 3. Decide e salta com base na Zero Flag.
         extbus1.put(Flags.getBit(0)); // Coloca o bit Zero (0 ou 1) no extbus1
-        statusMemory.read(); // statusMemory decide (com base no bit em extbus1) e coloca o endereço final no extbus1
+        statusMemory.readConditional(); // statusMemory decide (com base no bit em extbus1) e coloca o endereço final no extbus1
         PC.store(); // PC <- extbus1 (PC recebe o endereço final)
     }
     
@@ -350,7 +417,7 @@ public class Architecture {
         statusMemory.storeIn0(); 
         
         extbus1.put(Flags.getBit(1)); // Coloca o bit Negativo (0 ou 1) no extbus1
-        statusMemory.read(); 
+        statusMemory.readConditional(); 
         PC.store();
     }
     
@@ -401,36 +468,43 @@ public class Architecture {
         ula.inc();          // ULA.internalReg1++
         ula.internalRead(1); // ULA.internalReg1 -> intbus2 (resultado)
         setStatusFlags(intbus2.get()); // Atualiza flags
-        RPG.internalStore(); // RPG <- intbus2 (RPG recebe o resultado)
+        ula.read(1);        // ULA.internalReg1 -> intbus1
+        RPG.internalStore(); // RPG <- intbus1 (RPG recebe o resultado)
 
         advancePCNoParam(); // Avança PC para a próxima instrução (sem parâmetro para pular)
     }
     
     // Microprograma para MOVEREGREG (move regA regB)
     public void moveRegReg() {
-        // PC avança, primeiro reg ID no extbus.
-        getParameterAndAdvancePC(); // paramAddress_regA_ID é o ID de regA
-        int regA_ID = extbus1.get(); // Pega o ID de RegA do extbus
-
-        // PC avança, segundo reg ID no extbus.
-        getParameterAndAdvancePC(); // paramAddress_regB_ID é o ID de regB
-        int regB_ID = extbus1.get(); // Pega o ID de RegB do extbus
+        int regA_ID = getOperandAndAdvancePC(); // PC avança para pc+1, ID de RegA no extbus
+        int regB_ID = getOperandAndAdvancePC(); // PC avança para pc+2, ID de RegB no extbus
+        advancePCNoParam(); // PC aponta para a próxima instrução (antes da cópia: "move %reg0 %reg2" desvia)
 
         // regB <- regA
         demux.setValue(regA_ID); // Demux seleciona o RegA
-        registersInternalRead(); // RegA -> intbus1 (valor de RegA está no intbus1)
+        registersInternalRead(); // RegA -> seu barramento interno
         
         demux.setValue(regB_ID); // Demux seleciona o RegB
-        registersInternalStore(); // RegB <- intbus1 (RegB recebe o valor de RegA)
+        registersInternalStore(); // RegB <- seu barramento interno (RegB recebe o valor de RegA)
     }
 
     // --- Métodos Auxiliares para Manipulação de Registradores pela Demux ---
     /**
      * Este método realiza uma leitura interna de um registrador da lista de registradores.
      * O ID do registrador deve estar no demux bus (ou Demux.value).
+     * O valor passa pelo internalReg0 da ULA e fica nos dois barramentos internos, para que
+     * registersInternalStore() funcione com registradores de qualquer um deles (ex: move %reg0 %reg2).
      */
     private void registersInternalRead() {
-        registersList.get(demux.getValue()).internalRead();
+        Register register = registersList.get(demux.getValue());
+        register.internalRead();
+        if (isOnIntbus1(register)) {
+            ula.store(0);
+            ula.internalRead(0);
+        } else {
+            ula.internalStore(0);
+            ula.read(0);
+        }
     }
     
     /**
@@ -441,6 +515,13 @@ public class Architecture {
         registersList.get(demux.getValue()).internalStore();
     }
 
+    /**
+     * RPG e RPG1 ficam no intbus1 (entrada da ULA); os demais registradores, no intbus2.
+     */
+    private boolean isOnIntbus1(Register register) {
+        return register == RPG || register == RPG1;
+    }
+
     // --- Microprogramas Faltantes (Adicionados) ---
 
     // Microprograma para JNZ address (opcode 10)
@@ -459,74 +540,67 @@ public class Architecture {
         // Para JNZ, queremos saltar se Flags.getBit(0) == 0.
         // Então, put 1 no extbus se Z=0, put 0 se Z=1.
         extbus1.put(Flags.getBit(0) == 0 ? 1 : 0); // Coloca 1 se Z=0 (não zero), 0 se Z=1 (é zero)
-        statusMemory.read(); // statusMemory decide e coloca o endereço final no extbus1
+        statusMemory.readConditional(); // statusMemory decide e coloca o endereço final no extbus1
         PC.store(); // PC <- extbus1
     }
 
     // Microprograma para JEQ %regA %regB <mem> (opcode 11)
     public void jeq() {
-        int regA_ID = getParameterAndAdvancePC(); // PC avança, RegA ID no extbus.
-        int valA = extbus1.get(); // Pega o ID de RegA do extbus
-
-        int regB_ID = getParameterAndAdvancePC(); // PC avança, RegB ID no extbus.
-        int valB = extbus1.get(); // Pega o ID de RegB do extbus
-
-        int jumpTargetAddress = getParameterAndAdvancePC(); // PC avança, endereço de salto no extbus.
-        int addrJump = extbus1.get(); // Pega o endereço de salto do extbus
-
-        // Compara RegA e RegB usando a ULA.compare
-        ula.compare(valA, valB); // Realiza valA - valB, resultado em ULA.internalReg1
-        ula.internalRead(1); // Resultado (valA-valB) de ULA.internalReg1 -> intbus2
-        setStatusFlags(intbus2.get()); // Atualiza flags com o resultado
-
-        if (Flags.getBit(0) == 1) { // Se Zero Flag for 1 (RegA == RegB)
-            extbus1.put(addrJump); // Coloca o endereço de salto no extbus
-            PC.store(); // PC <- extbus
-        }
+        int addrJump = compareRegistersAndAdvancePC(); // Flags <- RegA - RegB
+        // Salta se a Zero Flag for 1 (RegA == RegB)
+        conditionalJump(addrJump, Flags.getBit(0));
     }
 
     // Microprograma para JGT %regA %regB <mem> (opcode 12)
     public void jgt() {
-        int regA_ID = getParameterAndAdvancePC();
-        int valA = extbus1.get();
-
-        int regB_ID = getParameterAndAdvancePC();
-        int valB = extbus1.get();
-
-        int jumpTargetAddress = getParameterAndAdvancePC();
-        int addrJump = extbus1.get();
-
-        ula.compare(valA, valB);
-        ula.internalRead(1);
-        setStatusFlags(intbus2.get());
-
+        int addrJump = compareRegistersAndAdvancePC();
         // Se RegA > RegB, então (RegA - RegB) > 0. Zero Flag = 0 E Negative Flag = 0.
-        if (Flags.getBit(0) == 0 && Flags.getBit(1) == 0) {
-            extbus1.put(addrJump);
-            PC.store();
-        }
+        conditionalJump(addrJump, Flags.getBit(0) == 0 && Flags.getBit(1) == 0 ? 1 : 0);
     }
 
     // Microprograma para JLW %regA %regB <mem> (opcode 13)
     public void jlw() {
-        int regA_ID = getParameterAndAdvancePC();
-        int valA = extbus1.get();
-
-        int regB_ID = getParameterAndAdvancePC();
-        int valB = extbus1.get();
+        int addrJump = compareRegistersAndAdvancePC();
+        // Se RegA < RegB, então (RegA - RegB) < 0. Negative Flag = 1.
+        conditionalJump(addrJump, Flags.getBit(1));
+    }
 
-        int jumpTargetAddress = getParameterAndAdvancePC();
-        int addrJump = extbus1.get();
+    /**
+     * Desvio condicional pela statusMemory, como em jz/jn/jnz: posição 1 = endereço de salto,
+     * posição 0 = próxima instrução (PC atual). As mesmas micro-operações com ou sem salto.
+     * @param addrJump O endereço de salto.
+     * @param condition 1 para saltar, 0 para seguir.
+     */
+    private void conditionalJump(int addrJump, int condition) {
+        extbus1.put(addrJump);
+        statusMemory.storeIn1();
+        extbus1.put(PC.getData());
+        statusMemory.storeIn0();
+        extbus1.put(condition);
+        statusMemory.readConditional(); // statusMemory decide e coloca o endereço final no extbus1
+        PC.store(); // PC <- extbus1
+    }
 
-        ula.compare(valA, valB);
-        ula.internalRead(1);
+    /**
+     * Parte comum de jeq/jgt/jlw: lê os operandos (pc+1, pc+2, pc+3), deixa o PC na próxima instrução (pc+4)
+     * e atualiza as flags com o conteúdo de RegA menos o de RegB, calculado pela ULA.
+     * @return O endereço de salto.
+     */
+    private int compareRegistersAndAdvancePC() {
+        int regA_ID = getOperandAndAdvancePC();
+        int regB_ID = getOperandAndAdvancePC();
+        int addrJump = getOperandAndAdvancePC();
+        advancePCNoParam();
+
+        demux.setValue(regB_ID);
+        registersInternalRead(); // RegB -> intbus1
+        ula.store(1);            // intbus1 -> ULA.internalReg1 (subtraendo)
+        demux.setValue(regA_ID);
+        registersInternalRead(); // RegA -> ULA.internalReg0 (minuendo)
+        ula.sub();               // ULA.internalReg1 = RegA - RegB
+        ula.internalRead(1);     // Resultado -> intbus2
         setStatusFlags(intbus2.get());
-
-        // Se RegA < RegB, então (RegA - RegB) < 0. Negative Flag = 1.
-        if (Flags.getBit(1) == 1) {
-            extbus1.put(addrJump);
-            PC.store();
-        }
+        return addrJump;
     }
 
     // Microprograma para CALL <mem> (opcode 14)
@@ -551,13 +625,9 @@ public class Architecture {
 
     // Microprograma para IMUL %regA %regB (opcode 16)
     public void imul() {
-        int regA_ID = getParameterAndAdvancePC(); // PC avança, RegA ID no extbus
-        int valA = extbus1.get(); // Pega o ID de RegA do extbus
-        Register regA = getRegisterById(valA); // Obtém o objeto Register para valA
-
-        int regB_ID = getParameterAndAdvancePC(); // PC avança, RegB ID no extbus
-        int valB = extbus1.get(); // Pega o ID de RegB do extbus
-        Register regB = getRegisterById(valB); // Obtém o objeto Register para valB
+        Register regA = getRegisterById(getOperandAndAdvancePC()); // PC avança para pc+1, RegA ID no extbus
+        Register regB = getRegisterById(getOperandAndAdvancePC()); // PC avança para pc+2, RegB ID no extbus
+        advancePCNoParam(); // PC aponta para a próxima instrução (pc+3), que é o endereço de retorno
 
         // Salvar contexto (RPG, RPG1, PC, IR, Flags, StkTOP, StkBOT - apenas os que o microprograma pode alterar)
         // No seu caso, RPG, RPG1, PC, Flags.
@@ -602,31 +672,26 @@ public class Architecture {
      * Ele também coloca o CONTEÚDO do endereço do parâmetro no `extbus1`.
      * Retorna o endereço do parâmetro para a depuração, mas o valor em si
      * deve ser pego do `extbus1` após a chamada.
+     * (Usado pelas instruções de um parâmetro; as de vários usam getOperandAndAdvancePC().)
      */
     private int getParameterAndAdvancePC() {
-        // 1. PC avança para o endereço do parâmetro.
-        PC.internalRead(); // PC -> intbus2
-        ula.internalStore(1); // intbus2 -> ULA.internalReg1
-        ula.inc(); // ULA.internalReg1++ (PC_novo = PC_antigo + 1, agora PC tem o endereço do parâmetro)
-        ula.internalRead(1); // ULA.internalReg1 -> intbus2
-        PC.internalStore(); // intbus2 -> PC (PC agora aponta para o parâmetro)
-        
-        // 2. A memória lê o conteúdo do endereço do parâmetro e o coloca no `extbus1`.
-        //    O PC (que agora contém o endereço do parâmetro) precisa ser colocado no extbus.
+        getOperandAndAdvancePC(); // PC aponta para o parâmetro, o valor dele está no extbus
         int paramMemoryAddress = PC.getData(); // Este é o endereço do PARÂMETRO NA MEMÓRIA
-        extbus1.put(paramMemoryAddress); // Coloca o ENDEREÇO DO PARÂMETRO no extbus
-        memory.read(); // Memory lê o ENDEREÇO do extbus, e coloca o *VALOR* desse endereço no extbus.
-                       // Agora, `extbus1.get()` retornará o VALOR REAL do parâmetro.
-        
-        // 3. PC avança novamente para a próxima instrução (após o parâmetro).
-        PC.internalRead(); // PC -> intbus2
-        ula.internalStore(1); // intbus2 -> ULA.internalReg1
-        ula.inc(); // ULA.internalReg1++ (PC_final = PC_antigo + 2, i.e., próximo comando real)
-        ula.internalRead(1); // ULA.internalReg1 -> intbus2
-        PC.internalStore(); // intbus2 -> PC (PC agora aponta para a próxima instrução)
+        advancePCNoParam(); // PC avança novamente para a próxima instrução (após o parâmetro)
+        return paramMemoryAddress; // O valor do parâmetro é obtido de `extbus1.get()` após a chamada.
+    }
 
-        return paramMemoryAddress; // Retorna o endereço de memória onde o parâmetro estava
-                                   // O valor do parâmetro é obtido de `extbus1.get()` após a chamada.
+    /**
+     * Avança o PC uma palavra (para o próximo operando) e coloca o conteúdo dessa palavra no `extbus1`.
+     * Os operandos de uma instrução ficam em palavras consecutivas (como o Assembler os codifica);
+     * depois do último, advancePCNoParam() leva o PC para a próxima instrução.
+     * @return O valor do operando (o mesmo que fica no `extbus1`).
+     */
+    private int getOperandAndAdvancePC() {
+        advancePCNoParam(); // PC -> intbus2 -> ULA++ -> PC (PC agora aponta para o operando)
+        extbus1.put(PC.getData()); // Coloca o ENDEREÇO DO OPERANDO no extbus
+        memory.read(); // Memory lê o ENDEREÇO do extbus, e coloca o *VALOR* desse endereço no extbus.
+        return extbus1.get();
     }
 
     // --- Métodos Auxiliares para IMUL e Context Switching ---
@@ -714,6 +779,280 @@ public class Architecture {
     }
 
 
+    // --- Execução com instruções pré-decodificadas ---
+
+    /**
+     * Liga ou desliga a cache de pré-decodificação.
+     * Com a cache ligada (e fora do modo de simulação), `controlUnitEexec()` não refaz fetch e leitura
+     * de parâmetros pelos barramentos a cada instrução: cada endereço é decodificado uma vez
+     * (opcode, operandos, próximo PC e handler) e as execuções seguintes usam a entrada pronta.
+     * As entradas são invalidadas quando a memória do código é sobrescrita.
+     * Os handlers seguem as regras do FunctionalCore: o mesmo estado arquitetural dos microprogramas,
+     * sem os valores intermediários deixados nos barramentos e na ULA.
+     * Os acessos a dados usam readData()/writeData(), como o FunctionalCore: watchpoints e Instrumentation
+     * (eventos de memória) continuam valendo, e a hierarquia de caches recebe os mesmos acessos do modo
+     * FUNCTIONAL. Enquanto algum desses recursos, um ExecutionObserver ou um trace estiver ativo, as
+     * superinstruções (Fusion) ficam desligadas e cada instrução é executada e observada sozinha.
+     * @param enabled true para ligar a cache.
+     */
+    public void setPredecodeEnabled(boolean enabled) {
+        if (enabled && decodeCache == null) {
+            decodeCache = new DecodeCache(memory, buildDecodedHandlers(), buildFusedHandlers());
+        } else if (!enabled && decodeCache != null) {
+            decodeCache.detach();
+            decodeCache = null;
+        }
+    }
+
+    /**
+     * Liga/desliga a compilação de blocos básicos quentes (BlockJit) com o limiar padrão.
+     * @param enabled true para ligar.
+     * @throws IllegalStateException Se a arquitetura não estiver em modo FUNCTIONAL.
+     */
+    public void setBlockJitEnabled(boolean enabled) {
+        setBlockJitEnabled(enabled, BlockJit.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Liga/desliga a compilação de blocos básicos quentes. Só existe no modo FUNCTIONAL:
+     * os blocos são compilados para bytecode e operam direto no banco de registradores do FunctionalCore.
+     * @param enabled true para ligar.
+     * @param threshold Execuções interpretadas de um bloco antes de compilá-lo.
+     * @throws IllegalStateException Se a arquitetura não estiver em modo FUNCTIONAL.
+     */
+    public void setBlockJitEnabled(boolean enabled, int threshold) {
+        if (functionalCore == null) {
+            throw new IllegalStateException("A compilação de blocos exige o modo " + ExecutionMode.FUNCTIONAL + ".");
+        }
+        BlockJit current = functionalCore.getBlockJit();
+        if (current != null) {
+            current.detach();
+        }
+        functionalCore.setBlockJit(enabled ? new BlockJit(memory, threshold) : null);
+    }
+
+    public boolean isBlockJitEnabled() { return getBlockJit() != null; }
+    public BlockJit getBlockJit() { return functionalCore == null ? null : functionalCore.getBlockJit(); }
+
+    public boolean isPredecodeEnabled() { return decodeCache != null; }
+    public DecodeCache getDecodeCache() { return decodeCache; }
+
+    /**
+     * Monta a tabela (indexada por opcode) com os handlers das instruções pré-decodificadas.
+     */
+    private InstructionHandler[] buildDecodedHandlers() {
+        InstructionHandler[] handlers = new InstructionHandler[Opcodes.OPCODE_COUNT];
+        handlers[Opcodes.ADD] = this::addDecoded;
+        handlers[Opcodes.SUB] = this::subDecoded;
+        handlers[Opcodes.JMP] = this::jmpDecoded;
+        handlers[Opcodes.JZ] = this::jzDecoded;
+        handlers[Opcodes.JN] = this::jnDecoded;
+        handlers[Opcodes.READ] = this::readDecoded;
+        handlers[Opcodes.STORE] = this::storeDecoded;
+        handlers[Opcodes.LDI] = this::ldiDecoded;
+        handlers[Opcodes.INC] = this::incDecoded;
+        handlers[Opcodes.MOVE_REG_REG] = this::moveRegRegDecoded;
+        handlers[Opcodes.JNZ] = this::jnzDecoded;
+        handlers[Opcodes.JEQ] = this::jeqDecoded;
+        handlers[Opcodes.JGT] = this::jgtDecoded;
+        handlers[Opcodes.JLW] = this::jlwDecoded;
+        handlers[Opcodes.CALL] = this::callDecoded;
+        handlers[Opcodes.RET] = this::retDecoded;
+        handlers[Opcodes.IMUL] = this::imulDecoded;
+        handlers[Opcodes.HALT] = this::haltDecoded;
+        return handlers;
+    }
+
+    /**
+     * Monta a tabela (indexada por Fusion.ordinal()) com os handlers das superinstruções.
+     * Cada handler deixa registradores, flags, memória e IR como a sequência original deixaria.
+     */
+    private InstructionHandler[] buildFusedHandlers() {
+        InstructionHandler[] handlers = new InstructionHandler[Fusion.values().length];
+        handlers[Fusion.LDI_STORE.ordinal()] = this::ldiStoreFused;
+        handlers[Fusion.READ_ADD_STORE.ordinal()] = this::readAddStoreFused;
+        handlers[Fusion.READ_INC_STORE.ordinal()] = this::readIncStoreFused;
+        return handlers;
+    }
+
+    /**
+     * Executa a instrução apontada pelo PC usando a cache de pré-decodificação
+     * (substitui o par fetch()/decodeExecute()).
+     */
+    private void executeDecoded() {
+        int pc = PC.getData();
+        DecodedInstruction instruction = decodeCache.lookup(pc);
+        IR.setData(instruction.getOpcode());
+        if (cycleCounter != null) {
+            cycleCounter.chargeInstruction(instruction.getOpcode()); // Sem fusão aqui (ver isInstructionLevelObserved())
+        }
+        InstructionHandler handler = instruction.getHandler();
+        if (handler == null) {
+            System.err.println("Erro: Comando não reconhecido em IR: " + instruction.getOpcode() + ". Parando simulação.");
+            halt = true;
+            return;
+        }
+        if (cacheObserver != null) {
+            cacheObserver.beginInstruction(pc, registerValues()); // Sem fusão aqui (ver isInstructionLevelObserved())
+        }
+        handler.execute(instruction);
+        if (cacheObserver != null) {
+            cacheObserver.endInstruction(registerValues());
+        }
+        instructionCount += instruction.getFusion() == null ? 1 : instruction.getFusion().getInstructionCount();
+    }
+
+    // ldi x; store a
+    private void ldiStoreFused(DecodedInstruction i) {
+        RPG.setData(i.getOperand(0));
+        memory.writeData(i.getOperand(1), i.getOperand(0));
+        IR.setData(Opcodes.STORE);
+        PC.setData(i.getNextPC());
+    }
+
+    // read a; add b; store c
+    private void readAddStoreFused(DecodedInstruction i) {
+        int result = memory.readData(i.getOperand(0)) + memory.readData(i.getOperand(1));
+        setStatusFlags(result);
+        RPG.setData(result);
+        memory.writeData(i.getOperand(2), result);
+        IR.setData(Opcodes.STORE);
+        PC.setData(i.getNextPC());
+    }
+
+    // read a; inc; store c
+    private void readIncStoreFused(DecodedInstruction i) {
+        int result = memory.readData(i.getOperand(0)) + 1;
+        setStatusFlags(result);
+        RPG.setData(result);
+        memory.writeData(i.getOperand(1), result);
+        IR.setData(Opcodes.STORE);
+        PC.setData(i.getNextPC());
+    }
+
+    private void addDecoded(DecodedInstruction i) {
+        int result = RPG.getData() + memory.readData(i.getOperand(0));
+        setStatusFlags(result);
+        RPG.setData(result);
+        PC.setData(i.getNextPC());
+    }
+
+    private void subDecoded(DecodedInstruction i) {
+        int result = RPG.getData() - memory.readData(i.getOperand(0));
+        setStatusFlags(result);
+        RPG.setData(result);
+        PC.setData(i.getNextPC());
+    }
+
+    private void jmpDecoded(DecodedInstruction i) {
+        PC.setData(i.getOperand(0));
+    }
+
+    private void jzDecoded(DecodedInstruction i) {
+        PC.setData(Flags.getBit(0) == 1 ? i.getOperand(0) : i.getNextPC());
+    }
+
+    private void jnDecoded(DecodedInstruction i) {
+        PC.setData(Flags.getBit(1) == 1 ? i.getOperand(0) : i.getNextPC());
+    }
+
+    private void readDecoded(DecodedInstruction i) {
+        RPG.setData(memory.readData(i.getOperand(0)));
+        PC.setData(i.getNextPC());
+    }
+
+    private void storeDecoded(DecodedInstruction i) {
+        memory.writeData(i.getOperand(0), RPG.getData());
+        PC.setData(i.getNextPC());
+    }
+
+    private void ldiDecoded(DecodedInstruction i) {
+        RPG.setData(i.getOperand(0));
+        PC.setData(i.getNextPC());
+    }
+
+    private void incDecoded(DecodedInstruction i) {
+        int result = RPG.getData() + 1;
+        setStatusFlags(result);
+        RPG.setData(result);
+        PC.setData(i.getNextPC());
+    }
+
+    private void moveRegRegDecoded(DecodedInstruction i) {
+        // O PC avança antes da cópia, para que "move <reg> pc" desvie como no FunctionalCore
+        PC.setData(i.getNextPC());
+        // regB <- regA (mesma ordem do microprograma moveRegReg)
+        getRegisterById(i.getOperand(1)).setData(getRegisterById(i.getOperand(0)).getData());
+    }
+
+    private void jnzDecoded(DecodedInstruction i) {
+        PC.setData(Flags.getBit(0) == 0 ? i.getOperand(0) : i.getNextPC());
+    }
+
+    /**
+     * Compara os registradores dos dois primeiros operandos (regA - regB) e atualiza as flags.
+     */
+    private void compareDecoded(DecodedInstruction i) {
+        int valA = getRegisterById(i.getOperand(0)).getData();
+        int valB = getRegisterById(i.getOperand(1)).getData();
+        setStatusFlags(valA - valB);
+    }
+
+    private void jeqDecoded(DecodedInstruction i) {
+        compareDecoded(i);
+        PC.setData(Flags.getBit(0) == 1 ? i.getOperand(2) : i.getNextPC());
+    }
+
+    private void jgtDecoded(DecodedInstruction i) {
+        compareDecoded(i);
+        PC.setData(Flags.getBit(0) == 0 && Flags.getBit(1) == 0 ? i.getOperand(2) : i.getNextPC());
+    }
+
+    private void jlwDecoded(DecodedInstruction i) {
+        compareDecoded(i);
+        PC.setData(Flags.getBit(1) == 1 ? i.getOperand(2) : i.getNextPC());
+    }
+
+    private void callDecoded(DecodedInstruction i) {
+        // Empilha o endereço de retorno: StkTOP-- e depois memória[StkTOP] <- retorno
+        StkTOP.setData(StkTOP.getData() - 1);
+        memory.writeData(StkTOP.getData(), i.getNextPC());
+        PC.setData(i.getOperand(0));
+    }
+
+    private void retDecoded(DecodedInstruction i) {
+        if (StkTOP.getData() == StkBOT.getData()) {
+            throw new IllegalStateException("Stack underflow: pilha vazia.");
+        }
+        PC.setData(memory.readData(StkTOP.getData()));
+        StkTOP.setData(StkTOP.getData() + 1);
+    }
+
+    private void imulDecoded(DecodedInstruction i) {
+        Register regA = getRegisterById(i.getOperand(0));
+        Register regB = getRegisterById(i.getOperand(1));
+        // Mesmo protocolo do microprograma imul(): o PC salvo já aponta para a instrução seguinte
+        PC.setData(i.getNextPC());
+        // Mesma área do saveContext(), sem os barramentos (os ciclos já foram cobrados por chargeInstruction())
+        int save = IMUL_REGS_SAVE_AREA_START;
+        memory.writeData(save, RPG.getData());
+        memory.writeData(save + 1, RPG1.getData());
+        memory.writeData(save + 2, PC.getData());
+        memory.writeData(save + 3, IR.getData());
+        memory.writeData(save + 4, Flags.getData());
+        memory.writeData(save + 5, StkTOP.getData());
+        System.out.println("Contexto salvo em: " + save + " (RPG, RPG1, PC, IR, Flags, StkTOP)");
+        memory.writeData(IMUL_OP1_TEMP_ADDR, regA.getData());
+        memory.writeData(IMUL_OP2_TEMP_ADDR, regB.getData());
+        memory.writeData(IMUL_RETURN_PC_SAVE_ADDR, i.getNextPC());
+        PC.setData(IMUL_MICROPROGRAM_START);
+    }
+
+    private void haltDecoded(DecodedInstruction i) {
+        halt();
+    }
+
+
     // --- Métodos de Simulação/Depuração (mantidos) ---
 
     /**
@@ -721,56 +1060,60 @@ public class Architecture {
      * @param command O comando atual.
      */
     private void simulationDecodeExecuteBefore(int command) {
-        System.out.println("----------BEFORE Decode and Execute phases--------------");
+        StringBuilder text = simulationText;
+        text.append("----------BEFORE Decode and Execute phases--------------\n");
         String instructionName;
         
-        for (Register r : registersList) {
-            System.out.println(r.getRegisterName() + ": " + r.getData());
-        }
+        appendRegisters(text);
 
-        if (command != -1) {
+        if (command == -1) {
+            instructionName = "END";
+        } else if (command >= 0 && command < commandsList.size()) {
             instructionName = commandsList.get(command);
         } else {
-            instructionName = "END";
+            instructionName = "desconhecida (" + command + ")"; // decodeExecute() reporta o erro e para
         }
 
-        System.out.println("Instrução: " + instructionName);
+        text.append("Instrução: ").append(instructionName).append('\n');
         
-        // Tenta mostrar o parâmetro da próxima instrução para depuração
-        // Isso é complexo porque o PC já avançou. Mas o PC + 1 seria o parâmetro.
-        try {
-            int currentPC = PC.getData(); // PC já está no endereço da instrução ou primeiro parâmetro
-            // Se a instrução tem 1 parâmetro (como 'add addr'), o parâmetro está em PC-1
-            // Se a instrução tem 2 parâmetros (como 'moveRegReg'), o primeiro parâmetro está em PC-2, o segundo em PC-1.
-            // Para simular aqui, podemos tentar prever.
-            // Para ser preciso, precisaríamos saber a aridade da instrução.
-            // Por simplicidade, vamos mostrar a próxima palavra.
-            System.out.println("PC atual: " + currentPC + ", IR: " + IR.getData());
-            // Mostra a próxima instrução ou parâmetro.
-            if (currentPC < memory.getMemorySize()) {
-                 System.out.println("Memória[" + currentPC + "] (próximo opcode/parâmetro): " + memory.getData(currentPC));
-            }
-
-        } catch (IndexOutOfBoundsException e) {
-            System.out.println("Erro ao tentar ler próxima palavra para depuração: " + e.getMessage());
+        // Mostra a próxima palavra (opcode ou parâmetro), já que o PC já avançou
+        int currentPC = PC.getData();
+        text.append("PC atual: ").append(currentPC).append(", IR: ").append(IR.getData()).append('\n');
+        if (currentPC >= 0 && currentPC < memory.getMemorySize()) {
+            text.append("Memória[").append(currentPC).append("] (próximo opcode/parâmetro): ")
+                    .append(memory.getData(currentPC)).append('\n');
         }
     }
 
     /**
      * Este método é usado para mostrar o status dos componentes em condições de simulação após a decodificação e execução.
+     * Com um log em segundo plano (startSimulationLog()) o texto da instrução é entregue à thread escritora
+     * e a execução continua; sem ele, o texto vai para o console e a execução espera o Enter.
      */
     private void simulationDecodeExecuteAfter() {
-        System.out.println("-----------AFTER Decode and Execute phases--------------");
-        System.out.println("Internal Bus 1: " + intbus1.get());
-        System.out.println("Internal Bus 2: " + intbus2.get());
-        System.out.println("External Bus 1: " + extbus1.get());
+        StringBuilder text = simulationText;
+        text.append("-----------AFTER Decode and Execute phases--------------\n");
+        text.append("Internal Bus 1: ").append(intbus1.get()).append('\n');
+        text.append("Internal Bus 2: ").append(intbus2.get()).append('\n');
+        text.append("External Bus 1: ").append(extbus1.get()).append('\n');
+        appendRegisters(text);
+        simulationText = null;
+        if (simulationLog != null) {
+            simulationLog.publish();
+            return;
+        }
+        text.append("Press <Enter> para continuar...\n");
+        System.out.print(text);
+        if (console == null) {
+            console = new Scanner(System.in); // Um só Scanner: NÃO fechar o System.in
+        }
+        console.nextLine(); // Espera o Enter para continuar
+    }
+
+    private void appendRegisters(StringBuilder text) {
         for (Register r : registersList) {
-            System.out.println(r.getRegisterName() + ": " + r.getData());
+            text.append(r.getRegisterName()).append(": ").append(r.getData()).append('\n');
         }
-        Scanner entrada = new Scanner(System.in);
-        System.out.println("Press <Enter> para continuar...");
-        entrada.nextLine(); // Espera o Enter para continuar
-        // entrada.close(); // NÃO FECHAR System.in aqui, pode impedir futuras leituras
     }
 
     /**
@@ -791,20 +1134,28 @@ public class Architecture {
      */
     private void simulationFetch() {
         if (simulation) {
-            System.out.println("-------Fetch Phase------");
-            System.out.println("PC: " + PC.getData());
-            System.out.println("IR: " + IR.getData());
+            // Começa o texto da instrução: um slot do log em segundo plano ou o buffer do console
+            if (simulationLog != null) {
+                simulationText = simulationLog.claim();
+            } else {
+                simulationText = consoleText;
+                consoleText.setLength(0);
+            }
+            simulationText.append("-------Fetch Phase------\n");
+            simulationText.append("PC: ").append(PC.getData()).append('\n');
+            simulationText.append("IR: ").append(IR.getData()).append('\n');
         }
     }
 
     /**
-     * Este método retorna o tamanho da memória alocada para esta arquitetura.
-     * @return O tamanho da memória em palavras.
+     * Imprime o nome e o conteúdo de cada registrador (usado pelo main()).
      */
-    public int getMemorySize() {
-        return memorySize;
+    public void printRegisters() {
+        StringBuilder text = new StringBuilder();
+        appendRegisters(text);
+        System.out.print(text);
     }
-    
+
     // --- Método para carregar programa executável (.dxf) ---
     /**
      * Este método lê um arquivo inteiro em código de máquina (.dxf) e
@@ -814,11 +1165,21 @@ public class Architecture {
      * @throws IOException Se houver um erro de leitura do arquivo.
      */
     public void readExec(String filenameWithoutExtension) throws IOException {
+        readExec(filenameWithoutExtension, 0);
+        PC.setData(0); // PC começa na posição 0 da memória após carregar o programa
+    }
+
+    /**
+     * Como readExec(), mas carrega o programa a partir de `startAddress` (ex: o microprograma do IMUL
+     * em IMUL_MICROPROGRAM_START). O PC não é alterado.
+     * @param filenameWithoutExtension O nome do arquivo .dxf sem a extensão.
+     * @param startAddress O endereço da primeira palavra.
+     * @throws IOException Se houver um erro de leitura do arquivo.
+     */
+    public void readExec(String filenameWithoutExtension, int startAddress) throws IOException {
         try (BufferedReader br = new BufferedReader(new FileReader(filenameWithoutExtension + ".dxf"))) {
             String linha;
-            int i = 0; // Endereço de memória
-            int tempValue = 0; // Valor a ser escrito
-            boolean expectingAddress = true; // Flag para o ciclo memory.store()
+            int i = startAddress; // Endereço de memória
 
             while ((linha = br.readLine()) != null) {
                 if (linha.trim().equals("-1")) {
@@ -841,19 +1202,436 @@ public class Architecture {
 
                 i++; // Próxima posição de memória
             }
-            PC.setData(0); // PC começa na posição 0 da memória após carregar o programa (ou 0, se esse for o start_program)
-            System.out.println("Programa executável carregado na memória. Total de " + i + " palavras.");
+            System.out.println("Programa executável carregado na memória. Total de " + (i - startAddress) + " palavras.");
         }
     }
+
+    /**
+     * Carrega um executável binário (.dbx, ver BinaryExecutable): o arquivo é mapeado e cada segmento
+     * é copiado em bloco com Memory.load(), sem os dois ciclos de barramento por palavra do readExec().
+     * O PC passa a ser o ponto de entrada do executável.
+     * @param fileName Caminho do arquivo (com a extensão).
+     * @throws IOException Se o arquivo não puder ser lido ou não for um executável válido.
+     */
+    public void loadExecutable(String fileName) throws IOException {
+        loadExecutable(BinaryExecutable.load(fileName));
+    }
+
+    /**
+     * Carrega um executável já em memória (ex: o resultado de Linker.link()) e põe o PC no seu ponto de entrada.
+     */
+    public void loadExecutable(BinaryExecutable executable) {
+        executable.loadInto(memory);
+        PC.setData(executable.getEntryPoint());
+    }
     
+    // --- Contagem de ciclos ---
+    /**
+     * Liga a contagem de ciclos: cada micro-operação dos barramentos, registradores, ULA e memórias
+     * é cobrada no contador, e os ciclos de cada instrução (do fetch ao fim do microprograma) são
+     * atribuídos ao seu opcode. Com a cache de pré-decodificação ou no modo FUNCTIONAL, que não passam
+     * pelos barramentos, cada instrução executada é cobrada de uma vez com as micro-operações do seu
+     * microprograma (CycleCounter.chargeInstruction()), sem fusão nem blocos compilados; os totais
+     * são os mesmos do caminho microprogramado.
+     * @param counter O contador (com os custos desejados), ou null para desligar.
+     */
+    public void setCycleCounter(CycleCounter counter) {
+        cycleCounter = counter;
+        extbus1.setCycleCounter(counter);
+        intbus1.setCycleCounter(counter);
+        intbus2.setCycleCounter(counter);
+        for (Register register : registersList) {
+            register.setCycleCounter(counter);
+        }
+        ula.setCycleCounter(counter);
+        memory.setCycleCounter(counter);
+        statusMemory.setCycleCounter(counter);
+        if (functionalCore != null) {
+            functionalCore.setCycleCounter(counter);
+        }
+        updateFusion();
+    }
+
+    public CycleCounter getCycleCounter() { return cycleCounter; }
+
+    // --- Hierarquia de caches ---
+    /**
+     * Coloca (ou retira, com null) uma hierarquia de caches na frente da memória principal.
+     * No modo microprogramado, cada memory.read()/store() passa por ela; no modo FUNCTIONAL e com a
+     * pré-decodificação, que não usam os barramentos, os mesmos acessos (palavras da instrução e dado)
+     * são gerados a cada instrução por um CacheAccessObserver.
+     * A carga de programas com readExec() também usa store(): chame reset() na hierarquia antes de
+     * executar para medir só o programa.
+     * @param caches A hierarquia, ou null para desligar.
+     */
+    public void setCacheHierarchy(CacheHierarchy caches) {
+        memory.setCacheHierarchy(caches);
+        if (functionalCore != null && cacheObserver != null) {
+            functionalCore.removeObserver(cacheObserver);
+        }
+        cacheObserver = caches == null ? null : new CacheAccessObserver(memory, caches);
+        if (functionalCore != null && cacheObserver != null) {
+            functionalCore.addObserver(cacheObserver);
+        }
+    }
+
+    public CacheHierarchy getCacheHierarchy() { return memory.getCacheHierarchy(); }
+
+    // --- Watchpoints ---
+    /**
+     * Vigia escritas (ou leituras, ou mudanças de valor) em um intervalo da memória principal,
+     * ex: as variáveis que o Assembler aloca a partir de memorySize - 1, ou a região da pilha.
+     * O listener recebe o PC da instrução que fez o acesso. Sem watchpoints o custo por acesso é
+     * um único teste; com watchpoints, o modo FUNCTIONAL interpreta instrução por instrução.
+     * @return O watchpoint, para removeWatchpoint().
+     */
+    public Watchpoint addWatchpoint(int start, int length, Watchpoint.Kind kind, WatchpointListener listener) {
+        return memory.addWatchpoint(start, length, kind, listener);
+    }
+
+    public void removeWatchpoint(Watchpoint watchpoint) {
+        memory.removeWatchpoint(watchpoint);
+    }
+
+    private int currentInstructionPC() {
+        return functionalRunning ? functionalCore.getInstructionPC() : instructionPC;
+    }
+
+    // --- Trace de execução ---
+    /**
+     * Começa a gravar um trace binário da execução (ver TraceRecorder/TraceReplayer).
+     * @param fileName Caminho do arquivo de trace.
+     * @throws IOException Se o arquivo não puder ser criado.
+     */
+    public void startTrace(String fileName) throws IOException {
+        startTrace(fileName, TraceRecorder.DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Começa a gravar um trace binário da execução. Cada instrução executada por controlUnitEexec()
+     * gera um registro (PC, opcode, operandos, registradores alterados e escritas na memória).
+     * Com a cache de pré-decodificação, as instruções não são fundidas enquanto o trace estiver ligado.
+     * @param fileName Caminho do arquivo de trace.
+     * @param keyframeInterval A cada quantas instruções o estado completo é gravado.
+     * @throws IOException Se o arquivo não puder ser criado.
+     */
+    public void startTrace(String fileName, int keyframeInterval) throws IOException {
+        stopTrace();
+        traceRecorder = new TraceRecorder(fileName, memory, registerValues(), keyframeInterval);
+        addExecutionObserver(traceRecorder);
+    }
+
+    /**
+     * Termina a gravação do trace (grava o índice de keyframes e fecha o arquivo).
+     * @throws IOException Se a escrita falhar.
+     */
+    public void stopTrace() throws IOException {
+        if (traceRecorder == null) {
+            return;
+        }
+        removeExecutionObserver(traceRecorder);
+        TraceRecorder recorder = traceRecorder;
+        traceRecorder = null;
+        recorder.close();
+    }
+
+    // --- Log do modo de simulação ---
+    /**
+     * Modo de simulação não interativo: em vez de imprimir o estado a cada instrução e esperar o Enter,
+     * controlUnitEexec() monta o mesmo texto (fases de fetch, antes e depois da execução) em buffers
+     * reutilizáveis e os entrega a uma thread que os grava em `out` (ver AsyncTraceWriter).
+     * Só tem efeito em uma arquitetura criada com sim = true.
+     * @param out Para onde vai o log. Não é fechado por stopSimulationLog().
+     */
+    public void startSimulationLog(Writer out) {
+        startSimulationLog(out, AsyncTraceWriter.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param out Para onde vai o log.
+     * @param capacity Quantas instruções podem esperar pela escrita antes de a execução esperar (potência de 2).
+     * @throws IllegalStateException Se já houver um log ligado.
+     */
+    public void startSimulationLog(Writer out, int capacity) {
+        if (simulationLog != null) {
+            throw new IllegalStateException("O log da simulação já está ligado.");
+        }
+        simulationLog = new AsyncTraceWriter(out, capacity);
+    }
+
+    /**
+     * Espera a gravação das instruções pendentes e volta ao modo de simulação interativo.
+     * @throws IOException Se alguma escrita do log falhou.
+     */
+    public void stopSimulationLog() throws IOException {
+        if (simulationLog == null) {
+            return;
+        }
+        AsyncTraceWriter log = simulationLog;
+        simulationLog = null;
+        simulationText = null;
+        log.close();
+    }
+
+    /**
+     * Registra um observador avisado antes e depois de cada instrução executada por controlUnitEexec(),
+     * em qualquer modo. Com a cache de pré-decodificação, as instruções não são fundidas enquanto houver
+     * observadores: cada uma é vista sozinha, como nos outros modos.
+     * @param observer O observador.
+     */
+    public void addExecutionObserver(ExecutionObserver observer) {
+        ExecutionObserver[] grown = Arrays.copyOf(observers, observers.length + 1);
+        grown[observers.length] = observer;
+        observers = grown;
+        updateFusion();
+        if (functionalCore != null) {
+            functionalCore.addObserver(observer);
+        }
+    }
+
+    /**
+     * Remove um observador registrado com addExecutionObserver().
+     * @param observer O observador.
+     */
+    public void removeExecutionObserver(ExecutionObserver observer) {
+        for (int i = 0; i < observers.length; i++) {
+            if (observers[i] == observer) {
+                ExecutionObserver[] shrunk = new ExecutionObserver[observers.length - 1];
+                System.arraycopy(observers, 0, shrunk, 0, i);
+                System.arraycopy(observers, i + 1, shrunk, i, observers.length - i - 1);
+                observers = shrunk;
+                updateFusion();
+                break;
+            }
+        }
+        if (functionalCore != null) {
+            functionalCore.removeObserver(observer);
+        }
+    }
+
+    /**
+     * Copia os valores de registersList para o array entregue aos observadores.
+     */
+    private int[] registerValues() {
+        if (observedRegisters == null) {
+            observedRegisters = new int[registersList.size()];
+        }
+        for (int id = 0; id < observedRegisters.length; id++) {
+            observedRegisters[id] = registersList.get(id).getData();
+        }
+        return observedRegisters;
+    }
+
+    // --- Checkpoint/restore ---
+    /**
+     * Captura o estado completo da arquitetura: memória, registradores, barramentos, ULA, Demux,
+     * o store em andamento da memória e a statusMemory.
+     * @return Um checkpoint que pode ser aplicado com restore() (nesta ou em outra Architecture)
+     *         ou gravado em disco com Snapshot.save().
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(memory.copyDataList(), memory.getMar(), memory.isExpectingDataForStore(),
+                statusMemory.copyDataList(), statusMemory.getMar(), statusMemory.isExpectingDataForStore(),
+                registerSnapshot(), new int[] {extbus1.get(), intbus1.get(), intbus2.get()},
+                new int[] {ula.getInternalRegister(0), ula.getInternalRegister(1)}, demux.getValue());
+    }
+
+    /**
+     * Checkpoint incremental: a primeira chamada devolve um checkpoint completo e passa a registrar as
+     * páginas escritas na memória (DirtyPageTracker); as seguintes copiam só as páginas escritas desde o
+     * checkpoint anterior, que fica como base do novo. Em simulações longas que escrevem pouco,
+     * cada checkpoint custa proporcionalmente às escritas, e não ao tamanho da memória.
+     * A statusMemory, os registradores e os barramentos são sempre copiados inteiros (são pequenos).
+     * @return O checkpoint; restore() aceita tanto o completo quanto os incrementais.
+     */
+    public Snapshot checkpoint() {
+        if (dirtyPages == null) {
+            dirtyPages = new DirtyPageTracker(memory.getMemorySize(), DirtyPageTracker.DEFAULT_PAGE_BITS);
+            memory.addWriteListener(dirtyPages);
+            lastCheckpoint = snapshot();
+        } else {
+            int[] pageIndexes = dirtyPages.getDirtyPages();
+            int[][] pages = new int[pageIndexes.length][];
+            int pageBits = dirtyPages.getPageBits();
+            for (int p = 0; p < pageIndexes.length; p++) {
+                int start = pageIndexes[p] << pageBits;
+                int[] page = new int[Math.min(1 << pageBits, memory.getMemorySize() - start)];
+                for (int i = 0; i < page.length; i++) {
+                    page[i] = memory.getData(start + i);
+                }
+                pages[p] = page;
+            }
+            lastCheckpoint = new Snapshot(lastCheckpoint, pageBits, pageIndexes, pages,
+                    memory.getMar(), memory.isExpectingDataForStore(),
+                    statusMemory.copyDataList(), statusMemory.getMar(), statusMemory.isExpectingDataForStore(),
+                    registerSnapshot(), new int[] {extbus1.get(), intbus1.get(), intbus2.get()},
+                    new int[] {ula.getInternalRegister(0), ula.getInternalRegister(1)}, demux.getValue());
+        }
+        dirtyPages.clear();
+        return lastCheckpoint;
+    }
+
+    /**
+     * Desliga os checkpoints incrementais: o próximo checkpoint() volta a ser completo.
+     */
+    public void stopCheckpoints() {
+        if (dirtyPages != null) {
+            memory.removeWriteListener(dirtyPages);
+            dirtyPages = null;
+            lastCheckpoint = null;
+        }
+    }
+
+    /**
+     * @return As páginas escritas desde o último checkpoint(), ou null se os checkpoints estão desligados.
+     */
+    public DirtyPageTracker getDirtyPageTracker() {
+        return dirtyPages;
+    }
+
+    private int[] registerSnapshot() {
+        int[] registers = new int[registersList.size()];
+        for (int id = 0; id < registers.length; id++) {
+            registers[id] = registersList.get(id).getData();
+        }
+        return registers;
+    }
+
+    /**
+     * Volta a arquitetura para o estado de um checkpoint.
+     * A cache de pré-decodificação e os blocos compilados são descartados pelos avisos de escrita da memória.
+     * Um checkpoint incremental é reconstruído a partir da sua cadeia de bases. Com os checkpoints
+     * incrementais ligados, o checkpoint restaurado passa a ser a base do próximo checkpoint().
+     * @param snapshot O checkpoint.
+     * @throws IllegalArgumentException Se o checkpoint for de uma arquitetura com outro tamanho de memória
+     *         ou outra quantidade de registradores.
+     */
+    public void restore(Snapshot snapshot) {
+        int[] registers = snapshot.registers();
+        if (registers.length != registersList.size()) {
+            throw new IllegalArgumentException("Checkpoint com " + registers.length + " registradores; esperado " + registersList.size() + ".");
+        }
+        memory.restoreState(snapshot.memory(), snapshot.getMemoryMar(), snapshot.isMemoryExpectingData());
+        statusMemory.restoreState(snapshot.statusMemory(), snapshot.getStatusMemoryMar(), snapshot.isStatusMemoryExpectingData());
+        for (int id = 0; id < registers.length; id++) {
+            registersList.get(id).setData(registers[id]);
+        }
+        int[] buses = snapshot.buses();
+        extbus1.put(buses[0]);
+        intbus1.put(buses[1]);
+        intbus2.put(buses[2]);
+        int[] ulaRegisters = snapshot.ulaRegisters();
+        ula.setInternalRegister(0, ulaRegisters[0]);
+        ula.setInternalRegister(1, ulaRegisters[1]);
+        demux.setValue(snapshot.getDemux());
+        if (dirtyPages != null) {
+            dirtyPages.clear();
+            lastCheckpoint = snapshot;
+        }
+    }
+
+    /**
+     * Cria uma arquitetura filha no mesmo ponto da execução. A memória principal é compartilhada em
+     * copy-on-write (ver MemoryStorage.fork()); só os registradores, barramentos, ULA, Demux e a
+     * statusMemory são copiados. Com o PagedMemoryStorage o custo é o da tabela de páginas,
+     * independente do conteúdo; pai e filho podem então continuar (inclusive em threads diferentes)
+     * sem enxergar as escritas um do outro.
+     * A filha herda o modo de execução e a pré-decodificação/compilação de blocos, mas não os
+     * observadores, o trace, a contagem de ciclos nem a hierarquia de caches.
+     * @return A arquitetura filha.
+     * @throws UnsupportedOperationException Se o armazenamento da memória não suportar fork().
+     */
+    public Architecture fork() {
+        Architecture child = new Architecture(simulation, executionMode, memory.getStorage().fork());
+        child.memory.setStoreState(memory.getMar(), memory.isExpectingDataForStore());
+        child.statusMemory.restoreState(statusMemory.copyDataList(), statusMemory.getMar(), statusMemory.isExpectingDataForStore());
+        for (int id = 0; id < registersList.size(); id++) {
+            child.registersList.get(id).setData(registersList.get(id).getData());
+        }
+        child.extbus1.put(extbus1.get());
+        child.intbus1.put(intbus1.get());
+        child.intbus2.put(intbus2.get());
+        child.ula.setInternalRegister(0, ula.getInternalRegister(0));
+        child.ula.setInternalRegister(1, ula.getInternalRegister(1));
+        child.demux.setValue(demux.getValue());
+        child.halt = halt;
+        child.setInstructionLimit(instructionLimit);
+        if (decodeCache != null) {
+            child.setPredecodeEnabled(true); // As páginas de entradas do filho são alocadas conforme ele executa
+        }
+        BlockJit jit = getBlockJit();
+        if (jit != null) {
+            child.setBlockJitEnabled(true, jit.getThreshold()); // Idem para as páginas de contadores e blocos
+        }
+        return child;
+    }
+
+    /**
+     * Indica se alguém precisa ver a execução instrução por instrução: observadores (inclusive o trace),
+     * a hierarquia de caches, o contador de ciclos, watchpoints ou a Instrumentation. Nesse caso a
+     * pré-decodificação não funde instruções, e cada uma é executada, contada e observada sozinha.
+     */
+    private boolean isInstructionLevelObserved() {
+        return observers.length != 0 || cacheObserver != null || cycleCounter != null || memory.hasWatchpoints()
+                || Instrumentation.isEnabled();
+    }
+
+    private void updateFusion() {
+        if (decodeCache != null) {
+            decodeCache.setFusionEnabled(!isInstructionLevelObserved());
+        }
+    }
+
     /**
      * Este método executa um programa que está armazenado na memória.
      */
     public void controlUnitEexec() {
+        if (functionalCore != null && !simulation) {
+            // Modo funcional: os registradores vão para o banco int[] durante a execução e voltam no fim
+            functionalCore.loadRegisters(registersList);
+            functionalRunning = true;
+            try {
+                functionalCore.run();
+            } finally {
+                functionalRunning = false;
+                functionalCore.storeRegisters(registersList);
+                instructionCount = functionalCore.getInstructionCount();
+            }
+            halt = true;
+            return;
+        }
         halt = false;
+        instructionCount = 0;
+        updateFusion();
         while (!halt) {
-            fetch();
-            decodeExecute();
+            instructionPC = PC.getData();
+            if (observers.length != 0) {
+                int pc = PC.getData();
+                int[] registers = registerValues();
+                for (ExecutionObserver observer : observers) {
+                    observer.beginInstruction(pc, registers);
+                }
+            }
+            if (decodeCache != null && !simulation) {
+                executeDecoded(); // Instrução já decodificada: sem fetch nem leitura de parâmetros
+            } else {
+                if (cycleCounter != null) {
+                    cycleCounter.beginInstruction();
+                }
+                fetch();
+                int opcode = IR.getData();
+                decodeExecute();
+                instructionCount++;
+                if (cycleCounter != null) {
+                    cycleCounter.endInstruction(opcode);
+                }
+            }
+            if (observers.length != 0) {
+                int[] registers = registerValues();
+                for (ExecutionObserver observer : observers) {
+                    observer.endInstruction(registers);
+                }
+            }
             
             // Adicionado um limite para evitar loops infinitos em programas com erro
             if (PC.getData() < 0 || PC.getData() >= memorySize) {
@@ -861,6 +1639,10 @@ public class Architecture {
                 halt = true;
             }
             // A condição de parada `halt = true` é setada pelo microprograma HALT
+            if (instructionLimit != 0 && !halt && instructionCount >= instructionLimit) {
+                throw new IllegalStateException("Limite de " + instructionLimit + " instruções excedido sem HALT (PC = "
+                        + PC.getData() + ").");
+            }
         }
     }
     
@@ -872,7 +1654,9 @@ public class Architecture {
         IR.internalRead(); // A instrução (opcode) está no intbus2
         int command = intbus2.get(); // Obtém o opcode
         
-        simulationDecodeExecuteBefore(command); // Log de simulação
+        if (simulation) {
+            simulationDecodeExecuteBefore(command); // Log de simulação
+        }
 
         // As operações `add()`, `sub()`, etc. vão lidar com o avanço do PC internamente.
         switch (command) {
@@ -0,0 +1,171 @@
+package architecture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Grava texto em uma thread de fundo, para que quem produz (o laço de simulação) não espere a escrita.
+ *
+ * O produtor e a thread escritora compartilham um buffer circular limitado de StringBuilders
+ * reutilizáveis: o produtor pega o próximo slot com claim(), escreve o texto nele e o entrega com
+ * publish(); a escritora copia os slots publicados para o Writer e os devolve. Só há alocação quando
+ * um texto é maior que todos os anteriores do mesmo slot. Se a escritora ficar `capacity` registros
+ * para trás, claim() espera (o trace nunca perde registros).
+ *
+ * Um único produtor por vez. As falhas de escrita são relançadas como UncheckedIOException no próximo
+ * publish() e como IOException em close().
+ */
+public class AsyncTraceWriter implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int SPINS = 100;          // Tentativas com yield() antes de dormir
+    private static final long PARK_NANOS = 50_000;
+
+    private final Writer out;
+    private final StringBuilder[] slots;
+    private final int mask;
+    private final Thread thread;
+
+    private long claimed;                  // Próximo slot do produtor (só o produtor usa)
+    private volatile long published;       // Slots [consumed, published) estão prontos para a escritora
+    private volatile long consumed;        // Slots antes deste já foram escritos e podem ser reutilizados
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * Cria o buffer e inicia a thread escritora.
+     * @param out Para onde o texto vai. Não é fechado por close() (pode ser o System.out).
+     * @param capacity Quantidade de slots (potência de 2).
+     */
+    public AsyncTraceWriter(Writer out, int capacity) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("A capacidade deve ser uma potência de 2: " + capacity);
+        }
+        this.out = out;
+        this.slots = new StringBuilder[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new StringBuilder(256);
+        }
+        this.mask = capacity - 1;
+        this.thread = new Thread(this::drain, "simulation-trace-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return Um slot vazio para o próximo registro. Espera se o buffer estiver cheio.
+     *         Chamar claim() de novo sem publish() devolve o mesmo slot, esvaziado.
+     */
+    public StringBuilder claim() {
+        if (closed) {
+            throw new IllegalStateException("AsyncTraceWriter já foi fechado.");
+        }
+        int spins = 0;
+        while (claimed - consumed >= slots.length) {
+            if (spins++ < SPINS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        StringBuilder slot = slots[(int) claimed & mask];
+        slot.setLength(0);
+        return slot;
+    }
+
+    /**
+     * Entrega à escritora o slot devolvido pelo último claim().
+     */
+    public void publish() {
+        IOException error = failure;
+        if (error != null) {
+            throw new UncheckedIOException(error);
+        }
+        published = ++claimed;
+        if (writerParked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void drain() {
+        int spins = 0;
+        while (true) {
+            long available = published;
+            long next = consumed;
+            if (next == available) {
+                if (closed && published == next) {
+                    break;
+                }
+                if (spins++ < SPINS) {
+                    Thread.yield();
+                    continue;
+                }
+                flushQuietly(); // Ocioso: o que já foi escrito fica visível
+                writerParked = true;
+                if (published == next && !closed) {
+                    LockSupport.park(this);
+                }
+                writerParked = false;
+                continue;
+            }
+            spins = 0;
+            for (long i = next; i < available; i++) {
+                if (failure == null) {
+                    try {
+                        out.append(slots[(int) i & mask]);
+                    } catch (IOException e) {
+                        failure = e; // Continua liberando os slots para o produtor não travar
+                    }
+                }
+            }
+            consumed = available;
+        }
+        flushQuietly();
+    }
+
+    private void flushQuietly() {
+        if (failure == null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * @return Quantos registros foram publicados e ainda não foram escritos.
+     */
+    public long getPending() {
+        return published - consumed;
+    }
+
+    /**
+     * Espera a escritora gravar todos os registros publicados, faz flush e encerra a thread.
+     * @throws IOException Se alguma escrita falhou.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            LockSupport.unpark(thread);
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package architecture;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import components.Register;
+
+/**
+ * Executa muitos programas em paralelo, cada um na sua própria Architecture.
+ *
+ * Cada job é uma imagem .dxf (a saída do Assembler) mais um "patch" opcional de memória
+ * (endereço -> valor) aplicado depois do carregamento, por exemplo para colocar as entradas do programa.
+ * Os jobs rodam num ForkJoinPool do tamanho da máquina e o resultado de cada um traz os
+ * registradores finais, os digests dos registradores e da memória e a quantidade de instruções executadas.
+ *
+ * As imagens são lidas do disco uma única vez por arquivo e compartilhadas entre os jobs.
+ * Cada job tem um limite de instruções: um programa que não chega ao HALT (ex: um laço infinito)
+ * é interrompido e vira um Result com erro, sem prender a thread do pool.
+ */
+public class BatchRunner implements AutoCloseable {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** Limite de instruções por job usado quando nenhum é informado. */
+    public static final long DEFAULT_INSTRUCTION_LIMIT = 50_000_000L;
+
+    private final ForkJoinPool pool;
+    private final ExecutionMode mode;
+    private final long instructionLimit;
+    private final Map<String, int[]> images = new ConcurrentHashMap<>(); // Imagens .dxf já lidas, por arquivo
+
+    /**
+     * Um programa a executar.
+     */
+    public static class Job {
+        private final String dxfFile;
+        private final Map<Integer, Integer> memoryPatch;
+
+        /**
+         * @param dxfFile Caminho do executável (com a extensão .dxf).
+         * @param memoryPatch Valores escritos na memória (endereço -> valor) depois de carregar a imagem;
+         *                    pode ser null.
+         */
+        public Job(String dxfFile, Map<Integer, Integer> memoryPatch) {
+            this.dxfFile = dxfFile;
+            this.memoryPatch = memoryPatch == null ? Collections.<Integer, Integer>emptyMap() : memoryPatch;
+        }
+
+        public String getDxfFile() { return dxfFile; }
+        public Map<Integer, Integer> getMemoryPatch() { return memoryPatch; }
+    }
+
+    /**
+     * O estado final de um job. Se o job falhou (arquivo inválido, endereço fora da memória,
+     * limite de instruções excedido, ...), getError() traz a exceção e os demais campos ficam zerados.
+     */
+    public static class Result {
+        private final Job job;
+        private final int[] registers;
+        private final long registerDigest;
+        private final long memoryDigest;
+        private final long instructionCount;
+        private final Exception error;
+
+        Result(Job job, int[] registers, long registerDigest, long memoryDigest, long instructionCount, Exception error) {
+            this.job = job;
+            this.registers = registers;
+            this.registerDigest = registerDigest;
+            this.memoryDigest = memoryDigest;
+            this.instructionCount = instructionCount;
+            this.error = error;
+        }
+
+        public Job getJob() { return job; }
+        public int[] getRegisters() { return registers.clone(); } // Na ordem de registersList (RPG, RPG1, PC, IR, Flags, StkTOP, StkBOT)
+        public long getRegisterDigest() { return registerDigest; }
+        public long getMemoryDigest() { return memoryDigest; }
+        public long getInstructionCount() { return instructionCount; }
+        public Exception getError() { return error; }
+        public boolean isSuccessful() { return error == null; }
+    }
+
+    /**
+     * Cria um runner em modo FUNCTIONAL com uma thread por processador.
+     */
+    public BatchRunner() {
+        this(ExecutionMode.FUNCTIONAL, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param mode Modo de execução das Architecture criadas para os jobs.
+     * @param parallelism Quantidade de threads do pool.
+     */
+    public BatchRunner(ExecutionMode mode, int parallelism) {
+        this(mode, parallelism, DEFAULT_INSTRUCTION_LIMIT);
+    }
+
+    /**
+     * @param mode Modo de execução das Architecture criadas para os jobs.
+     * @param parallelism Quantidade de threads do pool.
+     * @param instructionLimit Máximo de instruções por job; um job que passa dele sem HALT termina com erro.
+     */
+    public BatchRunner(ExecutionMode mode, int parallelism, long instructionLimit) {
+        if (instructionLimit <= 0) {
+            throw new IllegalArgumentException("Limite de instruções inválido: " + instructionLimit);
+        }
+        this.mode = mode;
+        this.instructionLimit = instructionLimit;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Executa todos os jobs e espera o fim.
+     * @param jobs Os jobs.
+     * @return Um resultado por job, na mesma ordem da lista.
+     */
+    public List<Result> run(List<Job> jobs) {
+        List<Callable<Result>> tasks = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            tasks.add(() -> runJob(job));
+        }
+        List<Result> results = new ArrayList<>(jobs.size());
+        for (Future<Result> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Execução em lote interrompida.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Falha inesperada na execução em lote.", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Executa um job numa Architecture nova (chamado pelas threads do pool).
+     */
+    private Result runJob(Job job) {
+        try {
+            Architecture arch = new Architecture(false, mode);
+            arch.setInstructionLimit(instructionLimit);
+            arch.getMemory().load(0, image(job.getDxfFile()));
+            for (Map.Entry<Integer, Integer> patch : job.getMemoryPatch().entrySet()) {
+                arch.getMemory().setData(patch.getKey(), patch.getValue());
+            }
+            arch.getPC().setData(0); // Como no readExec: a execução começa no endereço 0
+            arch.controlUnitEexec();
+
+            List<Register> registersList = arch.getRegistersList();
+            int[] registers = new int[registersList.size()];
+            for (int id = 0; id < registers.length; id++) {
+                registers[id] = registersList.get(id).getData();
+            }
+            return new Result(job, registers, digest(registers, registers.length),
+                    digest(arch.getMemory().getDataList(), arch.getMemorySize()), arch.getInstructionCount(), null);
+        } catch (RuntimeException e) {
+            return new Result(job, new int[0], 0, 0, 0, e);
+        }
+    }
+
+    /**
+     * Retorna a imagem do arquivo, lendo-a só na primeira vez.
+     */
+    private int[] image(String dxfFile) {
+        return images.computeIfAbsent(dxfFile, file -> {
+            try {
+                return readImage(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Lê um executável .dxf (uma palavra por linha, terminado por -1 ou pelo fim do arquivo),
+     * no mesmo formato aceito por Architecture.readExec(), sem carregá-lo em nenhuma memória.
+     * @param dxfFile Caminho do arquivo (com a extensão).
+     * @return As palavras do programa, a partir do endereço 0.
+     * @throws IOException Se o arquivo não puder ser lido.
+     */
+    public static int[] readImage(String dxfFile) throws IOException {
+        List<Integer> words = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(dxfFile))) {
+            String linha;
+            while ((linha = br.readLine()) != null) {
+                if (linha.trim().equals("-1")) {
+                    break; // Fim do arquivo .dxf
+                }
+                words.add(Integer.parseInt(linha.trim()));
+            }
+        }
+        int[] image = new int[words.size()];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = words.get(i);
+        }
+        return image;
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre as primeiras `length` palavras (4 bytes cada, little-endian).
+     * @param words As palavras.
+     * @param length Quantas palavras entram no digest.
+     * @return O digest.
+     */
+    public static long digest(int[] words, int length) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < length; i++) {
+            int word = words[i];
+            for (int b = 0; b < 4; b++) {
+                hash ^= (word >>> (8 * b)) & 0xff;
+                hash *= FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Encerra as threads do pool.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
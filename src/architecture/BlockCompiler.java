@@ -0,0 +1,360 @@
+package architecture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import components.Opcodes;
+
+/**
+ * Gera, para uma sequência de instruções em linha reta, uma classe que implementa CompiledBlock.
+ *
+ * O método run() gerado não tem desvios (as flags são calculadas por FunctionalCore.setStatusFlags()),
+ * então a classe dispensa StackMapTable. Antes de cada instrução que acessa a memória (e pode lançar
+ * IndexOutOfBoundsException) o PC e o IR recebem o endereço e o opcode dela: se o bloco parar no meio,
+ * o estado fica como o do interpretador, com as instruções anteriores aplicadas e o PC na que falhou. Ela é definida como hidden class com
+ * `MethodHandles.Lookup.defineHiddenClass` quando a JVM oferece esse método (Java 15+);
+ * em JVMs mais antigas é usado um ClassLoader próprio para cada bloco.
+ */
+public class BlockCompiler {
+
+    // Instruções de bytecode usadas
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int IALOAD = 0x2e;
+    private static final int IASTORE = 0x4f;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    private static final String MEMORY = "components/Memory";
+    private static final String CORE = "architecture/FunctionalCore";
+
+    private static final AtomicInteger generatedClasses = new AtomicInteger(); // Para nomes únicos (várias Architecture em paralelo)
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private final Method defineHiddenClass; // null se a JVM não tiver hidden classes
+    private final Object noClassOptions;
+
+    public BlockCompiler() {
+        Method define = null;
+        Object options = null;
+        try {
+            Class<?> optionClass = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            options = Array.newInstance(optionClass, 0);
+            define = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, options.getClass());
+        } catch (ReflectiveOperationException e) {
+            define = null; // JVM anterior ao Java 15: usa o ClassLoader próprio
+        }
+        this.defineHiddenClass = define;
+        this.noClassOptions = options;
+    }
+
+    /**
+     * Compila as instruções [start, end) da memória. Todas devem ser de linha reta
+     * (ver BlockJit.isStraightLine()) e ter os operandos já validados.
+     * @param code As palavras da memória (opcodes e parâmetros) a partir de `start`.
+     * @param start Endereço da primeira instrução.
+     * @param end Endereço logo após a última instrução (onde o PC fica ao sair do bloco).
+     * @return O bloco pronto para executar.
+     */
+    public CompiledBlock compile(int[] code, int start, int end) {
+        byte[] classFile = generate(code, start, end);
+        try {
+            MethodHandle constructor;
+            if (defineHiddenClass != null) {
+                MethodHandles.Lookup hidden = (MethodHandles.Lookup) defineHiddenClass.invoke(lookup, classFile, true, noClassOptions);
+                constructor = hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class));
+            } else {
+                Class<?> blockClass = new BlockClassLoader(BlockCompiler.class.getClassLoader()).define(classFile);
+                constructor = MethodHandles.publicLookup().findConstructor(blockClass, MethodType.methodType(void.class));
+            }
+            return (CompiledBlock) constructor.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Falha ao definir o bloco compilado em " + start, e);
+        }
+    }
+
+    /**
+     * ClassLoader descartável usado quando não há hidden classes.
+     */
+    private static final class BlockClassLoader extends ClassLoader {
+        BlockClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(byte[] classFile) {
+            return defineClass(null, classFile, 0, classFile.length);
+        }
+    }
+
+    // --- Geração do class file ---
+
+    private byte[] generate(int[] code, int start, int end) {
+        ConstantPool cp = new ConstantPool();
+        String className;
+        synchronized (BlockCompiler.class) {
+            className = "architecture/CompiledBlock$" + generatedClasses.getAndIncrement() + "$" + start;
+        }
+        int thisClass = cp.classRef(className);
+        int superClass = cp.classRef("java/lang/Object");
+        int blockInterface = cp.classRef("architecture/CompiledBlock");
+        int objectInit = cp.methodRef("java/lang/Object", "<init>", "()V");
+        int getData = cp.methodRef(MEMORY, "getData", "(I)I");
+        int setData = cp.methodRef(MEMORY, "setData", "(II)V");
+        int setFlags = cp.methodRef(CORE, "setStatusFlags", "([II)I");
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int pc = start;
+        int lastOpcode = 0;
+        while (pc < end) {
+            int opcode = code[pc - start];
+            if (accessesMemory(opcode)) {
+                // PC e IR em dia: uma exceção do acesso deixa o PC nesta instrução, não no início do bloco
+                storeRegister(body, cp, FunctionalCore.IR, opcode);
+                storeRegister(body, cp, FunctionalCore.PC, pc);
+            }
+            switch (opcode) {
+                case Opcodes.ADD:
+                case Opcodes.SUB:
+                    // r[RPG] = setStatusFlags(r, r[RPG] +/- m.getData(addr))
+                    body.write(ALOAD_1);
+                    pushInt(body, cp, FunctionalCore.RPG);
+                    body.write(ALOAD_1);
+                    body.write(ALOAD_1);
+                    pushInt(body, cp, FunctionalCore.RPG);
+                    body.write(IALOAD);
+                    body.write(ALOAD_2);
+                    pushInt(body, cp, code[pc - start + 1]);
+                    invoke(body, INVOKEVIRTUAL, getData);
+                    body.write(opcode == Opcodes.ADD ? IADD : ISUB);
+                    invoke(body, INVOKESTATIC, setFlags);
+                    body.write(IASTORE);
+                    break;
+                case Opcodes.INC:
+                    // r[RPG] = setStatusFlags(r, r[RPG] + 1)
+                    body.write(ALOAD_1);
+                    pushInt(body, cp, FunctionalCore.RPG);
+                    body.write(ALOAD_1);
+                    body.write(ALOAD_1);
+                    pushInt(body, cp, FunctionalCore.RPG);
+                    body.write(IALOAD);
+                    pushInt(body, cp, 1);
+                    body.write(IADD);
+                    invoke(body, INVOKESTATIC, setFlags);
+                    body.write(IASTORE);
+                    break;
+                case Opcodes.READ:
+                    // r[RPG] = m.getData(addr)
+                    body.write(ALOAD_1);
+                    pushInt(body, cp, FunctionalCore.RPG);
+                    body.write(ALOAD_2);
+                    pushInt(body, cp, code[pc - start + 1]);
+                    invoke(body, INVOKEVIRTUAL, getData);
+                    body.write(IASTORE);
+                    break;
+                case Opcodes.STORE:
+                    // m.setData(addr, r[RPG])
+                    body.write(ALOAD_2);
+                    pushInt(body, cp, code[pc - start + 1]);
+                    body.write(ALOAD_1);
+                    pushInt(body, cp, FunctionalCore.RPG);
+                    body.write(IALOAD);
+                    invoke(body, INVOKEVIRTUAL, setData);
+                    break;
+                case Opcodes.LDI:
+                    // r[RPG] = imediato
+                    body.write(ALOAD_1);
+                    pushInt(body, cp, FunctionalCore.RPG);
+                    pushInt(body, cp, code[pc - start + 1]);
+                    body.write(IASTORE);
+                    break;
+                case Opcodes.MOVE_REG_REG:
+                    // r[regB] = r[regA]
+                    body.write(ALOAD_1);
+                    pushInt(body, cp, code[pc - start + 2]);
+                    body.write(ALOAD_1);
+                    pushInt(body, cp, code[pc - start + 1]);
+                    body.write(IALOAD);
+                    body.write(IASTORE);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Instrução " + opcode + " em " + pc + " não pode ser compilada em linha reta.");
+            }
+            lastOpcode = opcode;
+            pc += Opcodes.getInstructionSize(opcode);
+        }
+        // Saída do bloco: IR com o último opcode executado e PC na instrução seguinte
+        storeRegister(body, cp, FunctionalCore.IR, lastOpcode);
+        storeRegister(body, cp, FunctionalCore.PC, end);
+        body.write(RETURN);
+
+        ByteArrayOutputStream init = new ByteArrayOutputStream();
+        init.write(ALOAD_0);
+        invoke(init, INVOKESPECIAL, objectInit);
+        init.write(RETURN);
+
+        int codeAttribute = cp.utf8("Code");
+        int initName = cp.utf8("<init>");
+        int initDescriptor = cp.utf8("()V");
+        int runName = cp.utf8("run");
+        int runDescriptor = cp.utf8("([I" + "L" + MEMORY + ";)V");
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);  // minor
+            out.writeShort(52); // major: Java 8 (sem desvios, não precisa de StackMapTable)
+            cp.writeTo(out);
+            out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(blockInterface);
+            out.writeShort(0); // fields
+            out.writeShort(2); // methods
+            writeMethod(out, initName, initDescriptor, codeAttribute, 1, 1, init.toByteArray());
+            writeMethod(out, runName, runDescriptor, codeAttribute, 6, 3, body.toByteArray());
+            out.writeShort(0); // atributos da classe
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // ByteArrayOutputStream não lança IOException
+        }
+    }
+
+    private static boolean accessesMemory(int opcode) {
+        return opcode == Opcodes.ADD || opcode == Opcodes.SUB || opcode == Opcodes.READ || opcode == Opcodes.STORE;
+    }
+
+    /**
+     * r[id] = value
+     */
+    private static void storeRegister(ByteArrayOutputStream body, ConstantPool cp, int id, int value) {
+        body.write(ALOAD_1);
+        pushInt(body, cp, id);
+        pushInt(body, cp, value);
+        body.write(IASTORE);
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(0x0001); // public
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1); // um atributo: Code
+        out.writeShort(codeAttribute);
+        out.writeInt(2 + 2 + 4 + code.length + 2 + 2);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // atributos do Code
+    }
+
+    private static void invoke(ByteArrayOutputStream body, int instruction, int methodRef) {
+        body.write(instruction);
+        body.write(methodRef >> 8);
+        body.write(methodRef);
+    }
+
+    private static void pushInt(ByteArrayOutputStream body, ConstantPool cp, int value) {
+        if (value >= -1 && value <= 5) {
+            body.write(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            body.write(BIPUSH);
+            body.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            body.write(SIPUSH);
+            body.write(value >> 8);
+            body.write(value);
+        } else {
+            int index = cp.integer(value);
+            body.write(LDC_W);
+            body.write(index >> 8);
+            body.write(index);
+        }
+    }
+
+    /**
+     * Constant pool mínimo: Utf8, Class, NameAndType, Methodref e Integer.
+     */
+    private static final class ConstantPool {
+        private final List<Object[]> entries = new ArrayList<>(); // {tag, valores...}
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        int utf8(String value) {
+            return add("U" + value, new Object[] {1, value});
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return add("C" + internalName, new Object[] {7, name});
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = add("N" + name + descriptor, new Object[] {12, nameIndex, descriptorIndex});
+            return add("M" + owner + "." + name + descriptor, new Object[] {10, ownerIndex, nameAndType});
+        }
+
+        int integer(int value) {
+            return add("I" + value, new Object[] {3, value});
+        }
+
+        private int add(String key, Object[] entry) {
+            Integer index = indexes.get(key);
+            if (index == null) {
+                entries.add(entry);
+                index = entries.size(); // índices do constant pool começam em 1
+                indexes.put(key, index);
+            }
+            return index;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeShort(entries.size() + 1);
+            for (Object[] entry : entries) {
+                int tag = (Integer) entry[0];
+                out.writeByte(tag);
+                switch (tag) {
+                    case 1:
+                        out.writeUTF((String) entry[1]);
+                        break;
+                    case 3:
+                        out.writeInt((Integer) entry[1]);
+                        break;
+                    case 7:
+                        out.writeShort((Integer) entry[1]);
+                        break;
+                    default: // 10 e 12: dois índices
+                        out.writeShort((Integer) entry[1]);
+                        out.writeShort((Integer) entry[2]);
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package architecture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import components.Memory;
+import components.MemoryWriteListener;
+import components.Opcodes;
+
+/**
+ * Motor de tiering do FunctionalCore.
+ *
+ * Conta as execuções de cada bloco básico (pelo endereço de entrada: início da execução ou destino
+ * de um desvio). Quando um bloco passa do limiar, suas instruções de linha reta (add, sub, read, store,
+ * ldi, inc, move) são compiladas pelo BlockCompiler e, daí em diante, executadas de uma vez só.
+ *
+ * Saídas laterais: o bloco termina na primeira instrução de controle (desvios, call, ret, imul, halt),
+ * que é executada pelo interpretador; e nunca se estende sobre o endereço escrito por um store dele mesmo.
+ * Escritas em endereços cobertos por blocos compilados (observadas via MemoryWriteListener)
+ * descartam esses blocos, que voltam a ser interpretados até ficarem quentes de novo.
+ *
+ * Os contadores e os blocos ficam em páginas de PAGE_SIZE endereços, alocadas quando um bloco
+ * daquela região é executado pela primeira vez (como na DecodeCache): criar o motor custa só a
+ * tabela de páginas, mesmo em memórias de milhões de palavras (ex: os filhos de Architecture.fork()).
+ */
+public class BlockJit implements MemoryWriteListener {
+
+    public static final int DEFAULT_THRESHOLD = 1000;
+    private static final int MAX_BLOCK_WORDS = 256; // Limite do tamanho de um bloco (palavras de memória)
+    private static final int MAX_INSTRUCTION_WORDS = 4; // Maior instrução (jeq/jgt/jlw)
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS; // Endereços por página
+
+    private final Memory memory;
+    private final int threshold;
+    private final BlockCompiler compiler = new BlockCompiler();
+
+    private final int size;           // Quantidade de endereços da memória
+    private final Page[] pages;       // null = nenhum bloco daquela região foi executado ainda
+    private int allocatedPages;
+    private final List<Block> compiled = new ArrayList<>();
+
+    private long compilations;
+    private long blockExecutions;
+    private long compiledInstructions; // Instruções executadas dentro de blocos compilados
+    private long invalidations;
+
+    /**
+     * Um bloco compilado e o intervalo [start, end) de memória de onde ele veio.
+     */
+    private static final class Block {
+        final int start;
+        final int end;
+        final int instructions;
+        final CompiledBlock code;
+
+        Block(int start, int end, int instructions, CompiledBlock code) {
+            this.start = start;
+            this.end = end;
+            this.instructions = instructions;
+            this.code = code;
+        }
+    }
+
+    /**
+     * Contadores e blocos de PAGE_SIZE endereços consecutivos.
+     */
+    private static final class Page {
+        final int[] counters = new int[PAGE_SIZE];   // Execuções interpretadas por endereço de entrada
+        final Block[] blocks = new Block[PAGE_SIZE]; // Bloco compilado por endereço de entrada
+        final int[] coverage = new int[PAGE_SIZE];   // Quantos blocos compilados contêm cada endereço
+    }
+
+    /**
+     * @param memory A memória principal (o motor se registra como observador de escritas).
+     * @param threshold Número de execuções interpretadas de um bloco antes de compilá-lo.
+     */
+    public BlockJit(Memory memory, int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("O limiar de compilação deve ser positivo.");
+        }
+        this.memory = memory;
+        this.threshold = threshold;
+        this.size = memory.getMemorySize();
+        this.pages = new Page[(int) (((long) size + PAGE_SIZE - 1) >>> PAGE_BITS)];
+        memory.addWriteListener(this);
+    }
+
+    /**
+     * Instruções que não alteram o fluxo e podem ficar no meio de um bloco compilado.
+     * @param opcode O opcode.
+     * @return true se a instrução é de linha reta.
+     */
+    public static boolean isStraightLine(int opcode) {
+        switch (opcode) {
+            case Opcodes.ADD:
+            case Opcodes.SUB:
+            case Opcodes.READ:
+            case Opcodes.STORE:
+            case Opcodes.LDI:
+            case Opcodes.INC:
+            case Opcodes.MOVE_REG_REG:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Chamado pelo FunctionalCore na entrada de um bloco básico.
+     * Executa o bloco compilado do PC atual, se houver (compilando-o se acabou de ficar quente).
+     * @param regs O banco de registradores.
+     * @return Quantidade de instruções executadas pelo bloco compilado; 0 se o interpretador deve seguir.
+     */
+    public int execute(int[] regs) {
+        int pc = regs[FunctionalCore.PC];
+        Page page = page(pc);
+        int slot = pc & (PAGE_SIZE - 1);
+        Block block = page.blocks[slot];
+        if (block == null) {
+            if (++page.counters[slot] < threshold) {
+                return 0;
+            }
+            block = compile(pc);
+            if (block == null) {
+                page.counters[slot] = Integer.MIN_VALUE; // Não há o que compilar aqui: não conta mais (até uma escrita)
+                return 0;
+            }
+        }
+        block.code.run(regs, memory);
+        blockExecutions++;
+        compiledInstructions += block.instructions;
+        return block.instructions;
+    }
+
+    /**
+     * Retorna a página do endereço, alocando-a se for a primeira vez.
+     */
+    private Page page(int address) {
+        Page page = pages[address >>> PAGE_BITS];
+        if (page == null) {
+            page = new Page();
+            pages[address >>> PAGE_BITS] = page;
+            allocatedPages++;
+        }
+        return page;
+    }
+
+    /**
+     * Procura as instruções de linha reta a partir de `start` e compila o bloco.
+     * @return O bloco, ou null se a primeira instrução já não puder ser compilada.
+     */
+    private Block compile(int start) {
+        int limit = Math.min(memory.getMemorySize(), start + MAX_BLOCK_WORDS);
+        int pc = start;
+        int instructions = 0;
+        while (pc < limit) {
+            int opcode = memory.getData(pc);
+            if (!isStraightLine(opcode)) {
+                break;
+            }
+            int length = Opcodes.getInstructionSize(opcode);
+            if (pc + length > limit) {
+                break;
+            }
+            if (opcode == Opcodes.MOVE_REG_REG && !isCompilableMove(memory.getData(pc + 1), memory.getData(pc + 2))) {
+                break;
+            }
+            pc += length;
+            instructions++;
+            if (opcode == Opcodes.STORE) {
+                int target = memory.getData(pc - 1);
+                if (target >= pc && target < limit) {
+                    limit = target; // O store pode reescrever código adiante: o bloco não passa desse endereço
+                }
+            }
+        }
+        if (instructions == 0) {
+            return null;
+        }
+        int[] code = new int[pc - start];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = memory.getData(start + i);
+        }
+        Block block = new Block(start, pc, instructions, compiler.compile(code, start, pc));
+        page(start).blocks[start & (PAGE_SIZE - 1)] = block;
+        compiled.add(block);
+        for (int a = block.start; a < block.end; a++) {
+            page(a).coverage[a & (PAGE_SIZE - 1)]++;
+        }
+        compilations++;
+        return block;
+    }
+
+    /**
+     * Um move só fica no bloco se usar IDs válidos e não envolver PC nem IR:
+     * dentro do bloco esses dois só são atualizados na saída.
+     */
+    private static boolean isCompilableMove(int regA, int regB) {
+        return isCompilableRegister(regA) && isCompilableRegister(regB);
+    }
+
+    private static boolean isCompilableRegister(int id) {
+        return id >= 0 && id < FunctionalCore.REGISTER_COUNT && id != FunctionalCore.PC && id != FunctionalCore.IR;
+    }
+
+    /**
+     * Descarta os blocos compilados que contêm alguma das palavras escritas e zera os contadores
+     * das instruções que podem ter mudado, inclusive as marcadas como não compiláveis
+     * (um move pode ter sido recusado só pelos operandos, então a busca começa algumas palavras antes).
+     */
+    @Override
+    public void memoryWritten(int startAddress, int length) {
+        int end = (int) Math.min(size, (long) startAddress + length);
+        boolean covered = false;
+        for (int a = Math.max(0, startAddress - (MAX_INSTRUCTION_WORDS - 1)); a < end; a++) {
+            Page page = pages[a >>> PAGE_BITS];
+            if (page == null) {
+                a |= PAGE_SIZE - 1; // Página nunca executada: pula para a próxima
+                continue;
+            }
+            int slot = a & (PAGE_SIZE - 1);
+            page.counters[slot] = 0;
+            covered |= a >= startAddress && page.coverage[slot] != 0;
+        }
+        if (covered) {
+            invalidate(startAddress, startAddress + length);
+        }
+    }
+
+    private void invalidate(int start, int end) {
+        for (int i = compiled.size() - 1; i >= 0; i--) {
+            Block block = compiled.get(i);
+            if (block.start < end && block.end > start) {
+                compiled.remove(i);
+                Page page = pages[block.start >>> PAGE_BITS];
+                page.blocks[block.start & (PAGE_SIZE - 1)] = null;
+                page.counters[block.start & (PAGE_SIZE - 1)] = 0;
+                for (int a = block.start; a < block.end; a++) {
+                    pages[a >>> PAGE_BITS].coverage[a & (PAGE_SIZE - 1)]--;
+                }
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Desliga o motor da memória (não recebe mais avisos de escrita).
+     */
+    public void detach() {
+        memory.removeWriteListener(this);
+    }
+
+    public int getThreshold() { return threshold; }
+    public long getCompilations() { return compilations; }
+    public long getBlockExecutions() { return blockExecutions; }
+    public long getCompiledInstructions() { return compiledInstructions; }
+    public long getInvalidations() { return invalidations; }
+    public int getCompiledBlockCount() { return compiled.size(); }
+
+    /**
+     * @return Quantas páginas de PAGE_SIZE contadores já foram alocadas.
+     */
+    public int getAllocatedPages() { return allocatedPages; }
+}
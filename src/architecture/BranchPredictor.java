@@ -0,0 +1,36 @@
+package architecture;
+
+/**
+ * Interface dos preditores de desvio consultados pelo BranchProfiler a cada desvio condicional
+ * (jz, jn, jnz, jeq, jgt, jlw).
+ *
+ * Para cada desvio, o profiler chama predict() antes de executar a instrução e update() com o
+ * resultado real depois dela. O alvo é sempre conhecido na decodificação (é um operando da instrução).
+ */
+public interface BranchPredictor {
+
+    /**
+     * @param pc O endereço do desvio.
+     * @param target O endereço de destino, caso o desvio seja tomado.
+     * @return true se o preditor aposta que o desvio será tomado.
+     */
+    boolean predict(int pc, int target);
+
+    /**
+     * Informa o resultado real do desvio.
+     * @param pc O endereço do desvio.
+     * @param target O endereço de destino.
+     * @param taken true se o desvio foi tomado.
+     */
+    void update(int pc, int target, boolean taken);
+
+    /**
+     * Esquece todo o histórico aprendido.
+     */
+    void reset();
+
+    /**
+     * @return Um nome curto para relatórios (ex: "2-bit (1024)").
+     */
+    String getName();
+}
@@ -0,0 +1,162 @@
+package architecture;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import components.Memory;
+import components.Opcodes;
+
+/**
+ * Simula um preditor de desvios sobre a execução real: a cada desvio condicional (jz, jn, jnz,
+ * jeq, jgt, jlw) consulta o BranchPredictor antes da instrução, compara com o resultado depois
+ * dela e treina o preditor. As estatísticas são separadas por endereço do desvio.
+ *
+ * Uso: arch.addExecutionObserver(new BranchProfiler(arch.getMemory(), new TwoBitPredictor(1024))).
+ * Vários profilers podem observar a mesma execução para comparar preditores.
+ */
+public class BranchProfiler implements ExecutionObserver {
+
+    /**
+     * Estatísticas de um desvio.
+     */
+    public static final class Site {
+        private long executions;
+        private long taken;
+        private long mispredictions;
+
+        public long getExecutions() { return executions; }
+        public long getTaken() { return taken; }
+        public long getMispredictions() { return mispredictions; }
+
+        /**
+         * @return A fração de previsões corretas (1 se o desvio nunca executou).
+         */
+        public double getAccuracy() {
+            return executions == 0 ? 1 : 1 - (double) mispredictions / executions;
+        }
+    }
+
+    private final Memory memory;
+    private final BranchPredictor predictor;
+    private final Map<Integer, Site> sites = new TreeMap<>();
+
+    // Desvio em andamento (site == null quando a instrução atual não é um desvio condicional)
+    private Site site;
+    private int currentPC;
+    private int currentTarget;
+    private int fallThrough;
+    private boolean prediction;
+
+    private long branches;
+    private long mispredictions;
+
+    /**
+     * @param memory A memória de onde as instruções são lidas.
+     * @param predictor O preditor simulado.
+     */
+    public BranchProfiler(Memory memory, BranchPredictor predictor) {
+        this.memory = memory;
+        this.predictor = predictor;
+    }
+
+    @Override
+    public void beginInstruction(int pc, int[] registers) {
+        site = null;
+        int opcode = memory.getData(pc);
+        int targetOffset;
+        switch (opcode) {
+            case Opcodes.JZ:
+            case Opcodes.JN:
+            case Opcodes.JNZ:
+                targetOffset = 1;
+                break;
+            case Opcodes.JEQ:
+            case Opcodes.JGT:
+            case Opcodes.JLW:
+                targetOffset = 3;
+                break;
+            default:
+                return;
+        }
+        if (pc + targetOffset >= memory.getMemorySize()) {
+            return;
+        }
+        currentPC = pc;
+        currentTarget = memory.getData(pc + targetOffset);
+        fallThrough = pc + Opcodes.getInstructionSize(opcode);
+        prediction = predictor.predict(pc, currentTarget);
+        site = sites.computeIfAbsent(pc, key -> new Site());
+    }
+
+    @Override
+    public void endInstruction(int[] registers) {
+        if (site == null) {
+            return;
+        }
+        boolean taken = registers[FunctionalCore.PC] != fallThrough;
+        site.executions++;
+        branches++;
+        if (taken) {
+            site.taken++;
+        }
+        if (taken != prediction) {
+            site.mispredictions++;
+            mispredictions++;
+        }
+        predictor.update(currentPC, currentTarget, taken);
+        site = null;
+    }
+
+    /**
+     * Zera as estatísticas e o histórico do preditor.
+     */
+    public void reset() {
+        sites.clear();
+        site = null;
+        branches = 0;
+        mispredictions = 0;
+        predictor.reset();
+    }
+
+    public BranchPredictor getPredictor() { return predictor; }
+    public long getBranchCount() { return branches; }
+    public long getMispredictions() { return mispredictions; }
+
+    /**
+     * @return A fração de previsões corretas em todos os desvios (1 se nenhum executou).
+     */
+    public double getAccuracy() {
+        return branches == 0 ? 1 : 1 - (double) mispredictions / branches;
+    }
+
+    /**
+     * @return As estatísticas por endereço de desvio, em ordem de endereço (somente leitura).
+     */
+    public Map<Integer, Site> getSites() {
+        return Collections.unmodifiableMap(sites);
+    }
+
+    /**
+     * @param pc O endereço do desvio.
+     * @return As estatísticas do desvio, ou null se ele nunca executou.
+     */
+    public Site getSite(int pc) {
+        return sites.get(pc);
+    }
+
+    /**
+     * @return Um resumo por desvio, pronto para ser impresso.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("----- Preditor de desvios: ").append(predictor.getName()).append(" -----\n");
+        sb.append(String.format("Desvios: %d, erros: %d, acerto: %.2f%%%n", branches, mispredictions, 100 * getAccuracy()));
+        for (Map.Entry<Integer, Site> entry : sites.entrySet()) {
+            Site s = entry.getValue();
+            sb.append(String.format("  pc %4d: %d execuções, %d tomados, %d erros (%.2f%%)%n", entry.getKey(),
+                    s.executions, s.taken, s.mispredictions, 100 * s.getAccuracy()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package architecture;
+
+import java.util.Arrays;
+
+/**
+ * Branch target buffer de mapeamento direto, consultado na busca da instrução: cada entrada guarda
+ * o PC do desvio (tag), o destino e um contador de 2 bits. Sem entrada para o PC, a busca segue
+ * em frente (previsão "não tomado"); a entrada é criada no primeiro desvio tomado.
+ */
+public class BranchTargetBuffer implements BranchPredictor {
+
+    private final int[] tags;
+    private final int[] targets;
+    private final byte[] counters;
+    private final int mask;
+    private long hits;
+    private long lookups;
+
+    /**
+     * @param entries Quantidade de entradas (potência de 2).
+     */
+    public BranchTargetBuffer(int entries) {
+        mask = TwoBitPredictor.checkEntries(entries) - 1;
+        tags = new int[entries];
+        targets = new int[entries];
+        counters = new byte[entries];
+        reset();
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        int i = pc & mask;
+        lookups++;
+        if (tags[i] != pc) {
+            return false;
+        }
+        hits++;
+        return counters[i] >= 2;
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+        int i = pc & mask;
+        if (tags[i] != pc) {
+            if (!taken) {
+                return; // Só desvios tomados ocupam o buffer
+            }
+            tags[i] = pc;
+            counters[i] = (byte) TwoBitPredictor.WEAKLY_NOT_TAKEN;
+        }
+        counters[i] = (byte) TwoBitPredictor.train(counters[i], taken);
+        if (taken) {
+            targets[i] = target;
+        }
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(tags, -1);
+        Arrays.fill(targets, 0);
+        Arrays.fill(counters, (byte) 0);
+        hits = 0;
+        lookups = 0;
+    }
+
+    @Override
+    public String getName() {
+        return "BTB (" + tags.length + ")";
+    }
+
+    public long getHits() { return hits; }
+    public long getLookups() { return lookups; }
+
+    /**
+     * @param pc O endereço do desvio.
+     * @return O destino guardado para o desvio, ou -1 se ele não está no buffer.
+     */
+    public int getTarget(int pc) {
+        return tags[pc & mask] == pc ? targets[pc & mask] : -1;
+    }
+}
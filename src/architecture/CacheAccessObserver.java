@@ -0,0 +1,63 @@
+package architecture;
+
+import components.CacheHierarchy;
+import components.Memory;
+import components.Opcodes;
+
+/**
+ * Leva os acessos à memória do modo FUNCTIONAL para a CacheHierarchy. O FunctionalCore lê a memória
+ * com getData()/setData(), que não passam pela cache; este observador gera os mesmos acessos que os
+ * microprogramas fazem com read()/store(): as palavras da instrução e o dado lido ou escrito.
+ */
+class CacheAccessObserver implements ExecutionObserver {
+
+    private final Memory memory;
+    private final CacheHierarchy caches;
+
+    private int currentOpcode;
+    private int dataAddress;   // Endereço do dado lido ou escrito pela instrução (-1 se nenhum)
+
+    CacheAccessObserver(Memory memory, CacheHierarchy caches) {
+        this.memory = memory;
+        this.caches = caches;
+    }
+
+    @Override
+    public void beginInstruction(int pc, int[] registers) {
+        currentOpcode = memory.getData(pc);
+        int size = Math.max(1, Opcodes.getInstructionSize(currentOpcode));
+        for (int a = pc; a < pc + size && a < memory.getMemorySize(); a++) {
+            caches.access(a, false);
+        }
+        dataAddress = -1;
+        switch (currentOpcode) {
+            case Opcodes.ADD:
+            case Opcodes.SUB:
+            case Opcodes.READ:
+            case Opcodes.STORE:
+                if (pc + 1 < memory.getMemorySize()) {
+                    dataAddress = memory.getData(pc + 1);
+                }
+                break;
+            case Opcodes.RET:
+                dataAddress = registers[FunctionalCore.STK_TOP]; // Desempilha o endereço de retorno
+                break;
+            default:
+                break;
+        }
+        if (dataAddress >= 0 && dataAddress < memory.getMemorySize() && currentOpcode != Opcodes.STORE) {
+            caches.access(dataAddress, false);
+        }
+    }
+
+    @Override
+    public void endInstruction(int[] registers) {
+        if (currentOpcode == Opcodes.STORE && dataAddress >= 0 && dataAddress < memory.getMemorySize()) {
+            caches.access(dataAddress, true);
+        } else if (currentOpcode == Opcodes.CALL) {
+            caches.access(registers[FunctionalCore.STK_TOP], true); // Empilha o endereço de retorno
+        }
+    }
+
+    CacheHierarchy getCacheHierarchy() { return caches; }
+}
@@ -0,0 +1,19 @@
+package architecture;
+
+import components.Memory;
+
+/**
+ * Bloco básico compilado pelo BlockJit para bytecode da JVM.
+ * Executa em linha reta todas as instruções do bloco sobre o banco de registradores do FunctionalCore
+ * e, no fim, deixa o PC apontando para a instrução que encerrou o bloco (que volta para o interpretador).
+ * Se um acesso à memória lançar exceção, as instruções anteriores do bloco já foram aplicadas e o PC
+ * aponta para a instrução que falhou, como no interpretador.
+ */
+public interface CompiledBlock {
+
+    /**
+     * @param registers O banco de registradores (IDs de FunctionalCore).
+     * @param memory A memória principal.
+     */
+    void run(int[] registers, Memory memory);
+}
@@ -0,0 +1,244 @@
+package architecture;
+
+import java.util.Arrays;
+
+import components.Memory;
+import components.MemoryWriteListener;
+import components.Opcodes;
+
+/**
+ * Cache de pré-decodificação: transforma cada endereço da memória em uma DecodedInstruction
+ * uma única vez, evitando refazer fetch, decodificação e leitura de parâmetros nos laços quentes.
+ *
+ * A cache observa a memória (MemoryWriteListener) e descarta qualquer entrada cujas palavras
+ * (opcode ou parâmetros) sejam sobrescritas por `store()`, `setData()` ou `load()`.
+ * Escritas feitas diretamente em `Memory.getDataList()` não são vistas; quem fizer isso
+ * depois de executar deve chamar `invalidateAll()`.
+ *
+ * Quando há handlers de superinstruções, sequências como `ldi x; store a` (ver Fusion) viram uma
+ * única entrada no endereço da primeira instrução. Um desvio para o meio da sequência continua
+ * funcionando: cada endereço tem a sua própria entrada. A fusão pode ser desligada com
+ * setFusionEnabled(false) quando a execução precisa ser vista instrução por instrução.
+ *
+ * As entradas ficam em páginas de PAGE_SIZE endereços, alocadas na primeira decodificação dentro
+ * delas: criar a cache custa só a tabela de páginas, mesmo com memórias de milhões de palavras
+ * (ex: os filhos de Architecture.fork()), e só as regiões executadas ocupam memória.
+ */
+public class DecodeCache implements MemoryWriteListener {
+
+    private static final int MAX_ENTRY_SIZE = 6; // read a; add b; store c (jeq/jgt/jlw sozinhas ocupam 4)
+    private static final int[] NO_OPERANDS = new int[0];
+    private static final Fusion[] FUSIONS = Fusion.values();
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS; // Endereços por página de entradas
+
+    private final Memory memory;
+    private final int size; // Quantidade de endereços da memória
+    private final DecodedInstruction[][] pages; // Uma entrada por endereço (página ou entrada null = ainda não decodificado)
+    private int allocatedPages;
+    private final InstructionHandler[] handlers; // Handler de cada opcode
+    private final InstructionHandler[] fusedHandlers; // Handler de cada Fusion (pelo ordinal), ou null sem fusão
+    private boolean fusionEnabled = true;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+    private final long[] fusionCounts = new long[FUSIONS.length]; // Execuções de cada superinstrução
+
+    /**
+     * @param memory A memória de onde as instruções são lidas (a cache se registra como observadora).
+     * @param handlers Tabela indexada por opcode com o handler de cada instrução.
+     */
+    public DecodeCache(Memory memory, InstructionHandler[] handlers) {
+        this(memory, handlers, null);
+    }
+
+    /**
+     * @param memory A memória de onde as instruções são lidas (a cache se registra como observadora).
+     * @param handlers Tabela indexada por opcode com o handler de cada instrução.
+     * @param fusedHandlers Tabela indexada por Fusion.ordinal() com os handlers das superinstruções
+     *                      (null, ou uma posição null, desliga a fusão correspondente).
+     */
+    public DecodeCache(Memory memory, InstructionHandler[] handlers, InstructionHandler[] fusedHandlers) {
+        this.memory = memory;
+        this.handlers = handlers;
+        this.fusedHandlers = fusedHandlers;
+        this.size = memory.getMemorySize();
+        this.pages = new DecodedInstruction[(int) (((long) size + PAGE_SIZE - 1) >>> PAGE_BITS)][];
+        memory.addWriteListener(this);
+    }
+
+    /**
+     * Retorna a instrução decodificada do endereço, decodificando-a se for a primeira vez.
+     * @param address Endereço do opcode (normalmente o PC).
+     * @return A instrução decodificada.
+     * @throws IndexOutOfBoundsException Se o endereço (ou algum parâmetro) estiver fora da memória.
+     */
+    public DecodedInstruction lookup(int address) {
+        if (address < 0 || address >= size) {
+            throw new IndexOutOfBoundsException("Memory read error: Address " + address + " is out of bounds [0, " + (size - 1) + "]");
+        }
+        DecodedInstruction[] page = pages[address >>> PAGE_BITS];
+        DecodedInstruction entry = page == null ? null : page[address & (PAGE_SIZE - 1)];
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+            entry = decode(address);
+            if (page == null) {
+                page = new DecodedInstruction[PAGE_SIZE];
+                pages[address >>> PAGE_BITS] = page;
+                allocatedPages++;
+            }
+            page[address & (PAGE_SIZE - 1)] = entry;
+        }
+        if (entry.getFusion() != null) {
+            fusionCounts[entry.getFusion().ordinal()]++;
+        }
+        return entry;
+    }
+
+    /**
+     * Lê o opcode e os parâmetros da memória e monta a entrada.
+     * Opcodes desconhecidos geram uma entrada sem handler e sem operandos.
+     */
+    private DecodedInstruction decode(int address) {
+        if (fusedHandlers != null && fusionEnabled) {
+            DecodedInstruction fused = decodeFused(address);
+            if (fused != null) {
+                return fused;
+            }
+        }
+        int opcode = memory.getData(address);
+        int size = Opcodes.getInstructionSize(opcode);
+        if (size < 0) {
+            return new DecodedInstruction(address, opcode, NO_OPERANDS, null);
+        }
+        int[] operands = size == 1 ? NO_OPERANDS : new int[size - 1];
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = memory.getData(address + 1 + i);
+        }
+        return new DecodedInstruction(address, opcode, operands, handlers[opcode]);
+    }
+
+    /**
+     * Tenta montar uma superinstrução a partir do endereço.
+     * @return A entrada fundida, ou null se nenhuma sequência conhecida (e com handler) começar ali.
+     */
+    private DecodedInstruction decodeFused(int address) {
+        int[] operands = new int[MAX_ENTRY_SIZE];
+        candidates:
+        for (Fusion fusion : FUSIONS) {
+            InstructionHandler handler = fusion.ordinal() < fusedHandlers.length ? fusedHandlers[fusion.ordinal()] : null;
+            if (handler == null) {
+                continue;
+            }
+            int pc = address;
+            int count = 0;
+            for (int k = 0; k < fusion.getInstructionCount(); k++) {
+                int opcode = fusion.getOpcode(k);
+                int size = Opcodes.getInstructionSize(opcode);
+                if (pc + size > this.size || memory.getData(pc) != opcode) {
+                    continue candidates;
+                }
+                for (int p = 1; p < size; p++) {
+                    operands[count++] = memory.getData(pc + p);
+                }
+                pc += size;
+            }
+            return new DecodedInstruction(address, fusion.getOpcode(0), Arrays.copyOf(operands, count), pc, handler, fusion);
+        }
+        return null;
+    }
+
+    /**
+     * Descarta as entradas que contêm alguma das palavras escritas.
+     * Uma entrada começa no máximo MAX_ENTRY_SIZE - 1 palavras antes do endereço escrito.
+     */
+    @Override
+    public void memoryWritten(int startAddress, int length) {
+        int end = startAddress + length; // exclusivo
+        int first = Math.max(0, startAddress - (MAX_ENTRY_SIZE - 1));
+        int last = Math.min(size, end);
+        for (int a = first; a < last; a++) {
+            DecodedInstruction[] page = pages[a >>> PAGE_BITS];
+            if (page == null) {
+                a |= PAGE_SIZE - 1; // Página sem entradas: pula para a próxima
+                continue;
+            }
+            DecodedInstruction entry = page[a & (PAGE_SIZE - 1)];
+            if (entry != null && entry.getNextPC() > startAddress) {
+                page[a & (PAGE_SIZE - 1)] = null;
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Liga ou desliga a fusão (ligada por padrão, se houver handlers de superinstruções).
+     * Desligar descarta as entradas fundidas; ligar descarta todas, para que as sequências sejam fundidas de novo.
+     * @param enabled true para fundir.
+     */
+    public void setFusionEnabled(boolean enabled) {
+        if (enabled == fusionEnabled) {
+            return;
+        }
+        fusionEnabled = enabled;
+        if (enabled) {
+            invalidateAll();
+            return;
+        }
+        for (DecodedInstruction[] page : pages) {
+            if (page == null) {
+                continue;
+            }
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                if (page[i] != null && page[i].getFusion() != null) {
+                    page[i] = null;
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    public boolean isFusionEnabled() { return fusionEnabled; }
+
+    /**
+     * Descarta todas as entradas.
+     */
+    public void invalidateAll() {
+        for (DecodedInstruction[] page : pages) {
+            if (page == null) {
+                continue;
+            }
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                if (page[i] != null) {
+                    page[i] = null;
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Desliga a cache da memória (não recebe mais avisos de escrita).
+     */
+    public void detach() {
+        memory.removeWriteListener(this);
+    }
+
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getInvalidations() { return invalidations; }
+
+    /**
+     * @return Quantas páginas de PAGE_SIZE entradas já foram alocadas.
+     */
+    public int getAllocatedPages() { return allocatedPages; }
+
+    /**
+     * @param fusion A superinstrução.
+     * @return Quantas vezes ela foi executada (cada lookup de uma entrada fundida conta uma vez).
+     */
+    public long getFusionCount(Fusion fusion) { return fusionCounts[fusion.ordinal()]; }
+}
@@ -0,0 +1,51 @@
+package architecture;
+
+/**
+ * Uma instrução da memória já decodificada: opcode, operandos lidos, tamanho em palavras,
+ * endereço da próxima instrução e o handler que a executa.
+ * É imutável; quando a memória da instrução é alterada a DecodeCache descarta a entrada.
+ * Uma entrada também pode representar uma superinstrução (ver Fusion): nesse caso o opcode é o da
+ * primeira instrução, os operandos são os de todas elas, em ordem, e o próximo PC vem depois da última.
+ */
+public final class DecodedInstruction {
+
+    private final int address;   // Endereço do opcode na memória
+    private final int opcode;
+    private final int[] operands; // Parâmetros que seguem o opcode (endereços, imediatos ou IDs de registradores)
+    private final int nextPC;     // address + tamanho da instrução
+    private final InstructionHandler handler; // null se o opcode não for reconhecido
+    private final Fusion fusion;  // null para uma instrução simples
+
+    public DecodedInstruction(int address, int opcode, int[] operands, InstructionHandler handler) {
+        this(address, opcode, operands, address + 1 + operands.length, handler, null);
+    }
+
+    public DecodedInstruction(int address, int opcode, int[] operands, int nextPC, InstructionHandler handler, Fusion fusion) {
+        this.address = address;
+        this.opcode = opcode;
+        this.operands = operands;
+        this.nextPC = nextPC;
+        this.handler = handler;
+        this.fusion = fusion;
+    }
+
+    public int getAddress() { return address; }
+    public int getOpcode() { return opcode; }
+    public int getOperand(int index) { return operands[index]; }
+    public int getOperandCount() { return operands.length; }
+    public int getLength() { return nextPC - address; }
+    public int getNextPC() { return nextPC; }
+    public InstructionHandler getHandler() { return handler; }
+    public Fusion getFusion() { return fusion; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(address).append(": ");
+        sb.append(fusion != null ? fusion.name() : String.valueOf(opcode));
+        for (int operand : operands) {
+            sb.append(' ').append(operand);
+        }
+        return sb.toString();
+    }
+}
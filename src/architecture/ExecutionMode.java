@@ -0,0 +1,18 @@
+package architecture;
+
+/**
+ * Forma como a Architecture executa os programas.
+ */
+public enum ExecutionMode {
+    /**
+     * Cada instrução é executada pelo seu microprograma, movendo os valores pelos barramentos,
+     * ULA e registradores (modo didático, mostra o fluxo de dados).
+     */
+    MICROCODED,
+
+    /**
+     * A mesma ISA executada diretamente sobre um banco de registradores int[] e as palavras da memória,
+     * sem os micro-passos de barramento. Muito mais rápido; ideal para rodar baterias de programas.
+     */
+    FUNCTIONAL
+}
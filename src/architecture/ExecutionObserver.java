@@ -0,0 +1,24 @@
+package architecture;
+
+/**
+ * Observador da execução, avisado antes e depois de cada instrução
+ * (pela Architecture e pelo FunctionalCore). Usado por TraceRecorder, PipelineModel e BranchProfiler.
+ *
+ * Os arrays de registradores seguem a ordem de registersList (RPG, RPG1, PC, IR, Flags, StkTOP, StkBOT)
+ * e pertencem a quem chama: o observador deve copiar o que quiser guardar.
+ */
+public interface ExecutionObserver {
+
+    /**
+     * Chamado antes de executar a instrução apontada por `pc`.
+     * @param pc O endereço da instrução.
+     * @param registers Os valores atuais dos registradores.
+     */
+    void beginInstruction(int pc, int[] registers);
+
+    /**
+     * Chamado depois de executar a instrução.
+     * @param registers Os valores dos registradores após a instrução.
+     */
+    void endInstruction(int[] registers);
+}
@@ -0,0 +1,369 @@
+package architecture;
+
+import java.util.Arrays;
+import java.util.List;
+
+import components.CycleCounter;
+import components.Instrumentation;
+import components.Memory;
+import components.Opcodes;
+import components.Register;
+
+/**
+ * Núcleo de execução funcional: executa a ISA diretamente sobre um banco de registradores int[]
+ * (mesmos IDs da registersList da Architecture) e as palavras da memória, sem barramentos nem ULA.
+ *
+ * Segue a ISA como o Assembler a codifica (os operandos de uma instrução ficam em palavras consecutivas),
+ * como os microprogramas da Architecture: o estado final (PC, RPG, RPG1, Flags, StkTOP e memória) é o
+ * mesmo do modo microprogramado. Só os valores intermediários deixados nos barramentos, na ULA e na
+ * statusMemory não existem aqui. A pré-decodificação (Architecture.setPredecodeEnabled()) e o BlockJit
+ * seguem as mesmas regras deste núcleo.
+ * A memória é acessada com getData()/setData() (busca da instrução e operandos) e readData()/writeData()
+ * (dados), de modo que os observadores de escrita (ex: DecodeCache) continuam sendo avisados e os
+ * watchpoints da memória são checados.
+ */
+public class FunctionalCore {
+
+    // IDs dos registradores (mesma ordem de Architecture.fillRegistersList())
+    public static final int RPG = 0;
+    public static final int RPG1 = 1;
+    public static final int PC = 2;
+    public static final int IR = 3;
+    public static final int FLAGS = 4;
+    public static final int STK_TOP = 5;
+    public static final int STK_BOT = 6;
+    public static final int REGISTER_COUNT = 7;
+
+    private static final int ZERO_FLAG = 1;     // bit 0 de Flags
+    private static final int NEGATIVE_FLAG = 2; // bit 1 de Flags
+
+    private final int[] regs = new int[REGISTER_COUNT];
+    private final Memory memory;
+    private final int memorySize;
+
+    // Endereços reservados do IMUL (definidos pela Architecture)
+    private final int imulMicroprogramStart;
+    private final int imulRegsSaveAreaStart;
+    private final int imulOp1TempAddr;
+    private final int imulOp2TempAddr;
+    private final int imulReturnPcSaveAddr;
+
+    private boolean halt;
+    private BlockJit jit; // Tier de blocos compilados (null = só interpretador)
+    private long instructionCount;
+    private long instructionLimit; // 0 = sem limite (ver Architecture.setInstructionLimit())
+    private int instructionPC; // Endereço da instrução em execução (o PC de r[] já pode ter avançado)
+    private ExecutionObserver[] observers = new ExecutionObserver[0]; // Vazio = laço rápido
+    private CycleCounter cycleCounter; // Modelo de ciclos (null = desligado)
+
+    public FunctionalCore(Architecture arch) {
+        this.memory = arch.getMemory();
+        this.memorySize = arch.getMemorySize();
+        this.imulMicroprogramStart = arch.getImulMicroprogramStartAddress();
+        this.imulRegsSaveAreaStart = arch.getImulRegistersSaveAreaStart();
+        this.imulOp1TempAddr = arch.getImulOp1TempAddr();
+        this.imulOp2TempAddr = arch.getImulOp2TempAddr();
+        this.imulReturnPcSaveAddr = arch.getImulReturnPcSaveAddr();
+    }
+
+    /**
+     * @return O banco de registradores (indexado pelos IDs RPG, RPG1, PC...).
+     */
+    public int[] getRegisterFile() { return regs; }
+
+    public boolean isHalted() { return halt; }
+
+    /**
+     * @return Quantidade de instruções executadas pela última run() (interpretadas e compiladas).
+     */
+    public long getInstructionCount() { return instructionCount; }
+
+    /**
+     * @param limit Máximo de instruções por run() (0 = sem limite). Passar do limite sem HALT
+     *              lança IllegalStateException.
+     */
+    public void setInstructionLimit(long limit) { this.instructionLimit = limit; }
+
+    /**
+     * @return O endereço da última instrução iniciada por step().
+     */
+    public int getInstructionPC() { return instructionPC; }
+
+    /**
+     * Liga o tier de blocos compilados: os blocos básicos que passam do limiar de execuções
+     * são compilados para bytecode e executados em linha reta.
+     * @param jit O motor de tiering, ou null para usar só o interpretador.
+     */
+    public void setBlockJit(BlockJit jit) { this.jit = jit; }
+
+    /**
+     * Liga a contagem de ciclos: cada instrução executada é cobrada com as micro-operações do seu
+     * microprograma (CycleCounter.chargeInstruction()). Enquanto houver contador, cada instrução é
+     * interpretada individualmente (os blocos compilados não são usados).
+     * @param counter O contador, ou null para desligar.
+     */
+    public void setCycleCounter(CycleCounter counter) { this.cycleCounter = counter; }
+    public BlockJit getBlockJit() { return jit; }
+
+    /**
+     * Registra um observador da execução (trace, modelo de pipeline, ...). Enquanto houver observadores,
+     * cada instrução é interpretada individualmente (os blocos compilados não são usados).
+     * @param observer O observador.
+     */
+    public void addObserver(ExecutionObserver observer) {
+        ExecutionObserver[] grown = Arrays.copyOf(observers, observers.length + 1);
+        grown[observers.length] = observer;
+        observers = grown;
+    }
+
+    /**
+     * Remove um observador registrado com addObserver().
+     * @param observer O observador.
+     */
+    public void removeObserver(ExecutionObserver observer) {
+        for (int i = 0; i < observers.length; i++) {
+            if (observers[i] == observer) {
+                ExecutionObserver[] shrunk = new ExecutionObserver[observers.length - 1];
+                System.arraycopy(observers, 0, shrunk, 0, i);
+                System.arraycopy(observers, i + 1, shrunk, i, observers.length - i - 1);
+                observers = shrunk;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copia os valores dos objetos Register para o banco de registradores.
+     * @param registers A registersList da Architecture.
+     */
+    public void loadRegisters(List<Register> registers) {
+        for (int id = 0; id < REGISTER_COUNT; id++) {
+            regs[id] = registers.get(id).getData();
+        }
+    }
+
+    /**
+     * Copia o banco de registradores de volta para os objetos Register.
+     * @param registers A registersList da Architecture.
+     */
+    public void storeRegisters(List<Register> registers) {
+        for (int id = 0; id < REGISTER_COUNT; id++) {
+            registers.get(id).setData(regs[id]);
+        }
+    }
+
+    /**
+     * Executa instruções a partir do PC atual até um HALT, um opcode desconhecido
+     * ou o PC sair da memória.
+     */
+    public void run() {
+        halt = false;
+        instructionCount = 0;
+        if (observers.length != 0 || cycleCounter != null || memory.hasWatchpoints() || Instrumentation.isEnabled()) {
+            runObserved(); // Os blocos compilados não checam watchpoints, não contam ciclos nem geram eventos de instrumentação
+            return;
+        }
+        boolean blockEntry = true; // PC no início de um bloco básico (início da execução ou após um desvio)
+        while (!halt) {
+            int compiled = blockEntry && jit != null ? jit.execute(regs) : 0;
+            if (compiled != 0) {
+                // Bloco compilado executado: o PC aponta para a instrução que o encerrou,
+                // que é sempre executada pelo interpretador (saída lateral)
+                instructionCount += compiled;
+                blockEntry = true;
+            } else {
+                blockEntry = !BlockJit.isStraightLine(step());
+                instructionCount++;
+            }
+            checkPC();
+            checkLimit();
+        }
+    }
+
+    /**
+     * Mesmo laço de run(), uma instrução por vez, avisando os observadores e cobrando os ciclos.
+     */
+    private void runObserved() {
+        ExecutionObserver[] current = observers;
+        CycleCounter counter = cycleCounter;
+        while (!halt) {
+            for (ExecutionObserver observer : current) {
+                observer.beginInstruction(regs[PC], regs);
+            }
+            int opcode = step();
+            instructionCount++;
+            if (counter != null) {
+                counter.chargeInstruction(opcode);
+            }
+            for (ExecutionObserver observer : current) {
+                observer.endInstruction(regs);
+            }
+            checkPC();
+            checkLimit();
+        }
+    }
+
+    private void checkLimit() {
+        if (instructionLimit != 0 && !halt && instructionCount >= instructionLimit) {
+            throw new IllegalStateException("Limite de " + instructionLimit + " instruções excedido sem HALT (PC = "
+                    + regs[PC] + ").");
+        }
+    }
+
+    private void checkPC() {
+        if (regs[PC] < 0 || regs[PC] >= memorySize) {
+            System.err.println("Erro: Program Counter fora dos limites da memória: " + regs[PC] + ". Parando CPU.");
+            halt = true;
+        }
+    }
+
+    /**
+     * Executa a instrução apontada pelo PC (fetch, decodificação e execução em um só passo).
+     * @return O opcode executado.
+     */
+    public int step() {
+        final int[] r = regs;
+        int pc = r[PC];
+        instructionPC = pc;
+        int opcode = memory.getData(pc);
+        r[IR] = opcode;
+        switch (opcode) {
+            case Opcodes.ADD:
+                r[RPG] = setFlags(r[RPG] + memory.readData(memory.getData(pc + 1)));
+                r[PC] = pc + 2;
+                break;
+            case Opcodes.SUB:
+                r[RPG] = setFlags(r[RPG] - memory.readData(memory.getData(pc + 1)));
+                r[PC] = pc + 2;
+                break;
+            case Opcodes.JMP:
+                r[PC] = memory.getData(pc + 1);
+                break;
+            case Opcodes.JZ:
+                r[PC] = (r[FLAGS] & ZERO_FLAG) != 0 ? memory.getData(pc + 1) : pc + 2;
+                break;
+            case Opcodes.JN:
+                r[PC] = (r[FLAGS] & NEGATIVE_FLAG) != 0 ? memory.getData(pc + 1) : pc + 2;
+                break;
+            case Opcodes.READ:
+                r[RPG] = memory.readData(memory.getData(pc + 1));
+                r[PC] = pc + 2;
+                break;
+            case Opcodes.STORE:
+                memory.writeData(memory.getData(pc + 1), r[RPG]);
+                r[PC] = pc + 2;
+                break;
+            case Opcodes.LDI:
+                r[RPG] = memory.getData(pc + 1);
+                r[PC] = pc + 2;
+                break;
+            case Opcodes.INC:
+                r[RPG] = setFlags(r[RPG] + 1);
+                r[PC] = pc + 1;
+                break;
+            case Opcodes.MOVE_REG_REG: {
+                int regA = registerId(memory.getData(pc + 1));
+                int regB = registerId(memory.getData(pc + 2));
+                r[PC] = pc + 3;
+                r[regB] = r[regA]; // regB <- regA (mesma ordem do microprograma moveRegReg)
+                break;
+            }
+            case Opcodes.JNZ:
+                r[PC] = (r[FLAGS] & ZERO_FLAG) == 0 ? memory.getData(pc + 1) : pc + 2;
+                break;
+            case Opcodes.JEQ:
+            case Opcodes.JGT:
+            case Opcodes.JLW: {
+                int diff = r[registerId(memory.getData(pc + 1))] - r[registerId(memory.getData(pc + 2))];
+                int target = memory.getData(pc + 3);
+                setFlags(diff);
+                boolean taken = opcode == Opcodes.JEQ ? diff == 0
+                              : opcode == Opcodes.JGT ? diff > 0
+                              : diff < 0;
+                r[PC] = taken ? target : pc + 4;
+                break;
+            }
+            case Opcodes.CALL: {
+                int target = memory.getData(pc + 1);
+                r[STK_TOP]--;
+                memory.writeData(r[STK_TOP], pc + 2); // Empilha o endereço de retorno
+                r[PC] = target;
+                break;
+            }
+            case Opcodes.RET:
+                if (r[STK_TOP] == r[STK_BOT]) {
+                    throw new IllegalStateException("Stack underflow: pilha vazia.");
+                }
+                r[PC] = memory.readData(r[STK_TOP]);
+                r[STK_TOP]++;
+                break;
+            case Opcodes.IMUL:
+                imul(pc);
+                break;
+            case Opcodes.HALT:
+                halt = true;
+                System.out.println("Instrução HALT executada. Simulação finalizada.");
+                break;
+            default:
+                System.err.println("Erro: Comando não reconhecido em IR: " + opcode + ". Parando simulação.");
+                halt = true;
+                break;
+        }
+        return opcode;
+    }
+
+    /**
+     * Mesmo protocolo do microprograma imul(): salva o contexto, passa os operandos pelos endereços
+     * temporários, guarda o PC de retorno e desvia para o microprograma IMUL.
+     */
+    private void imul(int pc) {
+        final int[] r = regs;
+        int valA = r[registerId(memory.getData(pc + 1))];
+        int valB = r[registerId(memory.getData(pc + 2))];
+        r[PC] = pc + 3;
+
+        int save = imulRegsSaveAreaStart;
+        memory.writeData(save, r[RPG]);
+        memory.writeData(save + 1, r[RPG1]);
+        memory.writeData(save + 2, r[PC]);
+        memory.writeData(save + 3, r[IR]);
+        memory.writeData(save + 4, r[FLAGS]);
+        memory.writeData(save + 5, r[STK_TOP]);
+        System.out.println("Contexto salvo em: " + save + " (RPG, RPG1, PC, IR, Flags, StkTOP)");
+
+        memory.writeData(imulOp1TempAddr, valA);
+        memory.writeData(imulOp2TempAddr, valB);
+        memory.writeData(imulReturnPcSaveAddr, r[PC]);
+        r[PC] = imulMicroprogramStart;
+    }
+
+    private int setFlags(int result) {
+        return setStatusFlags(regs, result);
+    }
+
+    /**
+     * Atualiza os bits Zero e Negativo de Flags (como Architecture.setStatusFlags()).
+     * Público porque também é chamado pelo código gerado pelo BlockCompiler.
+     * @param regs O banco de registradores.
+     * @param result O resultado da operação.
+     * @return O próprio resultado, para encadear a atribuição.
+     */
+    public static int setStatusFlags(int[] regs, int result) {
+        int flags = regs[FLAGS] & ~(ZERO_FLAG | NEGATIVE_FLAG);
+        if (result == 0) {
+            flags |= ZERO_FLAG;
+        }
+        if (result < 0) {
+            flags |= NEGATIVE_FLAG;
+        }
+        regs[FLAGS] = flags;
+        return result;
+    }
+
+    private static int registerId(int id) {
+        if (id < 0 || id >= REGISTER_COUNT) {
+            throw new IllegalArgumentException("ID de registrador inválido: " + id + ". Registradores disponíveis: " + REGISTER_COUNT);
+        }
+        return id;
+    }
+}
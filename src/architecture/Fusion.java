@@ -0,0 +1,33 @@
+package architecture;
+
+import components.Opcodes;
+
+/**
+ * Superinstruções: sequências de opcodes frequentes que a DecodeCache junta em uma única entrada,
+ * executada com um só despacho e uma só atualização do PC.
+ * Todas terminam em store, de modo que nenhuma escrita acontece antes da última instrução
+ * e a sequência não pode alterar o próprio código no meio do caminho.
+ */
+public enum Fusion {
+
+    LDI_STORE(Opcodes.LDI, Opcodes.STORE),                    // ldi x; store a
+    READ_ADD_STORE(Opcodes.READ, Opcodes.ADD, Opcodes.STORE), // read a; add b; store c
+    READ_INC_STORE(Opcodes.READ, Opcodes.INC, Opcodes.STORE); // read a; inc; store c
+
+    private final int[] opcodes;
+
+    Fusion(int... opcodes) {
+        this.opcodes = opcodes;
+    }
+
+    /**
+     * @return A quantidade de instruções da sequência.
+     */
+    public int getInstructionCount() { return opcodes.length; }
+
+    /**
+     * @param index Posição na sequência.
+     * @return O opcode da instrução nessa posição.
+     */
+    public int getOpcode(int index) { return opcodes[index]; }
+}
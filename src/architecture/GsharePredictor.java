@@ -0,0 +1,57 @@
+package architecture;
+
+import java.util.Arrays;
+
+/**
+ * Preditor gshare: contadores de 2 bits indexados pelo PC xor o histórico global
+ * (os resultados dos últimos desvios condicionais, um bit cada). Desvios correlacionados
+ * entre si, como os de laços aninhados, passam a usar entradas diferentes da tabela.
+ */
+public class GsharePredictor implements BranchPredictor {
+
+    private final byte[] counters;
+    private final int mask;
+    private final int historyBits;
+    private int history;
+
+    /**
+     * @param entries O tamanho da tabela (potência de 2).
+     * @param historyBits Quantos resultados o histórico global guarda (0 a 30).
+     */
+    public GsharePredictor(int entries, int historyBits) {
+        if (historyBits < 0 || historyBits > 30) {
+            throw new IllegalArgumentException("Histórico global inválido: " + historyBits + " bits");
+        }
+        mask = TwoBitPredictor.checkEntries(entries) - 1;
+        counters = new byte[entries];
+        this.historyBits = historyBits;
+        reset();
+    }
+
+    private int index(int pc) {
+        return (pc ^ history) & mask;
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        return counters[index(pc)] >= 2;
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+        int i = index(pc);
+        counters[i] = (byte) TwoBitPredictor.train(counters[i], taken);
+        history = ((history << 1) | (taken ? 1 : 0)) & ((1 << historyBits) - 1);
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(counters, (byte) TwoBitPredictor.WEAKLY_NOT_TAKEN);
+        history = 0;
+    }
+
+    @Override
+    public String getName() {
+        return "gshare (" + counters.length + ", " + historyBits + " bits)";
+    }
+}
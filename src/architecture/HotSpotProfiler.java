@@ -0,0 +1,193 @@
+package architecture;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import components.CycleCounter;
+import components.Memory;
+import components.Opcodes;
+
+/**
+ * Profiler por endereço: conta quantas vezes cada instrução executou e, com um CycleCounter ligado,
+ * quantos ciclos de micro-operações ela acumulou. Os contadores são long[] do tamanho da memória,
+ * indexados pelo PC, de modo que cada instrução custa dois incrementos.
+ *
+ * O relatório ordena os endereços pelo custo e os traduz para "label+deslocamento" com os labels
+ * do Assembler (Assembler.getLabels()); também soma o custo por label, o que mostra quais laços e
+ * sub-rotinas dominam a execução.
+ *
+ * Uso: arch.setCycleCounter(counter); arch.addExecutionObserver(new HotSpotProfiler(arch.getMemory(), counter)).
+ * Os ciclos são os mesmos em todos os modos: o microprogramado cobra cada micro-operação, e a pré-decodificação
+ * e o modo FUNCTIONAL cobram as micro-operações do microprograma de cada instrução (CycleCounter.chargeInstruction()).
+ * Sem contador o custo é o número de execuções, e a coluna de ciclos fica zerada.
+ */
+public class HotSpotProfiler implements ExecutionObserver {
+
+    private final Memory memory;
+    private final CycleCounter cycleCounter;
+    private final long[] executions;
+    private final long[] cycles;
+    private final TreeMap<Integer, String> labels = new TreeMap<>(); // Endereço -> label
+
+    private int currentPC;
+    private long startCycles;
+
+    /**
+     * @param memory A memória do programa (define o tamanho dos contadores e os nomes das instruções).
+     * @param cycleCounter O contador de ciclos da arquitetura, ou null para contar só execuções.
+     */
+    public HotSpotProfiler(Memory memory, CycleCounter cycleCounter) {
+        this.memory = memory;
+        this.cycleCounter = cycleCounter;
+        this.executions = new long[memory.getMemorySize()];
+        this.cycles = new long[memory.getMemorySize()];
+    }
+
+    /**
+     * Define os nomes usados no relatório. Com mais de um label no mesmo endereço vale o primeiro em ordem alfabética.
+     * @param labelAddresses Label -> endereço (ex: Assembler.getLabels()).
+     */
+    public void setLabels(Map<String, Integer> labelAddresses) {
+        labels.clear();
+        for (Map.Entry<String, Integer> entry : labelAddresses.entrySet()) {
+            labels.merge(entry.getValue(), entry.getKey(), (a, b) -> a.compareTo(b) <= 0 ? a : b);
+        }
+    }
+
+    @Override
+    public void beginInstruction(int pc, int[] registers) {
+        currentPC = pc;
+        if (cycleCounter != null) {
+            startCycles = cycleCounter.getTotalCycles();
+        }
+    }
+
+    @Override
+    public void endInstruction(int[] registers) {
+        int pc = currentPC;
+        if (pc < 0 || pc >= executions.length) {
+            return;
+        }
+        executions[pc]++;
+        if (cycleCounter != null) {
+            cycles[pc] += cycleCounter.getTotalCycles() - startCycles;
+        }
+    }
+
+    /**
+     * Zera os contadores (os labels são mantidos).
+     */
+    public void reset() {
+        Arrays.fill(executions, 0);
+        Arrays.fill(cycles, 0);
+    }
+
+    public long getExecutions(int pc) { return executions[pc]; }
+    public long getCycles(int pc) { return cycles[pc]; }
+
+    public long getTotalExecutions() {
+        long total = 0;
+        for (long count : executions) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getTotalCycles() {
+        long total = 0;
+        for (long count : cycles) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return O custo usado na ordenação: ciclos, se há contador de ciclos, ou execuções.
+     */
+    private long cost(int pc) {
+        return cycleCounter != null ? cycles[pc] : executions[pc];
+    }
+
+    /**
+     * @param limit Quantos endereços devolver no máximo.
+     * @return Os endereços executados, do mais caro para o mais barato (empate: menor endereço primeiro).
+     */
+    public int[] getHotSpots(int limit) {
+        int count = 0;
+        for (long executed : executions) {
+            if (executed != 0) {
+                count++;
+            }
+        }
+        Integer[] pcs = new Integer[count];
+        count = 0;
+        for (int pc = 0; pc < executions.length; pc++) {
+            if (executions[pc] != 0) {
+                pcs[count++] = pc;
+            }
+        }
+        Arrays.sort(pcs, (a, b) -> cost(a) != cost(b) ? Long.compare(cost(b), cost(a)) : Integer.compare(a, b));
+        int[] result = new int[Math.min(limit, pcs.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = pcs[i];
+        }
+        return result;
+    }
+
+    /**
+     * @param pc Um endereço.
+     * @return "label" ou "label+deslocamento" com o label mais próximo antes do endereço,
+     *         ou o próprio endereço se não há label antes dele.
+     */
+    public String symbolize(int pc) {
+        Map.Entry<Integer, String> label = labels.floorEntry(pc);
+        if (label == null) {
+            return Integer.toString(pc);
+        }
+        int offset = pc - label.getKey();
+        return offset == 0 ? label.getValue() : label.getValue() + "+" + offset;
+    }
+
+    /**
+     * @return O custo somado de cada label (do seu endereço até o próximo label), em ordem alfabética.
+     *         O trecho antes do primeiro label aparece como "(início)".
+     */
+    public Map<String, Long> getCostByLabel() {
+        Map<String, Long> totals = new TreeMap<>();
+        for (int pc = 0; pc < executions.length; pc++) {
+            if (executions[pc] != 0) {
+                Map.Entry<Integer, String> label = labels.floorEntry(pc);
+                totals.merge(label == null ? "(início)" : label.getValue(), cost(pc), Long::sum);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * @param limit Quantos endereços listar.
+     * @return Os endereços mais caros e o custo por label, pronto para ser impresso.
+     */
+    public String report(int limit) {
+        long total = cycleCounter != null ? getTotalCycles() : getTotalExecutions();
+        String unit = cycleCounter != null ? "ciclos" : "execuções";
+        StringBuilder sb = new StringBuilder();
+        sb.append("----- Hot spots (por ").append(unit).append(") -----\n");
+        sb.append(String.format("%6s  %-20s %-22s %12s %14s %7s%n", "PC", "Local", "Instrução", "Execuções", "Ciclos", "%"));
+        for (int pc : getHotSpots(limit)) {
+            int opcode = memory.getData(pc);
+            String name = opcode >= 0 && opcode < Opcodes.OPCODE_COUNT ? Opcodes.getInstructionName(opcode) : "(inválida)";
+            sb.append(String.format("%6d  %-20s %-22s %12d %14d %6.2f%%%n", pc, symbolize(pc), name, executions[pc],
+                    cycles[pc], total == 0 ? 0 : 100.0 * cost(pc) / total));
+        }
+        Map<String, Long> byLabel = getCostByLabel();
+        if (!labels.isEmpty()) {
+            sb.append("----- Por label -----\n");
+            byLabel.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
+                    .forEach(entry -> sb.append(String.format("%-20s %14d %6.2f%%%n", entry.getKey(), entry.getValue(),
+                            total == 0 ? 0 : 100.0 * entry.getValue() / total)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,15 @@
+package architecture;
+
+/**
+ * Rotina que executa uma instrução já decodificada.
+ * Cada opcode tem o seu handler, registrado pela Architecture na DecodeCache.
+ */
+public interface InstructionHandler {
+
+    /**
+     * Executa a instrução. O handler é responsável por deixar o PC apontando para a próxima
+     * instrução (normalmente `instruction.getNextPC()`, ou o destino de um desvio).
+     * @param instruction A instrução decodificada, com os operandos já lidos da memória.
+     */
+    void execute(DecodedInstruction instruction);
+}
@@ -0,0 +1,41 @@
+package architecture;
+
+import java.util.Arrays;
+
+/**
+ * Preditor de 1 bit: cada entrada da tabela (indexada pelos bits baixos do PC) lembra
+ * o último resultado dos desvios que caem nela.
+ */
+public class OneBitPredictor implements BranchPredictor {
+
+    private final boolean[] lastTaken;
+    private final int mask;
+
+    /**
+     * @param entries O tamanho da tabela (potência de 2).
+     */
+    public OneBitPredictor(int entries) {
+        mask = TwoBitPredictor.checkEntries(entries) - 1;
+        lastTaken = new boolean[entries];
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        return lastTaken[pc & mask];
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+        lastTaken[pc & mask] = taken;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(lastTaken, false);
+    }
+
+    @Override
+    public String getName() {
+        return "1-bit (" + lastTaken.length + ")";
+    }
+}
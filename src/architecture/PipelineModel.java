@@ -0,0 +1,247 @@
+package architecture;
+
+import components.Memory;
+import components.Opcodes;
+
+/**
+ * Modelo de temporização de um pipeline clássico de 5 estágios (IF/ID/EX/MEM/WB) para o ISA de Opcodes.
+ *
+ * O modelo é um ExecutionObserver: a execução continua sendo feita pela Architecture/FunctionalCore
+ * (mesma memória e mesmo banco de registradores) e, a cada instrução, o modelo calcula em que ciclo
+ * ela entraria em EX num processador em ordem, com emissão simples:
+ *
+ * - Dependências RAW em RPG, RPG1, Flags (e nos demais registradores usados por move/jeq/call/...):
+ *   com forwarding, o valor vai do fim do estágio que o produz (EX, ou MEM para read/add/sub, que lêem
+ *   a memória) para o início do estágio que o consome (EX, ou MEM para o dado do store); sem forwarding,
+ *   o consumidor espera o WB do produtor (escrita na primeira metade do ciclo, leitura em ID na segunda).
+ * - Desvios: previsão "não tomado". Um desvio tomado descarta as instruções buscadas depois dele:
+ *   1 ciclo para jmp/call/imul (resolvidos em ID), 2 para jz/jn/jnz/jeq/jgt/jlw (resolvidos em EX)
+ *   e 3 para ret (o endereço de retorno vem da memória, em MEM).
+ *
+ * Os totais (ciclos, CPI, ciclos de stall, flushes) acumulam até reset().
+ */
+public class PipelineModel implements ExecutionObserver {
+
+    private static final int STAGE_EX = 0;  // Deslocamentos em relação ao ciclo de EX da instrução
+    private static final int STAGE_MEM = 1;
+    private static final int STAGE_WB = 2;
+    private static final int FIRST_EX_CYCLE = 3; // IF no ciclo 1, ID no 2, EX no 3
+
+    private static final int RPG = 1 << FunctionalCore.RPG;
+    private static final int FLAGS = 1 << FunctionalCore.FLAGS;
+    private static final int STK_TOP = 1 << FunctionalCore.STK_TOP;
+
+    private final Memory memory;
+    private final boolean forwarding;
+
+    // Ciclo em que o valor de cada registrador fica pronto (fim do estágio produtor) e ciclo de WB
+    private final long[] producedAt = new long[FunctionalCore.REGISTER_COUNT];
+    private final long[] writtenBackAt = new long[FunctionalCore.REGISTER_COUNT];
+    private long lastEx = FIRST_EX_CYCLE - 1;
+    private int pendingFlush; // Ciclos perdidos pelo último desvio tomado
+
+    // Instrução em andamento (decodificada em beginInstruction)
+    private int currentPC;
+    private int currentOpcode;
+    private int currentLength;
+
+    private long instructions;
+    private long stallCycles;
+    private long flushes;
+    private long flushCycles;
+    private final long[] hazardsByRegister = new long[FunctionalCore.REGISTER_COUNT];
+    private long forwardedHazards; // Hazards resolvidos por forwarding sem stall
+
+    /**
+     * @param memory A memória de onde as instruções são lidas (para decodificar operandos).
+     * @param forwarding true para modelar os caminhos de forwarding.
+     */
+    public PipelineModel(Memory memory, boolean forwarding) {
+        this.memory = memory;
+        this.forwarding = forwarding;
+        reset();
+    }
+
+    @Override
+    public void beginInstruction(int pc, int[] registers) {
+        currentPC = pc;
+        currentOpcode = memory.getData(pc);
+        currentLength = Math.max(1, Opcodes.getInstructionSize(currentOpcode));
+    }
+
+    @Override
+    public void endInstruction(int[] registers) {
+        int pc = currentPC;
+        int opcode = currentOpcode;
+        int sources = 0;        // Registradores lidos em EX
+        int memSources = 0;     // Registradores lidos em MEM (dado do store)
+        int destinations = 0;
+        int produceStage = STAGE_EX;
+        int flushPenalty = 0;   // Penalidade se a instrução desviar
+        switch (opcode) {
+            case Opcodes.ADD:
+            case Opcodes.SUB:
+                sources = RPG;
+                destinations = RPG | FLAGS;
+                produceStage = STAGE_MEM; // O operando vem da memória
+                break;
+            case Opcodes.READ:
+                destinations = RPG;
+                produceStage = STAGE_MEM;
+                break;
+            case Opcodes.STORE:
+                memSources = RPG;
+                break;
+            case Opcodes.LDI:
+                destinations = RPG;
+                break;
+            case Opcodes.INC:
+                sources = RPG;
+                destinations = RPG | FLAGS;
+                break;
+            case Opcodes.MOVE_REG_REG:
+                sources = registerBit(pc + 1);
+                destinations = registerBit(pc + 2);
+                break;
+            case Opcodes.JMP:
+                flushPenalty = 1;
+                break;
+            case Opcodes.JZ:
+            case Opcodes.JN:
+            case Opcodes.JNZ:
+                sources = FLAGS;
+                flushPenalty = 2;
+                break;
+            case Opcodes.JEQ:
+            case Opcodes.JGT:
+            case Opcodes.JLW:
+                sources = registerBit(pc + 1) | registerBit(pc + 2);
+                destinations = FLAGS;
+                flushPenalty = 2;
+                break;
+            case Opcodes.CALL:
+                sources = STK_TOP;
+                destinations = STK_TOP;
+                flushPenalty = 1;
+                break;
+            case Opcodes.RET:
+                sources = STK_TOP;
+                destinations = STK_TOP;
+                flushPenalty = 3;
+                break;
+            case Opcodes.IMUL:
+                sources = registerBit(pc + 1) | registerBit(pc + 2);
+                flushPenalty = 1;
+                break;
+            default:
+                break; // halt e opcodes inválidos não dependem de nada
+        }
+
+        long naturalEx = lastEx + 1 + pendingFlush;
+        long ex = naturalEx;
+        long withoutForwarding = naturalEx;
+        for (int id = 0; id < FunctionalCore.REGISTER_COUNT; id++) {
+            int bit = 1 << id;
+            if (((sources | memSources) & bit) == 0) {
+                continue;
+            }
+            long readyWb = writtenBackAt[id] + 1; // ID depois do WB do produtor
+            if (readyWb > naturalEx) {
+                hazardsByRegister[id]++;
+            }
+            withoutForwarding = Math.max(withoutForwarding, readyWb);
+            long ready = forwarding
+                    ? producedAt[id] + 1 - ((memSources & bit) != 0 ? STAGE_MEM : STAGE_EX)
+                    : readyWb;
+            ex = Math.max(ex, ready);
+        }
+        if (forwarding && withoutForwarding > naturalEx && ex == naturalEx) {
+            forwardedHazards++;
+        }
+        stallCycles += ex - naturalEx;
+
+        for (int id = 0; id < FunctionalCore.REGISTER_COUNT; id++) {
+            if ((destinations & (1 << id)) != 0) {
+                producedAt[id] = ex + produceStage;
+                writtenBackAt[id] = ex + STAGE_WB;
+            }
+        }
+        lastEx = ex;
+        instructions++;
+
+        boolean taken = flushPenalty != 0 && registers[FunctionalCore.PC] != pc + currentLength;
+        if (taken) {
+            flushes++;
+            flushCycles += flushPenalty;
+            pendingFlush = flushPenalty;
+        } else {
+            pendingFlush = 0;
+        }
+    }
+
+    private int registerBit(int address) {
+        int id = address < memory.getMemorySize() ? memory.getData(address) : -1;
+        return id >= 0 && id < FunctionalCore.REGISTER_COUNT ? 1 << id : 0;
+    }
+
+    /**
+     * Zera os totais e esvazia o pipeline.
+     */
+    public void reset() {
+        for (int id = 0; id < FunctionalCore.REGISTER_COUNT; id++) {
+            producedAt[id] = Long.MIN_VALUE / 2;
+            writtenBackAt[id] = Long.MIN_VALUE / 2;
+            hazardsByRegister[id] = 0;
+        }
+        lastEx = FIRST_EX_CYCLE - 1;
+        pendingFlush = 0;
+        instructions = 0;
+        stallCycles = 0;
+        flushes = 0;
+        flushCycles = 0;
+        forwardedHazards = 0;
+    }
+
+    public boolean isForwarding() { return forwarding; }
+    public long getInstructionCount() { return instructions; }
+    public long getStallCycles() { return stallCycles; }
+    public long getFlushCount() { return flushes; }
+    public long getFlushCycles() { return flushCycles; }
+    public long getForwardedHazards() { return forwardedHazards; }
+
+    /**
+     * @param registerId O ID do registrador (ordem de registersList).
+     * @return Quantas instruções leram o registrador antes do WB de quem o escreveu (hazards RAW).
+     */
+    public long getDataHazards(int registerId) { return hazardsByRegister[registerId]; }
+
+    /**
+     * @return Ciclos até o WB da última instrução (0 se nada foi executado).
+     */
+    public long getCycles() {
+        return instructions == 0 ? 0 : lastEx + STAGE_WB;
+    }
+
+    /**
+     * @return Ciclos por instrução, incluindo o enchimento inicial do pipeline.
+     */
+    public double getCPI() {
+        return instructions == 0 ? 0 : (double) getCycles() / instructions;
+    }
+
+    /**
+     * @return Um resumo dos totais, pronto para ser impresso.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("----- Pipeline de 5 estágios (forwarding ").append(forwarding ? "ligado" : "desligado").append(") -----\n");
+        sb.append(String.format("Instruções: %d%n", instructions));
+        sb.append(String.format("Ciclos: %d (CPI %.3f)%n", getCycles(), getCPI()));
+        sb.append(String.format("Ciclos de stall: %d%n", stallCycles));
+        sb.append(String.format("Flushes: %d (%d ciclos perdidos)%n", flushes, flushCycles));
+        sb.append(String.format("Hazards RAW: RPG %d, RPG1 %d, Flags %d (%d resolvidos por forwarding)%n",
+                hazardsByRegister[FunctionalCore.RPG], hazardsByRegister[FunctionalCore.RPG1],
+                hazardsByRegister[FunctionalCore.FLAGS], forwardedHazards));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,308 @@
+package architecture;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checkpoint completo de uma Architecture: memória principal, registradores (na ordem de registersList),
+ * barramentos, registradores internos da ULA, valor do Demux, o ciclo de store em andamento da memória
+ * (MAR e fase) e a statusMemory usada por jz/jn.
+ *
+ * É imutável: é criado por Architecture.snapshot() ou Architecture.checkpoint() e aplicado com
+ * Architecture.restore().
+ *
+ * Um checkpoint incremental não guarda a memória inteira: guarda só as páginas escritas desde o
+ * checkpoint anterior (a sua base), que fica referenciado. A memória completa é reconstruída a partir
+ * da imagem completa mais antiga da cadeia, aplicando as páginas de cada checkpoint em ordem.
+ *
+ * Formato binário (save/load): "OACS", versão, tipo (completo ou incremental), a memória (inteira ou
+ * as páginas) e em seguida os demais campos, todos como inteiros de tamanho variável
+ * (zigzag + 7 bits por byte), de modo que as palavras zeradas da memória ocupam um byte cada.
+ * Um checkpoint incremental só pode ser lido com a sua base (load(String, Snapshot)).
+ */
+public final class Snapshot {
+
+    private static final int MAGIC = 0x4F414353; // "OACS"
+    private static final int VERSION = 2;
+
+    private final int[] memory;         // Imagem completa (null nos incrementais)
+    private final Snapshot base;        // Checkpoint anterior (null nos completos)
+    private final int memorySize;
+    private final int pageBits;         // Incrementais: log2 do tamanho da página
+    private final int[] pageIndexes;    // Incrementais: páginas escritas desde a base, em ordem crescente
+    private final int[][] pages;        // Incrementais: o conteúdo de cada página
+    private final int memoryMar;
+    private final boolean memoryExpectingData;
+    private final int[] statusMemory;
+    private final int statusMemoryMar;
+    private final boolean statusMemoryExpectingData;
+    private final int[] registers;
+    private final int[] buses;       // extbus1, intbus1, intbus2
+    private final int[] ulaRegisters; // internalReg0, internalReg1
+    private final int demux;
+
+    Snapshot(int[] memory, int memoryMar, boolean memoryExpectingData,
+             int[] statusMemory, int statusMemoryMar, boolean statusMemoryExpectingData,
+             int[] registers, int[] buses, int[] ulaRegisters, int demux) {
+        this(memory, null, memory.length, 0, null, null, memoryMar, memoryExpectingData, statusMemory,
+                statusMemoryMar, statusMemoryExpectingData, registers, buses, ulaRegisters, demux);
+    }
+
+    // Incremental: só as páginas escritas desde `base`
+    Snapshot(Snapshot base, int pageBits, int[] pageIndexes, int[][] pages, int memoryMar, boolean memoryExpectingData,
+             int[] statusMemory, int statusMemoryMar, boolean statusMemoryExpectingData,
+             int[] registers, int[] buses, int[] ulaRegisters, int demux) {
+        this(null, base, base.memorySize, pageBits, pageIndexes, pages, memoryMar, memoryExpectingData, statusMemory,
+                statusMemoryMar, statusMemoryExpectingData, registers, buses, ulaRegisters, demux);
+    }
+
+    private Snapshot(int[] memory, Snapshot base, int memorySize, int pageBits, int[] pageIndexes, int[][] pages,
+                     int memoryMar, boolean memoryExpectingData,
+                     int[] statusMemory, int statusMemoryMar, boolean statusMemoryExpectingData,
+                     int[] registers, int[] buses, int[] ulaRegisters, int demux) {
+        this.memory = memory;
+        this.base = base;
+        this.memorySize = memorySize;
+        this.pageBits = pageBits;
+        this.pageIndexes = pageIndexes;
+        this.pages = pages;
+        this.memoryMar = memoryMar;
+        this.memoryExpectingData = memoryExpectingData;
+        this.statusMemory = statusMemory;
+        this.statusMemoryMar = statusMemoryMar;
+        this.statusMemoryExpectingData = statusMemoryExpectingData;
+        this.registers = registers;
+        this.buses = buses;
+        this.ulaRegisters = ulaRegisters;
+        this.demux = demux;
+    }
+
+    // Os arrays são devolvidos como cópias para manter o checkpoint imutável.
+    public int[] getMemory() { return memory != null ? memory.clone() : materialize(); }
+    public int getMemorySize() { return memorySize; }
+    public boolean isIncremental() { return base != null; }
+    public Snapshot getBase() { return base; }
+    public int getPageCount() { return pageIndexes == null ? 0 : pageIndexes.length; }
+    public int[] getPageIndexes() { return pageIndexes == null ? new int[0] : pageIndexes.clone(); }
+    public int getMemoryMar() { return memoryMar; }
+    public boolean isMemoryExpectingData() { return memoryExpectingData; }
+    public int[] getStatusMemory() { return statusMemory.clone(); }
+    public int getStatusMemoryMar() { return statusMemoryMar; }
+    public boolean isStatusMemoryExpectingData() { return statusMemoryExpectingData; }
+    public int[] getRegisters() { return registers.clone(); }
+    public int[] getBuses() { return buses.clone(); }
+    public int[] getUlaRegisters() { return ulaRegisters.clone(); }
+    public int getDemux() { return demux; }
+
+    // Acesso sem cópia para a Architecture (mesmo pacote)
+    int[] memory() { return memory != null ? memory : materialize(); }
+    int[] statusMemory() { return statusMemory; }
+    int[] registers() { return registers; }
+    int[] buses() { return buses; }
+    int[] ulaRegisters() { return ulaRegisters; }
+
+    /**
+     * Reconstrói a memória completa: a imagem completa mais antiga da cadeia, com as páginas de cada
+     * checkpoint incremental aplicadas da mais antiga para a mais nova.
+     */
+    private int[] materialize() {
+        List<Snapshot> chain = new ArrayList<>();
+        Snapshot full = this;
+        while (full.base != null) {
+            chain.add(full);
+            full = full.base;
+        }
+        int[] image = full.memory.clone();
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            Snapshot delta = chain.get(i);
+            for (int p = 0; p < delta.pageIndexes.length; p++) {
+                int[] page = delta.pages[p];
+                System.arraycopy(page, 0, image, delta.pageIndexes[p] << delta.pageBits, page.length);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Grava o checkpoint em um arquivo.
+     * @param fileName Caminho do arquivo.
+     * @throws IOException Se a escrita falhar.
+     */
+    public void save(String fileName) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName))) {
+            writeTo(out);
+        }
+    }
+
+    /**
+     * Lê um checkpoint completo gravado por save().
+     * @param fileName Caminho do arquivo.
+     * @return O checkpoint.
+     * @throws IOException Se a leitura falhar ou o arquivo não for um checkpoint completo válido.
+     */
+    public static Snapshot load(String fileName) throws IOException {
+        return load(fileName, null);
+    }
+
+    /**
+     * Lê um checkpoint gravado por save(), completo ou incremental.
+     * @param fileName Caminho do arquivo.
+     * @param base A base do checkpoint incremental (o checkpoint anterior), ou null para um completo.
+     * @return O checkpoint.
+     * @throws IOException Se a leitura falhar, o arquivo não for um checkpoint válido ou a base não servir.
+     */
+    public static Snapshot load(String fileName, Snapshot base) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(fileName))) {
+            return readFrom(in, base);
+        }
+    }
+
+    /**
+     * Escreve o checkpoint no formato binário (o stream não é fechado).
+     */
+    public void writeTo(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeBoolean(base != null);
+        if (base == null) {
+            writeArray(out, memory);
+        } else {
+            writeVarInt(out, memorySize);
+            writeVarInt(out, pageBits);
+            writeVarInt(out, pageIndexes.length);
+            for (int p = 0; p < pageIndexes.length; p++) {
+                writeVarInt(out, pageIndexes[p]);
+                writeArray(out, pages[p]);
+            }
+        }
+        writeVarInt(out, memoryMar);
+        out.writeBoolean(memoryExpectingData);
+        writeArray(out, statusMemory);
+        writeVarInt(out, statusMemoryMar);
+        out.writeBoolean(statusMemoryExpectingData);
+        writeArray(out, registers);
+        writeArray(out, buses);
+        writeArray(out, ulaRegisters);
+        writeVarInt(out, demux);
+        out.flush();
+    }
+
+    /**
+     * Lê um checkpoint completo no formato binário (o stream não é fechado).
+     */
+    public static Snapshot readFrom(InputStream stream) throws IOException {
+        return readFrom(stream, null);
+    }
+
+    /**
+     * Lê um checkpoint no formato binário (o stream não é fechado).
+     * @param base A base, se o checkpoint for incremental.
+     */
+    public static Snapshot readFrom(InputStream stream, Snapshot base) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Arquivo não é um checkpoint da arquitetura.");
+        }
+        int version = in.readUnsignedByte();
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Versão de checkpoint não suportada: " + version);
+        }
+        boolean incremental = version != 1 && in.readBoolean();
+        int[] memory = null;
+        int pageBits = 0;
+        int[] pageIndexes = null;
+        int[][] pages = null;
+        if (!incremental) {
+            memory = readArray(in);
+        } else {
+            int memorySize = readVarInt(in);
+            if (base == null || base.memorySize != memorySize) {
+                throw new IOException("Checkpoint incremental exige a sua base (memória de " + memorySize + " palavras).");
+            }
+            pageBits = readVarInt(in);
+            if (pageBits < 0 || pageBits > 30) {
+                throw new IOException("Checkpoint corrompido: páginas de 2^" + pageBits + " palavras.");
+            }
+            pageIndexes = new int[readVarInt(in)];
+            pages = new int[pageIndexes.length][];
+            for (int p = 0; p < pageIndexes.length; p++) {
+                pageIndexes[p] = readVarInt(in);
+                pages[p] = readArray(in);
+                long start = (long) pageIndexes[p] << pageBits;
+                if (pageIndexes[p] < 0 || start + pages[p].length > memorySize || pages[p].length > 1 << pageBits) {
+                    throw new IOException("Checkpoint corrompido: página " + pageIndexes[p] + " fora da memória.");
+                }
+            }
+        }
+        int memoryMar = readVarInt(in);
+        boolean memoryExpectingData = in.readBoolean();
+        int[] statusMemory = readArray(in);
+        int statusMemoryMar = readVarInt(in);
+        boolean statusMemoryExpectingData = in.readBoolean();
+        int[] registers = readArray(in);
+        int[] buses = readArray(in);
+        int[] ulaRegisters = readArray(in);
+        int demux = readVarInt(in);
+        if (incremental) {
+            return new Snapshot(base, pageBits, pageIndexes, pages, memoryMar, memoryExpectingData, statusMemory,
+                    statusMemoryMar, statusMemoryExpectingData, registers, buses, ulaRegisters, demux);
+        }
+        return new Snapshot(memory, memoryMar, memoryExpectingData, statusMemory, statusMemoryMar,
+                statusMemoryExpectingData, registers, buses, ulaRegisters, demux);
+    }
+
+    private static void writeArray(DataOutputStream out, int[] values) throws IOException {
+        writeVarInt(out, values.length);
+        for (int value : values) {
+            writeVarInt(out, value);
+        }
+    }
+
+    private static int[] readArray(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0) {
+            throw new IOException("Checkpoint corrompido: tamanho negativo.");
+        }
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = readVarInt(in);
+        }
+        return values;
+    }
+
+    // Zigzag (valores pequenos, positivos ou negativos, ficam pequenos) + 7 bits por byte
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        int v = (value << 1) ^ (value >> 31);
+        while ((v & ~0x7f) != 0) {
+            out.writeByte((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Checkpoint truncado.");
+            }
+            v |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Checkpoint corrompido: inteiro longo demais.");
+    }
+}
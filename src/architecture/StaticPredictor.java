@@ -0,0 +1,46 @@
+package architecture;
+
+/**
+ * Preditor estático: a previsão depende apenas do desvio, nunca do histórico.
+ */
+public class StaticPredictor implements BranchPredictor {
+
+    public enum Policy {
+        ALWAYS_TAKEN,
+        NEVER_TAKEN,
+        BACKWARD_TAKEN // Desvios para trás (laços) tomados, para frente não tomados
+    }
+
+    private final Policy policy;
+
+    public StaticPredictor(Policy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        switch (policy) {
+            case ALWAYS_TAKEN:
+                return true;
+            case NEVER_TAKEN:
+                return false;
+            default:
+                return target <= pc;
+        }
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public String getName() {
+        return "estático (" + policy + ")";
+    }
+
+    public Policy getPolicy() { return policy; }
+}
@@ -2,12 +2,32 @@ package architecture;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 
+import assembler.BinaryExecutable;
+import components.ArrayMemoryStorage;
+import components.Cache;
+import components.CacheHierarchy;
+import components.ComponentEventListener;
+import components.CycleCounter;
+import components.DirtyPageTracker;
+import components.Instrumentation;
 import components.Memory;
+import components.MicroOp;
+import components.MappedMemoryStorage;
+import components.Opcodes;
+import components.PagedMemoryStorage;
+import components.Watchpoint;
 
 public class TestArchitecture {
 	
@@ -596,4 +616,1083 @@ public class TestArchitecture {
 		assertEquals(0, arch.getMemory().getDataList()[5]);
 	}
 
+	@Test
+	public void testPredecodeExecution() {
+		Architecture arch = new Architecture();
+		arch.setPredecodeEnabled(true);
+		//ldi 5; store 40; read 40; add 40; store 41; inc; store 42; halt
+		int program[] = {7, 5, 6, 40, 5, 40, 0, 40, 6, 41, 8, 6, 42, 17};
+		for (int i=0;i<program.length;i++) {
+			arch.getMemory().setData(i, program[i]);
+		}
+		arch.controlUnitEexec();
+		assertEquals(5, arch.getMemory().getData(40));
+		assertEquals(10, arch.getMemory().getData(41));
+		assertEquals(11, arch.getMemory().getData(42));
+		//halt has no parameters, so PC stays pointing to it
+		assertEquals(13, arch.getPC().getData());
+		//each entry was decoded only once: ldi+store and read+add+store are fused,
+		//inc, store and halt are single instructions
+		assertEquals(5, arch.getDecodeCache().getMisses());
+	}
+	
+	@Test
+	public void testMoveIntoPC() {
+		//0: ldi 20; 2: move %reg0 %reg2 (rpg -> pc); 5: ldi 99; 7: halt ... 20: halt
+		int program[] = new int[21];
+		int code[] = {7, 20, 9, 0, 2, 7, 99, 17};
+		System.arraycopy(code, 0, program, 0, code.length);
+		program[20] = 17;
+		for (Architecture arch : functionalAndPredecoded(program)) {
+			arch.controlUnitEexec();
+			//the move jumps to 20, so ldi 99 never runs
+			assertEquals(20, arch.getPC().getData());
+			assertEquals(20, arch.getRegistersList().get(0).getData());
+		}
+	}
+	
+	@Test
+	public void testPredecodeInvalidation() {
+		Architecture arch = new Architecture();
+		arch.setPredecodeEnabled(true);
+		arch.getMemory().setData(0, 7); //ldi 3
+		arch.getMemory().setData(1, 3);
+		DecodedInstruction ldi = arch.getDecodeCache().lookup(0);
+		assertEquals(3, ldi.getOperand(0));
+		assertEquals(2, ldi.getNextPC());
+		//the same entry is returned while the code is not changed
+		assertSame(ldi, arch.getDecodeCache().lookup(0));
+		//overwriting the parameter (by using the bus) must discard the entry
+		arch.getExtbus1().put(1);
+		arch.getMemory().store();
+		arch.getExtbus1().put(9);
+		arch.getMemory().store();
+		assertEquals(9, arch.getDecodeCache().lookup(0).getOperand(0));
+		//writes after the instruction do not affect it
+		DecodedInstruction ldi9 = arch.getDecodeCache().lookup(0);
+		arch.getMemory().setData(2, 17);
+		assertSame(ldi9, arch.getDecodeCache().lookup(0));
+	}
+
+	@Test
+	public void testPredecodeFusion() {
+		//0:  ldi -3
+		//2:  store 40
+		//4:  read 40      //loop
+		//6:  inc
+		//7:  store 40
+		//9:  read 40
+		//11: add 41
+		//13: store 42
+		//15: jn 4
+		//17: halt
+		int program[] = {7, -3, 6, 40, 5, 40, 8, 6, 40, 5, 40, 0, 41, 6, 42, 4, 4, 17};
+		Architecture fused = new Architecture();
+		fused.setPredecodeEnabled(true);
+		Architecture functional = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		for (int i=0;i<program.length;i++) {
+			fused.getMemory().setData(i, program[i]);
+			functional.getMemory().setData(i, program[i]);
+		}
+		fused.getMemory().setData(41, 1);
+		functional.getMemory().setData(41, 1);
+		fused.controlUnitEexec();
+		functional.controlUnitEexec();
+		
+		assertEquals(-1, fused.getMemory().getData(40));
+		assertEquals(0, fused.getMemory().getData(42));
+		assertEquals(17, fused.getPC().getData());
+		DecodeCache cache = fused.getDecodeCache();
+		assertEquals(1, cache.getFusionCount(Fusion.LDI_STORE));
+		assertEquals(2, cache.getFusionCount(Fusion.READ_INC_STORE));
+		//read 40 at 9 is also the start of read+add+store
+		assertEquals(2, cache.getFusionCount(Fusion.READ_ADD_STORE));
+		assertEquals(Fusion.READ_ADD_STORE, cache.lookup(9).getFusion());
+		//jumping into the middle of a fused sequence still works
+		assertEquals(Opcodes.INC, cache.lookup(6).getOpcode());
+		
+		//same architectural state as the unfused functional core
+		for (int id=0;id<fused.getRegistersList().size();id++) {
+			assertEquals(functional.getRegistersList().get(id).getData(), fused.getRegistersList().get(id).getData());
+		}
+		for (int i=0;i<fused.getMemorySize();i++) {
+			assertEquals(functional.getMemory().getData(i), fused.getMemory().getData(i));
+		}
+	}
+
+	@Test
+	public void testFunctionalMode() {
+		//a counting loop, a subroutine call and register comparisons
+//		0:  ldi -3
+//		2:  store 40
+//		4:  read 40      //loop
+//		6:  inc
+//		7:  store 40
+//		9:  jn 4
+//		11: call 21
+//		13: move %reg0 %reg1
+//		16: jeq %reg0 %reg1 20
+//		20: halt
+//		21: ldi 7        //subroutine
+//		23: add 40
+//		25: ret
+		int program[] = {7, -3, 6, 40, 5, 40, 8, 6, 40, 4, 4, 14, 21, 9, 0, 1, 11, 0, 1, 20, 17, 7, 7, 0, 40, 15};
+		Architecture functional = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		Architecture predecoded = new Architecture();
+		predecoded.setPredecodeEnabled(true);
+		for (int i=0;i<program.length;i++) {
+			functional.getMemory().setData(i, program[i]);
+			predecoded.getMemory().setData(i, program[i]);
+		}
+		functional.controlUnitEexec();
+		predecoded.controlUnitEexec();
+		
+		assertEquals(0, functional.getMemory().getData(40));
+		assertEquals(7, functional.getRPG().getData());
+		assertEquals(7, functional.getRPG1().getData());
+		assertEquals(20, functional.getPC().getData());
+		assertEquals(1, functional.getFlags().getBit(0));
+		//the return address was pushed and popped
+		assertEquals(13, functional.getMemory().getData(126));
+		assertEquals(127, functional.getRegistersList().get(5).getData());
+		
+		//both execution modes must reach the same architectural state
+		for (int id=0;id<functional.getRegistersList().size();id++) {
+			assertEquals(predecoded.getRegistersList().get(id).getData(), functional.getRegistersList().get(id).getData());
+		}
+		for (int i=0;i<functional.getMemorySize();i++) {
+			assertEquals(predecoded.getMemory().getData(i), functional.getMemory().getData(i));
+		}
+	}
+
+	@Test
+	public void testMicrocodedMatchesFunctional() {
+		//every instruction except imul; each halt before 60 is only reached if a jump goes wrong
+//		0:  ldi -3
+//		2:  store 40
+//		4:  read 40      //loop
+//		6:  inc
+//		7:  store 40
+//		9:  jn 4
+//		11: call 50
+//		13: move %reg0 %reg1
+//		16: jeq %reg0 %reg1 21
+//		20: halt
+//		21: inc
+//		22: jgt %reg0 %reg1 27
+//		26: halt
+//		27: jlw %reg1 %reg0 32
+//		31: halt
+//		32: jnz 36
+//		34: halt
+//		36: jz 20
+//		38: jmp 45
+//		45: ldi 60
+//		47: move %reg0 %reg2
+//		50: ldi 7        //subroutine
+//		52: sub 42
+//		54: ret
+//		60: halt
+		int program[] = new int[61];
+		int code[] = {7, -3, 6, 40, 5, 40, 8, 6, 40, 4, 4, 14, 50, 9, 0, 1, 11, 0, 1, 21, 17, 8, 12, 0, 1, 27, 17,
+				13, 1, 0, 32, 17, 10, 36, 17, 17, 3, 20, 2, 45, 0, 0, 2, 0, 0, 7, 60, 9, 0, 2, 7, 7, 1, 42, 15};
+		System.arraycopy(code, 0, program, 0, code.length);
+		program[60] = 17;
+		Architecture microcoded = new Architecture(false, ExecutionMode.MICROCODED);
+		microcoded.getMemory().load(0, program);
+		microcoded.controlUnitEexec();
+		
+		assertEquals(60, microcoded.getPC().getData());
+		assertEquals(60, microcoded.getRPG().getData());
+		assertEquals(5, microcoded.getRPG1().getData());
+		assertEquals(0, microcoded.getMemory().getData(40));
+		//jlw compared the contents of RPG1 (5) and RPG (6)
+		assertEquals(1, microcoded.getFlags().getBit(1));
+		assertEquals(13, microcoded.getMemory().getData(126));
+		assertEquals(29, microcoded.getInstructionCount());
+		
+		//the functional core, the predecoded handlers and the compiled blocks reach the same state
+		Architecture[] others = functionalAndPredecoded(program);
+		Architecture jit = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		jit.getMemory().load(0, program);
+		jit.setBlockJitEnabled(true, 1);
+		for (Architecture arch : new Architecture[] {others[0], others[1], jit}) {
+			arch.controlUnitEexec();
+			assertEquals(microcoded.getInstructionCount(), arch.getInstructionCount());
+			for (int id=0;id<microcoded.getRegistersList().size();id++) {
+				assertEquals(microcoded.getRegistersList().get(id).getData(), arch.getRegistersList().get(id).getData());
+			}
+			assertArrayEquals(microcoded.getMemory().copyDataList(), arch.getMemory().copyDataList());
+		}
+	}
+
+	@Test
+	public void testBlockJit() {
+		//a hot straight-line loop body: compiled on its second entry (threshold 2)
+//		0:  ldi -50
+//		2:  store 40
+//		4:  read 40      //loop (block: read, inc, store, move)
+//		6:  inc
+//		7:  store 40
+//		9:  move %reg0 %reg1
+//		12: jn 4
+//		14: halt
+		int program[] = {7, -50, 6, 40, 5, 40, 8, 6, 40, 9, 0, 1, 4, 4, 17};
+		Architecture jit = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		Architecture interpreted = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		jit.setBlockJitEnabled(true, 2);
+		for (int i=0;i<program.length;i++) {
+			jit.getMemory().setData(i, program[i]);
+			interpreted.getMemory().setData(i, program[i]);
+		}
+		jit.controlUnitEexec();
+		interpreted.controlUnitEexec();
+		
+		assertEquals(0, jit.getMemory().getData(40));
+		assertEquals(0, jit.getRPG1().getData());
+		assertEquals(14, jit.getPC().getData());
+		assertEquals(1, jit.getFlags().getBit(0));
+		
+		//the compiled block must reach the same architectural state as the interpreter
+		for (int id=0;id<jit.getRegistersList().size();id++) {
+			assertEquals(interpreted.getRegistersList().get(id).getData(), jit.getRegistersList().get(id).getData());
+		}
+		for (int i=0;i<jit.getMemorySize();i++) {
+			assertEquals(interpreted.getMemory().getData(i), jit.getMemory().getData(i));
+		}
+		
+		BlockJit engine = jit.getBlockJit();
+		assertEquals(1, engine.getCompilations());
+		//iteration 1 falls through into the loop, iteration 2 is its first counted entry
+		assertEquals(48, engine.getBlockExecutions());
+		assertEquals(48*4, engine.getCompiledInstructions());
+		
+		//rewriting the loop body drops the compiled block
+		jit.getMemory().setData(5, 41);
+		assertEquals(1, engine.getInvalidations());
+		assertEquals(0, engine.getCompiledBlockCount());
+		
+		//a block that fails partway leaves PC on the failing instruction, with the earlier ones applied
+//		0: read 40; 2: inc; 3: store 40; 5: read <out of memory>; 7: halt
+		Architecture failing = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		failing.setBlockJitEnabled(true, 1);
+		failing.getMemory().load(0, new int[] {5, 40, 8, 6, 40, 5, failing.getMemorySize(), 17});
+		try {
+			failing.controlUnitEexec();
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+		assertEquals(1, failing.getBlockJit().getCompilations());
+		assertEquals(5, failing.getPC().getData());
+		assertEquals(5, failing.getIR().getData());
+		assertEquals(1, failing.getMemory().getData(40));
+		//fixing the operand and resuming does not repeat the increment
+		failing.getMemory().setData(6, 40);
+		failing.controlUnitEexec();
+		assertEquals(1, failing.getMemory().getData(40));
+		assertEquals(1, failing.getRPG().getData());
+		assertEquals(7, failing.getPC().getData());
+		
+		//an entry that could not be compiled is counted again once its code is rewritten,
+		//even when only an operand changes (0: move %reg2 %reg0 reads PC; 3: halt)
+		Architecture rewritten = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		rewritten.setBlockJitEnabled(true, 1);
+		rewritten.getMemory().load(0, new int[] {9, 2, 0, 17});
+		rewritten.controlUnitEexec();
+		assertEquals(0, rewritten.getBlockJit().getCompilations());
+		rewritten.getMemory().setData(1, 1); //move %reg1 %reg0
+		rewritten.getRPG1().setData(8);
+		rewritten.getPC().setData(0);
+		rewritten.controlUnitEexec();
+		assertEquals(1, rewritten.getBlockJit().getCompilations());
+		assertEquals(8, rewritten.getRPG().getData());
+		
+		//only available in FUNCTIONAL mode
+		try {
+			new Architecture().setBlockJitEnabled(true);
+			fail();
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void testBatchRunner() throws IOException {
+		//read 40; add 41; store 42; halt
+		File dxf = File.createTempFile("batch", ".dxf");
+		dxf.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(dxf)) {
+			for (int word : new int[] {5, 40, 0, 41, 6, 42, 17, -1}) {
+				out.println(word);
+			}
+		}
+		List<BatchRunner.Job> jobs = new ArrayList<>();
+		for (int i=0;i<20;i++) {
+			Map<Integer, Integer> patch = new HashMap<>();
+			patch.put(40, i);
+			patch.put(41, 100);
+			jobs.add(new BatchRunner.Job(dxf.getPath(), patch));
+		}
+		jobs.add(new BatchRunner.Job(dxf.getPath() + ".missing", null));
+		
+		List<BatchRunner.Result> results;
+		try (BatchRunner runner = new BatchRunner()) {
+			results = runner.run(jobs);
+		}
+		assertEquals(jobs.size(), results.size());
+		for (int i=0;i<20;i++) {
+			BatchRunner.Result result = results.get(i);
+			assertTrue(result.isSuccessful());
+			assertSame(jobs.get(i), result.getJob());
+			assertEquals(100 + i, result.getRegisters()[0]);
+			assertEquals(6, result.getRegisters()[2]);
+			assertEquals(4, result.getInstructionCount());
+		}
+		//same program and inputs -> same digests; different inputs -> different memory
+		BatchRunner.Result again;
+		try (BatchRunner runner = new BatchRunner(ExecutionMode.FUNCTIONAL, 1)) {
+			again = runner.run(jobs.subList(3, 4)).get(0);
+		}
+		assertEquals(results.get(3).getMemoryDigest(), again.getMemoryDigest());
+		assertEquals(results.get(3).getRegisterDigest(), again.getRegisterDigest());
+		assertTrue(results.get(3).getMemoryDigest() != results.get(4).getMemoryDigest());
+		//a broken job does not stop the others
+		assertFalse(results.get(20).isSuccessful());
+		assertNotNull(results.get(20).getError());
+
+		
+		//an endless program (jmp 0) is stopped by the instruction limit and reported as an error
+		File loop = File.createTempFile("loop", ".dxf");
+		loop.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(loop)) {
+			for (int word : new int[] {2, 0, -1}) {
+				out.println(word);
+			}
+		}
+		for (ExecutionMode mode : ExecutionMode.values()) {
+			try (BatchRunner runner = new BatchRunner(mode, 2, 1000)) {
+				results = runner.run(Arrays.asList(new BatchRunner.Job(loop.getPath(), null), jobs.get(5)));
+			}
+			assertFalse(results.get(0).isSuccessful());
+			assertTrue(results.get(0).getError() instanceof IllegalStateException);
+			assertNotNull(results.get(1));
+		}
+	}
+
+	@Test
+	public void testSnapshotRestore() throws IOException {
+		//ldi 5; store 40; read 40; add 40; store 41; halt
+		int program[] = {7, 5, 6, 40, 5, 40, 0, 40, 6, 41, 17};
+		Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		for (int i=0;i<program.length;i++) {
+			arch.getMemory().setData(i, program[i]);
+		}
+		arch.getMemory().setData(100, -7);
+		//a store in the middle of its two phases must survive the checkpoint
+		arch.getExtbus1().put(99);
+		arch.getMemory().store();
+		arch.getIntbus1().put(3);
+		Snapshot warm = arch.snapshot();
+		
+		File file = File.createTempFile("arch", ".snap");
+		file.deleteOnExit();
+		warm.save(file.getPath());
+		Snapshot loaded = Snapshot.load(file.getPath());
+		
+		arch.controlUnitEexec();
+		assertEquals(10, arch.getMemory().getData(41));
+		
+		//restoring on another instance reproduces the warm state
+		Architecture other = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		other.restore(loaded);
+		assertEquals(-7, other.getMemory().getData(100));
+		assertEquals(3, other.getIntbus1().get());
+		assertEquals(99, other.getExtbus1().get());
+		other.getExtbus1().put(12);
+		other.getMemory().store();
+		assertEquals(12, other.getMemory().getData(99));
+		
+		//restoring on the same instance undoes the execution
+		arch.restore(warm);
+		assertEquals(0, arch.getMemory().getData(41));
+		assertEquals(0, arch.getPC().getData());
+		arch.getMemory().store(); //data phase of the pending store (extbus1 still has 99)
+		arch.controlUnitEexec();
+		assertEquals(10, arch.getMemory().getData(41));
+		assertEquals(99, arch.getMemory().getData(99));
+		
+		//files that are not checkpoints are rejected
+		try (PrintWriter out = new PrintWriter(file)) {
+			out.println("not a snapshot");
+		}
+		try {
+			Snapshot.load(file.getPath());
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testTraceReplay() throws IOException {
+		//0:  ldi -50; 2: store 40; 4: read 40; 6: inc; 7: store 40; 9: move %reg0 %reg1; 12: jn 4; 14: halt
+		int program[] = {7, -50, 6, 40, 5, 40, 8, 6, 40, 9, 0, 1, 4, 4, 17};
+		Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		for (int i=0;i<program.length;i++) {
+			arch.getMemory().setData(i, program[i]);
+		}
+		File file = File.createTempFile("arch", ".trace");
+		file.deleteOnExit();
+		arch.startTrace(file.getPath(), 16);
+		arch.controlUnitEexec();
+		arch.stopTrace();
+		
+		try (TraceReplayer replay = new TraceReplayer(file.getPath())) {
+			//2 setup instructions, 50 iterations of 5 instructions, halt
+			assertEquals(253, replay.getInstructionCount());
+			//the final state matches the execution
+			replay.seek(253);
+			for (int id=0;id<arch.getRegistersList().size();id++) {
+				assertEquals(arch.getRegistersList().get(id).getData(), replay.getRegister(id));
+			}
+			assertArrayEquals(arch.getMemory().getDataList(), replay.getMemory());
+			assertEquals(Opcodes.HALT, replay.getLastOpcode());
+			//any past state, forwards and backwards
+			replay.seek(52);
+			assertEquals(-40, replay.getMemoryWord(40));
+			assertEquals(12, replay.getLastPC());
+			assertEquals(Opcodes.JN, replay.getLastOpcode());
+			assertArrayEquals(new int[] {4}, replay.getLastOperands());
+			replay.seek(7);
+			assertEquals(-49, replay.getMemoryWord(40));
+			assertEquals(4, replay.getRegister(2));
+			replay.seek(0);
+			assertEquals(0, replay.getMemoryWord(40));
+			assertEquals(-50, replay.getMemoryWord(1));
+		}
+	}
+
+	@Test
+	public void testCycleCounter() {
+		Architecture arch = new Architecture();
+		CycleCounter counter = new CycleCounter();
+		arch.setCycleCounter(counter);
+		arch.getMemory().setData(0, Opcodes.HALT);
+		//the fetch micro-steps: PC -> extbus, memory read, extbus -> IR
+		counter.beginInstruction();
+		arch.getPC().read();
+		arch.getMemory().read();
+		arch.getRegistersList().get(3).store();
+		counter.endInstruction(arch.getRegistersList().get(3).getData());
+		assertEquals(Opcodes.HALT, arch.getRegistersList().get(3).getData());
+		//reg read + bus put, bus get + mem read + bus put, bus get + reg store
+		assertEquals(7, counter.getCyclesForOpcode(Opcodes.HALT));
+		assertEquals(1, counter.getMicroOpCount(MicroOp.MEM_READ));
+		assertEquals(2, counter.getMicroOpCount(MicroOp.BUS_PUT));
+		
+		//every component of the architecture is wired, including the ULA
+		arch.getIntbus1().put(1);
+		arch.getUla().store(0);
+		assertEquals(1, counter.getMicroOpCount(MicroOp.ULA_STORE));
+		
+		//turning it off stops the accounting
+		arch.setCycleCounter(null);
+		arch.getPC().read();
+		assertEquals(10, counter.getTotalCycles());
+	}
+
+	@Test
+	public void testCycleCounterAllModes() {
+		//every opcode, with conditional jumps taken and not taken; imul ends at the halt in 0
+//		64:  ldi -2
+//		66:  store 40
+//		68:  read 40      //loop
+//		70:  add 41
+//		72:  sub 42
+//		74:  store 40
+//		76:  jn 68
+//		78:  jz 82
+//		82:  inc
+//		83:  jnz 87
+//		87:  call 120
+//		89:  move %reg0 %reg1
+//		92:  jeq %reg0 %reg1 97
+//		97:  jgt %reg0 %reg1 96
+//		101: jlw %reg0 %reg1 96
+//		105: jmp 108
+//		108: ldi 3
+//		110: imul %reg0 %reg1
+//		120: ldi 6        //subroutine
+//		122: ret
+		int program[] = new int[123];
+		int code[] = {7, -2, 6, 40, 5, 40, 0, 41, 1, 42, 6, 40, 4, 68, 3, 82, 17, 17, 8, 10, 87, 17, 17, 14, 120,
+				9, 0, 1, 11, 0, 1, 97, 17, 12, 0, 1, 96, 13, 0, 1, 96, 2, 108, 17, 7, 3, 16, 0, 1};
+		System.arraycopy(code, 0, program, 64, code.length);
+		program[0] = 17;
+		program[41] = 1;
+		program[120] = 7;
+		program[121] = 6;
+		program[122] = 15;
+		Architecture microcoded = new Architecture(false, ExecutionMode.MICROCODED);
+		microcoded.getMemory().load(0, program);
+		microcoded.getPC().setData(64);
+		CycleCounter expected = new CycleCounter();
+		expected.setCost(MicroOp.MEM_READ, 5);
+		microcoded.setCycleCounter(expected);
+		microcoded.controlUnitEexec();
+		assertEquals(26, expected.getInstructionCount());
+		for (int opcode=0;opcode<Opcodes.OPCODE_COUNT;opcode++) {
+			assertTrue(expected.getCyclesForOpcode(opcode) > 0);
+		}
+		assertEquals(2, expected.getInstructionsForOpcode(Opcodes.ADD));
+		
+		//the predecoded handlers, the functional core and the functional core with the JIT charge the same micro-ops
+		Architecture[] others = functionalAndPredecoded(program);
+		Architecture jit = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		jit.getMemory().load(0, program);
+		jit.setBlockJitEnabled(true, 1);
+		for (Architecture arch : new Architecture[] {others[0], others[1], jit}) {
+			CycleCounter counter = new CycleCounter();
+			counter.setCost(MicroOp.MEM_READ, 5);
+			arch.setCycleCounter(counter);
+			arch.getPC().setData(64);
+			arch.controlUnitEexec();
+			assertEquals(expected.getTotalCycles(), counter.getTotalCycles());
+			assertEquals(expected.getInstructionCount(), counter.getInstructionCount());
+			assertEquals(expected.getInstructionCount(), arch.getInstructionCount());
+			for (MicroOp op : MicroOp.values()) {
+				assertEquals(expected.getMicroOpCount(op), counter.getMicroOpCount(op));
+			}
+			for (int opcode=0;opcode<Opcodes.OPCODE_COUNT;opcode++) {
+				assertEquals(expected.getCyclesForOpcode(opcode), counter.getCyclesForOpcode(opcode));
+				assertEquals(expected.getInstructionsForOpcode(opcode), counter.getInstructionsForOpcode(opcode));
+			}
+			assertEquals(microcoded.getRPG1().getData(), arch.getRPG1().getData());
+			assertArrayEquals(microcoded.getMemory().copyDataList(), arch.getMemory().copyDataList());
+		}
+	}
+
+	@Test
+	public void testPipelineModel() {
+		//0: read 40; 2: inc; 3: store 41; 5: halt
+		int program[] = {5, 40, 8, 6, 41, 17};
+		//with the predecode cache, read+inc+store would be one fused entry: observers must still see 4 instructions
+		for (Architecture arch : functionalAndPredecoded(program)) {
+			PipelineModel forwarding = new PipelineModel(arch.getMemory(), true);
+			PipelineModel noForwarding = new PipelineModel(arch.getMemory(), false);
+			arch.addExecutionObserver(forwarding);
+			arch.addExecutionObserver(noForwarding);
+			arch.controlUnitEexec();
+			assertEquals(4, forwarding.getInstructionCount());
+			//inc waits one cycle for the loaded value; store gets inc's result forwarded into MEM
+			assertEquals(9, forwarding.getCycles());
+			assertEquals(1, forwarding.getStallCycles());
+			assertEquals(1, forwarding.getForwardedHazards());
+			//without forwarding both inc and store wait for the previous write back
+			assertEquals(12, noForwarding.getCycles());
+			assertEquals(4, noForwarding.getStallCycles());
+			assertEquals(2, noForwarding.getDataHazards(0));
+			assertEquals(3.0, noForwarding.getCPI(), 0.0001);
+			if (arch.isPredecodeEnabled()) {
+				assertEquals(0, arch.getDecodeCache().getFusionCount(Fusion.READ_INC_STORE));
+				//without observers the sequence is fused again
+				arch.removeExecutionObserver(forwarding);
+				arch.removeExecutionObserver(noForwarding);
+				arch.getPC().setData(0);
+				arch.controlUnitEexec();
+				assertEquals(1, arch.getDecodeCache().getFusionCount(Fusion.READ_INC_STORE));
+			}
+		}
+		
+		//0: ldi -3; 2: store 40; 4: read 40; 6: inc; 7: store 40; 9: jn 4; 11: halt
+		int loop[] = {7, -3, 6, 40, 5, 40, 8, 6, 40, 4, 4, 17};
+		Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		for (int i=0;i<loop.length;i++) {
+			arch.getMemory().setData(i, loop[i]);
+		}
+		PipelineModel model = new PipelineModel(arch.getMemory(), true);
+		arch.addExecutionObserver(model);
+		arch.controlUnitEexec();
+		assertEquals(15, model.getInstructionCount());
+		//jn is taken twice (-2, -1) and falls through once; each flush costs 2 cycles
+		assertEquals(2, model.getFlushCount());
+		assertEquals(4, model.getFlushCycles());
+		model.reset();
+		assertEquals(0, model.getCycles());
+	}
+
+	@Test
+	public void testBranchPredictors() {
+		//0:  ldi -50; 2: store 40; 4: read 40; 6: inc; 7: store 40; 9: move %reg0 %reg1; 12: jn 4; 14: halt
+		int program[] = {7, -50, 6, 40, 5, 40, 8, 6, 40, 9, 0, 1, 4, 4, 17};
+		Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		for (int i=0;i<program.length;i++) {
+			arch.getMemory().setData(i, program[i]);
+		}
+		BranchTargetBuffer btb = new BranchTargetBuffer(16);
+		BranchProfiler never = new BranchProfiler(arch.getMemory(), new StaticPredictor(StaticPredictor.Policy.NEVER_TAKEN));
+		BranchProfiler backward = new BranchProfiler(arch.getMemory(), new StaticPredictor(StaticPredictor.Policy.BACKWARD_TAKEN));
+		BranchProfiler oneBit = new BranchProfiler(arch.getMemory(), new OneBitPredictor(16));
+		BranchProfiler twoBit = new BranchProfiler(arch.getMemory(), new TwoBitPredictor(16));
+		BranchProfiler gshare = new BranchProfiler(arch.getMemory(), new GsharePredictor(16, 4));
+		BranchProfiler target = new BranchProfiler(arch.getMemory(), btb);
+		for (BranchProfiler profiler : new BranchProfiler[] {never, backward, oneBit, twoBit, gshare, target}) {
+			arch.addExecutionObserver(profiler);
+		}
+		arch.controlUnitEexec();
+		
+		//a single branch site: jn is taken 49 times and falls through once
+		assertEquals(1, twoBit.getSites().size());
+		assertEquals(50, twoBit.getSite(12).getExecutions());
+		assertEquals(49, twoBit.getSite(12).getTaken());
+		assertEquals(49, never.getMispredictions());
+		assertEquals(1, backward.getMispredictions());
+		//history predictors miss the first iteration and the loop exit
+		assertEquals(2, oneBit.getMispredictions());
+		assertEquals(2, twoBit.getMispredictions());
+		assertEquals(0.96, twoBit.getSite(12).getAccuracy(), 0.0001);
+		//gshare needs the 4 history bits to fill before it settles on one counter
+		assertEquals(6, gshare.getMispredictions());
+		assertEquals(2, target.getMispredictions());
+		assertEquals(49, btb.getHits());
+		assertEquals(4, btb.getTarget(12));
+		
+		twoBit.reset();
+		assertEquals(0, twoBit.getBranchCount());
+		assertTrue(twoBit.getSites().isEmpty());
+	}
+
+	/**
+	 * An architecture in FUNCTIONAL mode and one with the predecode cache, both holding the program.
+	 */
+	private static Architecture[] functionalAndPredecoded(int program[]) {
+		Architecture functional = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		Architecture predecoded = new Architecture();
+		predecoded.setPredecodeEnabled(true);
+		for (int i=0;i<program.length;i++) {
+			functional.getMemory().setData(i, program[i]);
+			predecoded.getMemory().setData(i, program[i]);
+		}
+		return new Architecture[] {functional, predecoded};
+	}
+
+	@Test
+	public void testCacheHierarchy() {
+		//0: ldi 2; 2: store 40; 4: read 40; 6: inc; 7: store 41; 9: halt (ldi+store is a fusion candidate)
+		int program[] = {7, 2, 6, 40, 5, 40, 8, 6, 41, 17};
+		for (Architecture arch : functionalAndPredecoded(program)) {
+			Cache l1 = new Cache("L1", 8, 1, 4, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK, 1);
+			CacheHierarchy caches = new CacheHierarchy(20, l1);
+			arch.setCacheHierarchy(caches);
+			arch.controlUnitEexec();
+			assertEquals(3, arch.getMemory().getData(41));
+			//10 instruction words, the words written by the stores and the word read by read 40
+			assertEquals(13, caches.getAccesses());
+			assertEquals(2, caches.getWrites());
+			//40 and 41 map to the same set as the code at 0..3 and 8..11: 0, 40, 4, 8, 41 and 9 miss
+			assertEquals(6, l1.getMisses());
+			assertEquals(7, l1.getHits());
+			assertEquals(6 * 21 + 7, caches.getTotalLatency());
+			if (arch.isPredecodeEnabled()) {
+				//with caches each instruction is executed (and accessed) on its own
+				assertEquals(0, arch.getDecodeCache().getFusionCount(Fusion.LDI_STORE));
+				assertEquals(6, arch.getInstructionCount());
+			}
+			arch.setCacheHierarchy(null);
+			assertNull(arch.getCacheHierarchy());
+		}
+	}
+
+	@Test
+	public void testPagedMemory() {
+		//0: ldi 5; 2: call 6; 4: halt; 6: store 40; 8: ret
+		int program[] = {7, 5, 14, 6, 17, 0, 6, 40, 15};
+		PagedMemoryStorage storage = new PagedMemoryStorage(PagedMemoryStorage.ADDRESS_SPACE_24_BITS);
+		Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL, storage);
+		arch.getMemory().load(0, program);
+		assertEquals(1 << 24, arch.getMemorySize());
+		assertEquals((1 << 24) - 1, arch.getRegistersList().get(6).getData());
+		arch.controlUnitEexec();
+		assertEquals(5, arch.getMemory().getData(40));
+		//the return address was pushed at the top of the address space
+		assertEquals(4, arch.getMemory().getData((1 << 24) - 2));
+		assertEquals((1 << 24) - 1, arch.getRegistersList().get(5).getData());
+		//only the code page and the stack page exist
+		assertEquals(2, storage.getAllocatedPages());
+	}
+
+	@Test
+	public void testMappedMemory() throws IOException {
+		File image = File.createTempFile("memory", ".img");
+		image.deleteOnExit();
+		//0: read 40; 2: inc; 3: store 41; 5: halt
+		try (MappedMemoryStorage storage = MappedMemoryStorage.create(image.getPath(), 128)) {
+			storage.copyIn(0, new int[] {5, 40, 8, 6, 41, 17}, 0, 6);
+			storage.set(40, 9);
+		}
+		//the saved image is mapped as the main memory and runs as is
+		try (MappedMemoryStorage storage = MappedMemoryStorage.open(image.getPath())) {
+			Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL, storage);
+			arch.controlUnitEexec();
+			assertEquals(10, arch.getMemory().getData(41));
+			Snapshot snapshot = arch.snapshot();
+			assertEquals(10, snapshot.getMemory()[41]);
+		}
+		//and the final state is in the file
+		try (MappedMemoryStorage storage = MappedMemoryStorage.open(image.getPath())) {
+			assertEquals(10, storage.get(41));
+		}
+	}
+
+	@Test
+	public void testFork() {
+		//0: read 40; 2: add 41; 4: store 42; 6: halt
+		int program[] = {5, 40, 0, 41, 6, 42, 17};
+		PagedMemoryStorage storage = new PagedMemoryStorage(PagedMemoryStorage.ADDRESS_SPACE_24_BITS);
+		Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL, storage);
+		arch.getMemory().load(0, program);
+		arch.getMemory().setData(40, 10);
+		arch.getMemory().setData(41, 1);
+		arch.getRegistersList().get(1).setData(77);
+		
+		//many variants from the same point: each child only changes its own input
+		Architecture[] children = new Architecture[3];
+		for (int v=0;v<children.length;v++) {
+			children[v] = arch.fork();
+			children[v].getMemory().setData(41, 100 * (v + 1));
+			children[v].controlUnitEexec();
+		}
+		for (int v=0;v<children.length;v++) {
+			assertEquals(10 + 100 * (v + 1), children[v].getMemory().getData(42));
+			assertEquals(77, children[v].getRegistersList().get(1).getData());
+		}
+		//the parent is untouched and still runs its own input
+		assertEquals(0, arch.getMemory().getData(42));
+		assertEquals(0, arch.getPC().getData());
+		arch.controlUnitEexec();
+		assertEquals(11, arch.getMemory().getData(42));
+		assertEquals(1, storage.getAllocatedPages());
+
+		
+		//a predecoded fork of the 16M-word memory only allocates decode entries for the code it runs
+		Architecture predecoded = new Architecture(false, ExecutionMode.MICROCODED,
+				new PagedMemoryStorage(PagedMemoryStorage.ADDRESS_SPACE_24_BITS));
+		predecoded.getMemory().load(0, program);
+		predecoded.getMemory().setData(40, 10);
+		predecoded.setPredecodeEnabled(true);
+		predecoded.controlUnitEexec();
+		assertEquals(1, predecoded.getDecodeCache().getAllocatedPages());
+		predecoded.getPC().setData(0);
+		Architecture child = predecoded.fork();
+		assertTrue(child.isPredecodeEnabled());
+		assertEquals(0, child.getDecodeCache().getAllocatedPages());
+		child.getMemory().setData(41, 5);
+		child.controlUnitEexec();
+		assertEquals(15, child.getMemory().getData(42));
+		assertEquals(1, child.getDecodeCache().getAllocatedPages());
+		
+		//the same for the block JIT tables; the instruction limit goes to the child too
+		Architecture jit = new Architecture(false, ExecutionMode.FUNCTIONAL,
+				new PagedMemoryStorage(PagedMemoryStorage.ADDRESS_SPACE_24_BITS));
+		jit.getMemory().load(0, program);
+		jit.setBlockJitEnabled(true, 1);
+		jit.setInstructionLimit(1000);
+		Architecture jitChild = jit.fork();
+		assertEquals(1000, jitChild.getInstructionLimit());
+		assertEquals(0, jitChild.getBlockJit().getAllocatedPages());
+		jitChild.getMemory().setData(40, 2);
+		jitChild.getMemory().setData(41, 3);
+		jitChild.controlUnitEexec();
+		assertEquals(5, jitChild.getMemory().getData(42));
+		assertEquals(1, jitChild.getBlockJit().getCompilations());
+		assertEquals(1, jitChild.getBlockJit().getAllocatedPages());
+	}
+
+	@Test
+	public void testWatchpoints() {
+		//0:  ldi -50; 2: store 40; 4: read 40; 6: inc; 7: store 40; 9: move %reg0 %reg1; 12: jn 4; 14: halt
+		int program[] = {7, -50, 6, 40, 5, 40, 8, 6, 40, 9, 0, 1, 4, 4, 17};
+		for (Architecture arch : functionalAndPredecoded(program)) {
+			if (!arch.isPredecodeEnabled()) {
+				arch.setBlockJitEnabled(true, 1);
+			}
+			List<int[]> changes = new ArrayList<>();
+			Watchpoint variable = arch.addWatchpoint(40, 1, Watchpoint.Kind.CHANGE,
+					(watchpoint, pc, address, oldValue, newValue) -> changes.add(new int[] {pc, oldValue, newValue}));
+			List<Integer> reads = new ArrayList<>();
+			arch.addWatchpoint(40, 1, Watchpoint.Kind.READ, (watchpoint, pc, address, oldValue, newValue) -> reads.add(pc));
+			arch.controlUnitEexec();
+			//the first store and the 50 stores of the loop, each reported with the storing instruction
+			assertEquals(51, changes.size());
+			assertArrayEquals(new int[] {2, 0, -50}, changes.get(0));
+			assertArrayEquals(new int[] {7, -50, -49}, changes.get(1));
+			assertArrayEquals(new int[] {7, -1, 0}, changes.get(50));
+			assertEquals(50, reads.size());
+			assertEquals(Integer.valueOf(4), reads.get(0));
+			if (arch.isPredecodeEnabled()) {
+				//the sequences are not fused while a watchpoint is set (read 40; inc; store 40 would be)
+				assertEquals(0, arch.getDecodeCache().getFusionCount(Fusion.READ_INC_STORE));
+			} else {
+				//the compiled blocks are not used while a watchpoint is set
+				assertEquals(0, arch.getBlockJit().getBlockExecutions());
+			}
+			arch.removeWatchpoint(variable);
+		}
+	}
+
+	@Test
+	public void testPredecodeInstrumentation() {
+		//0: ldi 3; 2: store 40; 4: read 40; 6: add 40; 8: store 41; 10: halt
+		int program[] = {7, 3, 6, 40, 5, 40, 0, 40, 6, 41, 17};
+		for (Architecture arch : functionalAndPredecoded(program)) {
+			List<String> events = new ArrayList<>();
+			ComponentEventListener listener = new ComponentEventListener() {
+				@Override
+				public void memoryRead(Memory m, int address, int value) {
+					events.add("MEM[" + address + "] = " + value);
+				}
+				@Override
+				public void memoryWrite(Memory m, int address, int value) {
+					events.add("MEM[" + address + "] <- " + value);
+				}
+			};
+			Instrumentation.addListener(listener);
+			try {
+				arch.controlUnitEexec();
+			} finally {
+				Instrumentation.removeListener(listener);
+			}
+			assertEquals(Arrays.asList("MEM[40] <- 3", "MEM[40] = 3", "MEM[40] = 3", "MEM[41] <- 6"), events);
+			assertEquals(6, arch.getMemory().getData(41));
+			assertEquals(6, arch.getInstructionCount());
+		}
+	}
+
+
+	@Test
+	public void testIncrementalCheckpoint() throws IOException {
+		//ldi 5; store 40; read 40; add 40; store 41; halt
+		int program[] = {7, 5, 6, 40, 5, 40, 0, 40, 6, 41, 17};
+		Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL, new ArrayMemoryStorage(4096));
+		arch.getMemory().load(0, program);
+		arch.getMemory().setData(3000, 9);
+		Snapshot full = arch.checkpoint();
+		assertFalse(full.isIncremental());
+		
+		//only the page written by the program goes into the next checkpoint
+		arch.controlUnitEexec();
+		Snapshot afterRun = arch.checkpoint();
+		assertTrue(afterRun.isIncremental());
+		assertSame(full, afterRun.getBase());
+		assertArrayEquals(new int[] {0}, afterRun.getPageIndexes());
+		arch.getMemory().setData(3000, 1);
+		Snapshot afterWrite = arch.checkpoint();
+		assertSame(afterRun, afterWrite.getBase());
+		assertArrayEquals(new int[] {3000 >> DirtyPageTracker.DEFAULT_PAGE_BITS}, afterWrite.getPageIndexes());
+		assertEquals(1, afterWrite.getMemory()[3000]);
+		assertEquals(10, afterWrite.getMemory()[41]);
+		
+		//the chain is saved one file per checkpoint and loaded base first
+		File[] files = new File[3];
+		Snapshot[] chain = {full, afterRun, afterWrite};
+		for (int i=0;i<files.length;i++) {
+			files[i] = File.createTempFile("arch", ".snap");
+			files[i].deleteOnExit();
+			chain[i].save(files[i].getPath());
+		}
+		assertTrue(files[2].length() < files[0].length());
+		Snapshot loaded = Snapshot.load(files[0].getPath());
+		loaded = Snapshot.load(files[1].getPath(), loaded);
+		loaded = Snapshot.load(files[2].getPath(), loaded);
+		Architecture other = new Architecture(false, ExecutionMode.FUNCTIONAL, new ArrayMemoryStorage(4096));
+		other.restore(loaded);
+		assertEquals(1, other.getMemory().getData(3000));
+		assertEquals(10, other.getMemory().getData(41));
+		try {
+			Snapshot.load(files[2].getPath());
+			fail("an incremental checkpoint needs its base");
+		} catch (IOException e) {
+			//expected
+		}
+		
+		//after a restore the restored checkpoint is the base of the next one
+		arch.restore(afterRun);
+		assertEquals(9, arch.getMemory().getData(3000));
+		arch.getMemory().setData(50, 4);
+		Snapshot branch = arch.checkpoint();
+		assertSame(afterRun, branch.getBase());
+		assertArrayEquals(new int[] {0}, branch.getPageIndexes());
+		assertEquals(9, branch.getMemory()[3000]);
+		assertEquals(4, branch.getMemory()[50]);
+		
+		arch.stopCheckpoints();
+		assertNull(arch.getDirtyPageTracker());
+		assertFalse(arch.checkpoint().isIncremental());
+	}
+
+	@Test
+	public void testSimulationLog() throws IOException {
+		//0: ldi 5; 2: inc; 3: store 40; 5: halt
+		Architecture arch = new Architecture(true, ExecutionMode.MICROCODED);
+		arch.getMemory().load(0, new int[] {7, 5, 8, 6, 40, 17});
+		StringWriter out = new StringWriter();
+		arch.startSimulationLog(out);
+		try {
+			arch.startSimulationLog(out);
+			fail("only one log at a time");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		arch.controlUnitEexec(); //does not wait for <Enter>
+		arch.stopSimulationLog();
+		assertEquals(4, arch.getInstructionCount());
+		assertEquals(6, arch.getMemory().getData(40));
+		String log = out.toString();
+		assertFalse(log.contains("<Enter>"));
+		
+		//one complete record per executed instruction, in order: fetch, registers before, registers after
+		String records[] = log.split("-------Fetch Phase------\n", -1);
+		assertEquals("", records[0]);
+		assertEquals(5, records.length);
+		String names[] = {"ldi", "inc", "store", "halt"};
+		int pcs[] = {0, 2, 3, 5, 5};
+		int opcodes[] = {7, 8, 6, 17};
+		int rpgs[] = {0, 5, 6, 6, 6};
+		for (int i=0;i<names.length;i++) {
+			String record = records[i + 1];
+			assertTrue(record, record.startsWith("PC: " + pcs[i] + "\nIR: " + opcodes[i] + "\n"
+					+ "----------BEFORE Decode and Execute phases--------------\n"
+					+ registerDump(rpgs[i], pcs[i], opcodes[i])
+					+ "Instrução: " + names[i] + "\n"
+					+ "PC atual: " + pcs[i] + ", IR: " + opcodes[i] + "\n"));
+			String after = record.substring(record.indexOf("-----------AFTER Decode and Execute phases--------------\n"));
+			assertTrue(after, after.endsWith(registerDump(rpgs[i + 1], pcs[i + 1], opcodes[i])));
+		}
+		//stopping twice is harmless
+		arch.stopSimulationLog();
+	}
+
+	/**
+	 * The register lines of a simulation log record, with RPG1 and Flags at 0 and an empty stack.
+	 */
+	private static String registerDump(int rpg, int pc, int ir) {
+		return "RPG0: " + rpg + "\nRPG1: 0\nPC: " + pc + "\nIR: " + ir + "\nFlags: 0\nStkTOP: 127\nStkBOT: 127\n";
+	}
+
+	@Test
+	public void testAsyncTraceWriter() throws IOException {
+		StringWriter out = new StringWriter();
+		AsyncTraceWriter writer = new AsyncTraceWriter(out, 4);
+		StringBuilder expected = new StringBuilder();
+		for (int i=0;i<1000;i++) {
+			writer.claim().append(i).append('\n');
+			writer.publish();
+			expected.append(i).append('\n');
+		}
+		//a claimed slot that is never published is not written
+		writer.claim().append("discarded");
+		writer.close();
+		assertEquals(expected.toString(), out.toString());
+		assertEquals(0, writer.getPending());
+		try {
+			writer.claim();
+			fail("a closed writer accepts no records");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		try {
+			new AsyncTraceWriter(out, 3);
+			fail("the capacity must be a power of 2");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void testHotSpotProfiler() {
+		//start: ldi -50; store 40; loop: read 40; inc; store 40; move %reg0 %reg1; jn loop; end: halt
+		int program[] = {7, -50, 6, 40, 5, 40, 8, 6, 40, 9, 0, 1, 4, 4, 17};
+		Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		arch.getMemory().load(0, program);
+		HotSpotProfiler profiler = new HotSpotProfiler(arch.getMemory(), null);
+		Map<String, Integer> labels = new HashMap<>();
+		labels.put("start", 0);
+		labels.put("loop", 4);
+		labels.put("end", 14);
+		profiler.setLabels(labels);
+		arch.addExecutionObserver(profiler);
+		arch.controlUnitEexec();
+		
+		assertEquals(1, profiler.getExecutions(0));
+		assertEquals(50, profiler.getExecutions(4));
+		assertEquals(0, profiler.getExecutions(5)); //operand, not an instruction
+		assertEquals(2 + 5 * 50 + 1, profiler.getTotalExecutions());
+		assertArrayEquals(new int[] {4, 6, 7, 9, 12}, profiler.getHotSpots(5));
+		assertEquals("loop+3", profiler.symbolize(7));
+		assertEquals("end", profiler.symbolize(14));
+		assertEquals(Long.valueOf(250), profiler.getCostByLabel().get("loop"));
+		assertEquals(Long.valueOf(2), profiler.getCostByLabel().get("start"));
+		String report = profiler.report(3);
+		assertTrue(report.contains("loop+2"));
+		assertFalse(report.contains("loop+5")); //only the 3 hottest addresses are listed
+		
+		profiler.reset();
+		assertEquals(0, profiler.getTotalExecutions());
+		assertEquals("7", new HotSpotProfiler(arch.getMemory(), null).symbolize(7)); //no labels
+		
+		//with a cycle counter every mode reports the micro-op cycles of each address
+		Architecture microcoded = new Architecture(false, ExecutionMode.MICROCODED);
+		microcoded.getMemory().load(0, program);
+		Architecture[] others = functionalAndPredecoded(program);
+		for (Architecture mode : new Architecture[] {microcoded, others[0], others[1]}) {
+			CycleCounter counter = new CycleCounter();
+			mode.setCycleCounter(counter);
+			HotSpotProfiler cycles = new HotSpotProfiler(mode.getMemory(), counter);
+			cycles.setLabels(labels);
+			mode.addExecutionObserver(cycles);
+			mode.controlUnitEexec();
+			
+			//per iteration: read 38, inc 31, store 39, move 55, jn 44
+			assertEquals(50 * 55, cycles.getCycles(9));
+			assertEquals(50 * 38, cycles.getCycles(4));
+			assertEquals(counter.getTotalCycles(), cycles.getTotalCycles());
+			assertArrayEquals(new int[] {9, 12, 7, 4, 6}, cycles.getHotSpots(5));
+			assertEquals(Long.valueOf(50 * (38 + 31 + 39 + 55 + 44)), cycles.getCostByLabel().get("loop"));
+			//the Ciclos column of the move row holds its cycles, not zero
+			String row = null;
+			for (String line : cycles.report(5).split("\n")) {
+				if (line.startsWith(String.format("%6d", 9))) {
+					row = line;
+				}
+			}
+			assertTrue(row, row.matches(".*loop\\+5 .* 50 +2750 .*"));
+		}
+	}
+
+	@Test
+	public void testLoadExecutable() throws IOException {
+		//read 40; add 41; store 42; halt, loaded at 10, and a data segment at 40
+		BinaryExecutable executable = new BinaryExecutable(10, 10);
+		executable.addSegment(0, new int[] {5, 40, 0, 41, 6, 42, 17});
+		executable.addSegment(30, new int[] {20, 22}); //data at 40 and 41
+		File file = File.createTempFile("arch", BinaryExecutable.EXTENSION);
+		file.deleteOnExit();
+		executable.save(file.getPath());
+		
+		Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		arch.loadExecutable(file.getPath());
+		assertEquals(10, arch.getPC().getData());
+		assertEquals(20, arch.getMemory().getData(40));
+		arch.controlUnitEexec();
+		assertEquals(42, arch.getMemory().getData(42));
+		assertEquals(4, arch.getInstructionCount());
+		
+		//segments that do not fit are rejected
+		executable = new BinaryExecutable(0, arch.getMemorySize() - 1);
+		executable.addSegment(0, new int[] {17, 17});
+		executable.save(file.getPath());
+		try {
+			arch.loadExecutable(file.getPath());
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
 }
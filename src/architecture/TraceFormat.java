@@ -0,0 +1,108 @@
+package architecture;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Constantes e codificação compartilhadas por TraceRecorder e TraceReplayer.
+ *
+ * Layout do arquivo:
+ *   cabeçalho:  "OACT", versão, tamanho da memória, quantidade de registradores
+ *   registros:  'K' keyframe (estado completo) | 'I' uma instrução executada
+ *   rodapé:     'E', total de instruções, lista de keyframes (índice, posição), e por fim
+ *               8 bytes com a posição do 'E'
+ * Inteiros de tamanho variável usam zigzag + 7 bits por byte.
+ */
+final class TraceFormat {
+
+    static final int MAGIC = 0x4F414354; // "OACT"
+    static final int VERSION = 1;
+    static final byte KEYFRAME = 'K';
+    static final byte INSTRUCTION = 'I';
+    static final byte END = 'E';
+
+    static final int BUFFER_SIZE = 1 << 16;
+    static final int MAX_VARINT_BYTES = 5;
+
+    private TraceFormat() {
+    }
+
+    static void putVarInt(ByteBuffer buffer, int value) {
+        int v = (value << 1) ^ (value >> 31);
+        while ((v & ~0x7f) != 0) {
+            buffer.put((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    /**
+     * Leitor sequencial com buffer sobre um FileChannel, que permite reposicionar a leitura.
+     */
+    static final class Reader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long bufferStart; // Posição no arquivo do primeiro byte do buffer
+
+        Reader(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        long position() {
+            return bufferStart + buffer.position();
+        }
+
+        void seek(long position) {
+            if (position >= bufferStart && position <= bufferStart + buffer.limit()) {
+                buffer.position((int) (position - bufferStart));
+                return;
+            }
+            bufferStart = position;
+            buffer.limit(0);
+        }
+
+        byte get() throws IOException {
+            if (!buffer.hasRemaining()) {
+                bufferStart += buffer.limit();
+                buffer.clear();
+                int read = channel.read(buffer, bufferStart);
+                buffer.flip();
+                if (read <= 0) {
+                    throw new EOFException("Trace truncado na posição " + bufferStart + ".");
+                }
+            }
+            return buffer.get();
+        }
+
+        int getVarInt() throws IOException {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = get() & 0xff;
+                v |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return (v >>> 1) ^ -(v & 1);
+                }
+            }
+            throw new IOException("Trace corrompido: inteiro longo demais.");
+        }
+
+        long getLong() throws IOException {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (get() & 0xff);
+            }
+            return v;
+        }
+
+        int getInt() throws IOException {
+            int v = 0;
+            for (int i = 0; i < 4; i++) {
+                v = (v << 8) | (get() & 0xff);
+            }
+            return v;
+        }
+    }
+}
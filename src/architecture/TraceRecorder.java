@@ -0,0 +1,232 @@
+package architecture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import components.Memory;
+import components.MemoryWriteListener;
+import components.Opcodes;
+
+/**
+ * Grava um trace binário da execução: para cada instrução, o PC, o opcode, os operandos,
+ * os registradores que mudaram e as palavras de memória escritas.
+ *
+ * O arquivo começa com o estado completo (keyframe) e repete o estado completo a cada
+ * `keyframeInterval` instruções; o rodapé traz o índice dos keyframes, de modo que o TraceReplayer
+ * chega a qualquer instrução aplicando no máximo `keyframeInterval` registros, sem reexecutar nada.
+ *
+ * Uso: beginInstruction() antes e endInstruction() depois de cada instrução (a Architecture e o
+ * FunctionalCore fazem isso quando há um gravador ligado). Escritas na memória feitas fora de uma
+ * instrução entram no registro da instrução seguinte. As falhas de escrita do arquivo são
+ * relançadas como UncheckedIOException, já que o laço de execução não declara IOException.
+ */
+public class TraceRecorder implements ExecutionObserver, MemoryWriteListener, AutoCloseable {
+
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TraceFormat.BUFFER_SIZE);
+    private long flushedBytes; // Bytes já gravados no canal
+
+    private final Memory memory;
+    private final int keyframeInterval;
+    private final int[] lastRegisters;       // Estado dos registradores no último registro gravado
+    private final boolean[] dirty;           // Palavras escritas desde o último registro
+    private int[] dirtyAddresses = new int[16];
+    private int dirtyCount;
+
+    private final List<long[]> keyframes = new ArrayList<>(); // {índice da instrução, posição no arquivo}
+    private long instructionCount;
+    private int currentPC;          // Instrução em andamento (lida antes de executar)
+    private int currentOpcode;
+    private final int[] currentOperands = new int[3];
+    private int currentOperandCount;
+    private boolean closed;
+
+    /**
+     * Cria o arquivo e grava o estado inicial.
+     * @param fileName Caminho do trace.
+     * @param memory A memória observada.
+     * @param registers Os valores atuais dos registradores (na ordem de registersList).
+     * @param keyframeInterval A cada quantas instruções o estado completo é repetido.
+     * @throws IOException Se o arquivo não puder ser criado.
+     */
+    public TraceRecorder(String fileName, Memory memory, int[] registers, int keyframeInterval) throws IOException {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("O intervalo entre keyframes deve ser positivo.");
+        }
+        this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.memory = memory;
+        this.keyframeInterval = keyframeInterval;
+        this.lastRegisters = registers.clone();
+        this.dirty = new boolean[memory.getMemorySize()];
+
+        buffer.putInt(TraceFormat.MAGIC);
+        buffer.put((byte) TraceFormat.VERSION);
+        TraceFormat.putVarInt(buffer, memory.getMemorySize());
+        TraceFormat.putVarInt(buffer, registers.length);
+        try {
+            writeKeyframe(registers);
+        } catch (UncheckedIOException e) {
+            channel.close();
+            throw e.getCause();
+        }
+        memory.addWriteListener(this);
+    }
+
+    @Override
+    public void beginInstruction(int pc, int[] registers) {
+        if (instructionCount != 0 && instructionCount % keyframeInterval == 0) {
+            writeKeyframe(registers);
+        }
+        int size = memory.getMemorySize();
+        currentPC = pc;
+        currentOpcode = pc >= 0 && pc < size ? memory.getData(pc) : 0;
+        currentOperandCount = Math.max(0, Math.min(Opcodes.getInstructionSize(currentOpcode) - 1, size - pc - 1));
+        for (int i = 0; i < currentOperandCount; i++) {
+            currentOperands[i] = memory.getData(pc + 1 + i);
+        }
+    }
+
+    /**
+     * Grava o registro da instrução com o que mudou.
+     */
+    @Override
+    public void endInstruction(int[] registers) {
+        ensure(1 + TraceFormat.MAX_VARINT_BYTES * (4 + currentOperandCount + registers.length));
+        buffer.put(TraceFormat.INSTRUCTION);
+        TraceFormat.putVarInt(buffer, currentPC);
+        TraceFormat.putVarInt(buffer, currentOpcode);
+        TraceFormat.putVarInt(buffer, currentOperandCount);
+        for (int i = 0; i < currentOperandCount; i++) {
+            TraceFormat.putVarInt(buffer, currentOperands[i]);
+        }
+        int mask = 0;
+        for (int id = 0; id < registers.length; id++) {
+            if (registers[id] != lastRegisters[id]) {
+                mask |= 1 << id;
+            }
+        }
+        TraceFormat.putVarInt(buffer, mask);
+        for (int id = 0; id < registers.length; id++) {
+            if ((mask & (1 << id)) != 0) {
+                TraceFormat.putVarInt(buffer, registers[id]);
+                lastRegisters[id] = registers[id];
+            }
+        }
+        TraceFormat.putVarInt(buffer, dirtyCount);
+        for (int i = 0; i < dirtyCount; i++) {
+            int address = dirtyAddresses[i];
+            ensure(2 * TraceFormat.MAX_VARINT_BYTES);
+            TraceFormat.putVarInt(buffer, address);
+            TraceFormat.putVarInt(buffer, memory.getData(address));
+            dirty[address] = false;
+        }
+        dirtyCount = 0;
+        instructionCount++;
+    }
+
+    /**
+     * Marca as palavras escritas; os valores finais são lidos no fim da instrução.
+     */
+    @Override
+    public void memoryWritten(int startAddress, int length) {
+        int end = Math.min(dirty.length, startAddress + length);
+        for (int a = Math.max(0, startAddress); a < end; a++) {
+            if (!dirty[a]) {
+                dirty[a] = true;
+                if (dirtyCount == dirtyAddresses.length) {
+                    int[] grown = new int[dirtyAddresses.length * 2];
+                    System.arraycopy(dirtyAddresses, 0, grown, 0, dirtyCount);
+                    dirtyAddresses = grown;
+                }
+                dirtyAddresses[dirtyCount++] = a;
+            }
+        }
+    }
+
+    /**
+     * Grava o estado completo (memória e registradores) no índice atual.
+     * As escritas pendentes já estão contidas nele.
+     */
+    private void writeKeyframe(int[] registers) {
+        ensure(1);
+        keyframes.add(new long[] {instructionCount, position()});
+        buffer.put(TraceFormat.KEYFRAME);
+        for (int a = 0; a < dirty.length; a++) {
+            ensure(TraceFormat.MAX_VARINT_BYTES);
+            TraceFormat.putVarInt(buffer, memory.getData(a));
+        }
+        ensure(TraceFormat.MAX_VARINT_BYTES * registers.length);
+        for (int id = 0; id < registers.length; id++) {
+            TraceFormat.putVarInt(buffer, registers[id]);
+            lastRegisters[id] = registers[id];
+        }
+        for (int i = 0; i < dirtyCount; i++) {
+            dirty[dirtyAddresses[i]] = false;
+        }
+        dirtyCount = 0;
+    }
+
+    private long position() {
+        return flushedBytes + buffer.position();
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                flushedBytes += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    public long getInstructionCount() { return instructionCount; }
+
+    /**
+     * Grava o rodapé, fecha o arquivo e deixa de observar a memória.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        memory.removeWriteListener(this);
+        try {
+            ensure(1 + TraceFormat.MAX_VARINT_BYTES + 8);
+            long end = position();
+            buffer.put(TraceFormat.END);
+            buffer.putLong(instructionCount);
+            TraceFormat.putVarInt(buffer, keyframes.size());
+            for (long[] keyframe : keyframes) {
+                ensure(16);
+                buffer.putLong(keyframe[0]);
+                buffer.putLong(keyframe[1]);
+            }
+            ensure(8);
+            buffer.putLong(end);
+            flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package architecture;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reconstrói, a partir de um trace gravado pelo TraceRecorder, o estado (memória e registradores)
+ * depois de qualquer quantidade de instruções, sem reexecutar o programa: parte do keyframe
+ * mais próximo e aplica os registros gravados.
+ */
+public class TraceReplayer implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final TraceFormat.Reader reader;
+
+    private final int[] memory;
+    private final int[] registers;
+    private final long instructionCount;
+    private final long[] keyframeIndexes;
+    private final long[] keyframePositions;
+    private final long end; // Posição do rodapé
+
+    private long index = -1; // Instruções aplicadas ao estado atual (-1 = nenhum keyframe carregado)
+
+    private int lastPC;      // A última instrução aplicada
+    private int lastOpcode;
+    private int[] lastOperands = new int[0];
+
+    /**
+     * Abre o trace e posiciona o estado no início (antes da primeira instrução).
+     * @param fileName Caminho do trace.
+     * @throws IOException Se o arquivo não puder ser lido, não for um trace ou não tiver sido fechado.
+     */
+    public TraceReplayer(String fileName) throws IOException {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            reader = new TraceFormat.Reader(channel);
+            if (reader.getInt() != TraceFormat.MAGIC) {
+                throw new IOException("Arquivo não é um trace da arquitetura.");
+            }
+            int version = reader.get() & 0xff;
+            if (version != TraceFormat.VERSION) {
+                throw new IOException("Versão de trace não suportada: " + version);
+            }
+            memory = new int[reader.getVarInt()];
+            registers = new int[reader.getVarInt()];
+
+            if (channel.size() < 8) {
+                throw new IOException("Trace sem rodapé (o gravador não foi fechado?).");
+            }
+            reader.seek(channel.size() - 8);
+            end = reader.getLong();
+            reader.seek(end);
+            if (end < 0 || end >= channel.size() || reader.get() != TraceFormat.END) {
+                throw new IOException("Trace sem rodapé (o gravador não foi fechado?).");
+            }
+            instructionCount = reader.getLong();
+            int keyframes = reader.getVarInt();
+            keyframeIndexes = new long[keyframes];
+            keyframePositions = new long[keyframes];
+            for (int k = 0; k < keyframes; k++) {
+                keyframeIndexes[k] = reader.getLong();
+                keyframePositions[k] = reader.getLong();
+            }
+            seek(0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Leva o estado para depois de `instruction` instruções (0 = estado inicial).
+     * @param instruction O índice desejado, entre 0 e getInstructionCount().
+     * @throws IOException Se a leitura falhar ou o trace estiver corrompido.
+     */
+    public void seek(long instruction) throws IOException {
+        if (instruction < 0 || instruction > instructionCount) {
+            throw new IndexOutOfBoundsException("Instrução " + instruction + " fora do trace [0, " + instructionCount + "]");
+        }
+        // Keyframe anterior ao alvo (estritamente), para que a última instrução aplicada seja conhecida
+        int k = keyframeIndexes.length - 1;
+        while (k > 0 && keyframeIndexes[k] >= instruction) {
+            k--;
+        }
+        if (index < 0 || instruction < index || keyframeIndexes[k] > index) {
+            reader.seek(keyframePositions[k]);
+            readRecord();
+        }
+        while (index < instruction) {
+            readRecord();
+        }
+    }
+
+    /**
+     * Lê e aplica o próximo registro.
+     */
+    private void readRecord() throws IOException {
+        if (reader.position() >= end) {
+            throw new IOException("Trace corrompido: registros terminam antes da instrução " + instructionCount + ".");
+        }
+        byte tag = reader.get();
+        if (tag == TraceFormat.KEYFRAME) {
+            long position = reader.position() - 1;
+            for (int a = 0; a < memory.length; a++) {
+                memory[a] = reader.getVarInt();
+            }
+            for (int id = 0; id < registers.length; id++) {
+                registers[id] = reader.getVarInt();
+            }
+            for (int k = 0; k < keyframePositions.length; k++) {
+                if (keyframePositions[k] == position) {
+                    index = keyframeIndexes[k];
+                    return;
+                }
+            }
+            throw new IOException("Trace corrompido: keyframe fora do índice na posição " + position + ".");
+        } else if (tag == TraceFormat.INSTRUCTION) {
+            lastPC = reader.getVarInt();
+            lastOpcode = reader.getVarInt();
+            int[] operands = new int[reader.getVarInt()];
+            for (int i = 0; i < operands.length; i++) {
+                operands[i] = reader.getVarInt();
+            }
+            lastOperands = operands;
+            int mask = reader.getVarInt();
+            for (int id = 0; id < registers.length; id++) {
+                if ((mask & (1 << id)) != 0) {
+                    registers[id] = reader.getVarInt();
+                }
+            }
+            int writes = reader.getVarInt();
+            for (int w = 0; w < writes; w++) {
+                int address = reader.getVarInt();
+                memory[address] = reader.getVarInt();
+            }
+            index++;
+        } else {
+            throw new IOException("Trace corrompido: registro desconhecido '" + (char) tag + "' na posição " + (reader.position() - 1) + ".");
+        }
+    }
+
+    public long getInstructionCount() { return instructionCount; }
+    public long getPosition() { return index; }
+
+    // Estado reconstruído (cópias)
+    public int[] getMemory() { return memory.clone(); }
+    public int[] getRegisters() { return registers.clone(); }
+    public int getMemoryWord(int address) { return memory[address]; }
+    public int getRegister(int id) { return registers[id]; }
+
+    // A última instrução aplicada (válida quando getPosition() > 0)
+    public int getLastPC() { return lastPC; }
+    public int getLastOpcode() { return lastOpcode; }
+    public int[] getLastOperands() { return lastOperands.clone(); }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,63 @@
+package architecture;
+
+import java.util.Arrays;
+
+/**
+ * Preditor de 2 bits: cada entrada da tabela (indexada pelos bits baixos do PC) é um contador
+ * saturado de 0 a 3; 2 e 3 prevêem "tomado". Um laço só erra na saída, e não também na volta,
+ * como acontece com o preditor de 1 bit.
+ */
+public class TwoBitPredictor implements BranchPredictor {
+
+    static final int WEAKLY_NOT_TAKEN = 1;
+
+    private final byte[] counters;
+    private final int mask;
+
+    /**
+     * @param entries O tamanho da tabela (potência de 2).
+     */
+    public TwoBitPredictor(int entries) {
+        mask = checkEntries(entries) - 1;
+        counters = new byte[entries];
+        reset();
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        return counters[pc & mask] >= 2;
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+        counters[pc & mask] = (byte) train(counters[pc & mask], taken);
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(counters, (byte) WEAKLY_NOT_TAKEN);
+    }
+
+    @Override
+    public String getName() {
+        return "2-bit (" + counters.length + ")";
+    }
+
+    /**
+     * Move um contador de 2 bits na direção do resultado.
+     */
+    static int train(int counter, boolean taken) {
+        return taken ? Math.min(3, counter + 1) : Math.max(0, counter - 1);
+    }
+
+    /**
+     * Valida o tamanho de uma tabela de preditor.
+     * @return O próprio tamanho.
+     */
+    static int checkEntries(int entries) {
+        if (entries <= 0 || (entries & (entries - 1)) != 0) {
+            throw new IllegalArgumentException("O tamanho da tabela deve ser uma potência de 2: " + entries);
+        }
+        return entries;
+    }
+}
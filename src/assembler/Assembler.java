@@ -7,6 +7,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap; // Para um mapeamento mais robusto de registers
 import java.util.List;
 import java.util.Map;
@@ -31,6 +32,7 @@ public class Assembler {
     // Mapas para resolver labels e variáveis durante a montagem
     private Map<String, Integer> labelAddresses; // labelName -> address
     private Map<String, Integer> variableAddresses; // variableName -> address
+    private ArrayList<String> variables; // Nomes das variáveis, na ordem de declaração
 
     // Lista de comandos da arquitetura (para validação e lookup)
     private List<String> commands; 
@@ -43,6 +45,7 @@ public class Assembler {
         this.execProgram = new ArrayList<>();
         this.labelAddresses = new HashMap<>();
         this.variableAddresses = new HashMap<>(); // Novo mapa para endereços de variáveis
+        this.variables = new ArrayList<>();
         
         // Preenche a lista de comandos a partir de Opcodes.java
         // Isso é para o `findCommandNumber` e `proccessCommand` entenderem os comandos.
@@ -75,6 +78,12 @@ public class Assembler {
     // --- Getters para TDD (mantidos) ---
     public ArrayList<String> getObjProgram() { return objProgram; }
     protected Map<String, Integer> getLabelsAddresses() { return labelAddresses; }
+
+    /**
+     * @return Os labels do programa montado (nome -> endereço), somente leitura.
+     *         Usado para traduzir endereços em nomes (ex: HotSpotProfiler).
+     */
+    public Map<String, Integer> getLabels() { return Collections.unmodifiableMap(labelAddresses); }
     protected Map<String, Integer> getVariablesAddresses() { return variableAddresses; }
     public ArrayList<String> getExecProgram() { return execProgram; }
     protected void setLines(ArrayList<String> lines) { this.lines = lines; } 
@@ -123,6 +132,14 @@ public class Assembler {
      * Pass 2: Processes commands, variables, and replaces labels/variables with addresses.
      */
     public void parse() {
+        firstPass();
+        secondPass();
+    }
+
+    /**
+     * Passagem 1 do parse(): mapeia as labels para seus endereços e coleta os nomes das variáveis.
+     */
+    protected void firstPass() {
         // --- Passagem 1: Mapear Labels e Coletar Variáveis ---
         // A lógica do seu parse() original misturava. Vamos separar para clareza.
         int currentProgramAddress = 0; // Endereço de início do código de máquina (após variáveis, mas ainda não sabemos o tamanho das vars)
@@ -159,7 +176,12 @@ public class Assembler {
                 }
             }
         }
+    }
 
+    /**
+     * Passagem 2 do parse(): gera o programa objeto (`objProgram`). Depende das variáveis coletadas por firstPass().
+     */
+    protected void secondPass() {
         // --- Passagem 2: Gerar Programa Objeto (`objProgram`) e Alocar Variáveis ---
         int programCodeStartOffset = variables.size(); // Offset para o início do código se as vars estivessem no início.
                                                       // Mas as vars estão no fim da memória.
@@ -491,7 +513,7 @@ public class Assembler {
      * @param filenameWithoutExtension The base filename.
      * @throws IOException If there is an error writing the file.
      */
-    private void saveExecFile(String filenameWithoutExtension) throws IOException {
+    protected void saveExecFile(String filenameWithoutExtension) throws IOException {
         File file = new File(filenameWithoutExtension + ".dxf");
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
             for (String l : execProgram) {
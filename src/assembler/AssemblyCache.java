@@ -0,0 +1,253 @@
+package assembler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import components.Opcodes;
+
+/**
+ * Cache de montagem para quem monta os mesmos programas muitas vezes (ex: a cada início da
+ * Architecture ou em cada teste de um lote).
+ *
+ * - Acerto: a chave é o SHA-256 do texto .dsf junto com a configuração do montador (tamanho da memória,
+ *   tabela de opcodes e tamanho de cada instrução). Um acerto devolve a imagem montada sem ler o texto.
+ * - Edição: cada programa tem um nome (ex: o caminho do .dsf). Se o texto de um nome mudou, só as linhas
+ *   entre o começo e o fim iguais ao da versão anterior são montadas de novo (StreamingAssembler.splice());
+ *   as labels e variáveis são resolvidas de novo a partir das tabelas de símbolos guardadas.
+ * - Opcionalmente as imagens também são gravadas em um diretório, como executáveis .dbx com o hash
+ *   no nome, e sobrevivem ao fim do processo. Falhas de leitura nesse diretório são tratadas como falta.
+ *
+ * As imagens e as versões anteriores são guardadas em LRU, até `capacity` de cada.
+ * Não é thread-safe.
+ */
+public class AssemblyCache {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    private static final String FORMAT = "StreamingAssembler/1"; // Muda se a montagem mudar
+
+    /**
+     * A última versão montada de um programa com nome.
+     */
+    private static final class Source {
+        final List<String> lines;
+        final StreamingAssembler assembler;
+
+        Source(List<String> lines, StreamingAssembler assembler) {
+            this.lines = lines;
+            this.assembler = assembler;
+        }
+    }
+
+    private final int memorySize;
+    private final byte[] configuration;
+    private final Map<String, int[]> images;   // Hash -> imagem
+    private final Map<String, Source> sources; // Nome -> última versão
+    private File directory;
+
+    private long hits;
+    private long incrementalAssemblies;
+    private long fullAssemblies;
+
+    public AssemblyCache(int memorySize) {
+        this(memorySize, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param memorySize O tamanho da memória usado para alocar as variáveis.
+     * @param capacity Quantas imagens (e quantas versões anteriores) guardar.
+     */
+    public AssemblyCache(int memorySize, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("A capacidade deve ser positiva.");
+        }
+        this.memorySize = memorySize;
+        this.images = lru(capacity);
+        this.sources = lru(capacity);
+        StringBuilder sb = new StringBuilder(FORMAT).append('\n');
+        sb.append("memorySize=").append(memorySize).append('\n');
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(Opcodes.getOpcodeTable()).entrySet()) {
+            sb.append(entry.getKey()).append('=').append(entry.getValue())
+              .append(',').append(Opcodes.getInstructionSize(entry.getValue())).append('\n');
+        }
+        this.configuration = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static <V> Map<String, V> lru(int capacity) {
+        return new LinkedHashMap<String, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Guarda (e procura) as imagens também em um diretório.
+     * @param directory O diretório (criado se não existir), ou null para usar só a memória.
+     */
+    public void setDirectory(File directory) {
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new UncheckedIOException(new IOException("Não foi possível criar o diretório " + directory));
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Monta filename.dsf; o caminho é o nome do programa para a remontagem incremental.
+     * @return A imagem montada, a partir do endereço 0.
+     * @throws IOException Se o arquivo não puder ser lido.
+     */
+    public int[] assemble(String filenameWithoutExtension) throws IOException {
+        String source = new String(Files.readAllBytes(Paths.get(filenameWithoutExtension + ".dsf")), StandardCharsets.UTF_8);
+        return assemble(filenameWithoutExtension, source);
+    }
+
+    /**
+     * Monta um programa, reaproveitando o que for possível.
+     * @param name Identifica o programa entre as chamadas: a versão anterior com o mesmo nome é a base da
+     *             remontagem incremental. Pode ser null (sem remontagem incremental).
+     * @param source O texto assembly.
+     * @return A imagem montada, a partir do endereço 0 (uma cópia, que pode ser alterada).
+     * @throws IllegalArgumentException Se o programa tiver erros de montagem.
+     */
+    public int[] assemble(String name, String source) {
+        String hash = hash(source);
+        int[] image = images.get(hash);
+        if (image == null) {
+            image = readFromDirectory(hash);
+        }
+        if (image != null) {
+            hits++;
+            images.put(hash, image);
+            return image.clone();
+        }
+
+        List<String> lines = split(source);
+        Source previous = name == null ? null : sources.remove(name);
+        StreamingAssembler assembler = null;
+        if (previous != null) {
+            assembler = reassemble(previous, lines);
+        }
+        if (assembler == null) {
+            assembler = new StreamingAssembler(memorySize);
+            assembler.begin(true);
+            for (String line : lines) {
+                assembler.assembleLine(line);
+            }
+            assembler.resolve();
+            fullAssemblies++;
+        } else {
+            incrementalAssemblies++;
+        }
+        image = assembler.getImage();
+        images.put(hash, image);
+        if (name != null) {
+            sources.put(name, new Source(lines, assembler));
+        }
+        writeToDirectory(hash, image);
+        return image.clone();
+    }
+
+    /**
+     * Monta só as linhas entre o começo e o fim em comum com a versão anterior.
+     * @return O montador atualizado, ou null se a remontagem incremental não se aplicar.
+     */
+    private static StreamingAssembler reassemble(Source previous, List<String> lines) {
+        List<String> old = previous.lines;
+        int limit = Math.min(old.size(), lines.size());
+        int prefix = 0;
+        while (prefix < limit && old.get(prefix).equals(lines.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix && old.get(old.size() - 1 - suffix).equals(lines.get(lines.size() - 1 - suffix))) {
+            suffix++;
+        }
+        List<String> inserted = lines.subList(prefix, lines.size() - suffix);
+        boolean spliced = previous.assembler.splice(prefix, old.size() - suffix - prefix, inserted);
+        return spliced ? previous.assembler : null;
+    }
+
+    private static List<String> split(String source) {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new StringReader(source))) { // Mesmas quebras de linha do StreamingAssembler
+            String line;
+            while ((line = br.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Não acontece com StringReader
+        }
+        return lines;
+    }
+
+    private String hash(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(configuration);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Toda JVM tem SHA-256
+        }
+    }
+
+    private int[] readFromDirectory(String hash) {
+        if (directory == null) {
+            return null;
+        }
+        File file = new File(directory, hash + BinaryExecutable.EXTENSION);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            List<BinaryExecutable.Segment> segments = BinaryExecutable.load(file.getPath()).getSegments();
+            return segments.size() == 1 ? segments.get(0).getWords() : null;
+        } catch (IOException e) {
+            return null; // Arquivo corrompido: monta de novo e o sobrescreve
+        }
+    }
+
+    private void writeToDirectory(String hash, int[] image) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            BinaryExecutable.of(image).save(new File(directory, hash + BinaryExecutable.EXTENSION).getPath());
+        } catch (IOException e) {
+            System.err.println("Não foi possível gravar a imagem no cache de montagem: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Esquece as imagens e as versões anteriores guardadas em memória (o diretório não é apagado).
+     */
+    public void clear() {
+        images.clear();
+        sources.clear();
+    }
+
+    public int getMemorySize() { return memorySize; }
+    public long getHits() { return hits; }
+    public long getIncrementalAssemblies() { return incrementalAssemblies; }
+    public long getFullAssemblies() { return fullAssemblies; }
+}
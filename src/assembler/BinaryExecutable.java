@@ -0,0 +1,222 @@
+package assembler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import components.Memory;
+
+/**
+ * Executável binário (.dbx), a alternativa ao .dxf textual para imagens grandes.
+ *
+ * Formato (todos os campos são ints de 32 bits little-endian):
+ * - cabeçalho: magic "OACX", versão, ponto de entrada, endereço de carga, quantidade de segmentos,
+ *   CRC32 de tudo o que vem depois do cabeçalho;
+ * - tabela de segmentos: para cada segmento, o deslocamento em relação ao endereço de carga,
+ *   a quantidade de palavras e a posição (em bytes) das palavras no arquivo;
+ * - as palavras de cada segmento.
+ *
+ * load() mapeia o arquivo (FileChannel.map), confere o cabeçalho e o CRC e copia cada segmento em
+ * bloco; loadInto() os coloca na Memory com Memory.load(), sem passar pelos barramentos.
+ */
+public class BinaryExecutable {
+
+    public static final String EXTENSION = ".dbx";
+
+    private static final int MAGIC = 0x4F414358; // "OACX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 6 * 4;
+    private static final int SEGMENT_ENTRY_SIZE = 3 * 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Um bloco de palavras contíguas.
+     */
+    public static final class Segment {
+        private final int offset;
+        private final int[] words;
+
+        public Segment(int offset, int[] words) {
+            this.offset = offset;
+            this.words = words;
+        }
+
+        public int getOffset() { return offset; }
+        public int[] getWords() { return words; }
+    }
+
+    private final int entryPoint;
+    private final int loadAddress;
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * @param entryPoint O endereço absoluto onde a execução começa (o PC após a carga).
+     * @param loadAddress O endereço a partir do qual os deslocamentos dos segmentos são contados.
+     */
+    public BinaryExecutable(int entryPoint, int loadAddress) {
+        this.entryPoint = entryPoint;
+        this.loadAddress = loadAddress;
+    }
+
+    /**
+     * @param program Um programa montado (ex: a saída de StreamingAssembler.assemble()).
+     * @return Um executável de um segmento, carregado e iniciado no endereço 0, como pelo readExec().
+     */
+    public static BinaryExecutable of(int[] program) {
+        BinaryExecutable executable = new BinaryExecutable(0, 0);
+        executable.addSegment(0, program);
+        return executable;
+    }
+
+    /**
+     * Acrescenta um segmento (as palavras não são copiadas).
+     * @param offset Deslocamento do segmento em relação ao endereço de carga.
+     * @param words As palavras.
+     */
+    public void addSegment(int offset, int[] words) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Deslocamento de segmento negativo: " + offset);
+        }
+        segments.add(new Segment(offset, words));
+    }
+
+    public int getEntryPoint() { return entryPoint; }
+    public int getLoadAddress() { return loadAddress; }
+    public List<Segment> getSegments() { return Collections.unmodifiableList(segments); }
+
+    /**
+     * Copia os segmentos para a memória, nos endereços loadAddress + offset.
+     * @throws IllegalArgumentException Se algum segmento não couber na memória.
+     */
+    public void loadInto(Memory memory) {
+        for (Segment segment : segments) {
+            memory.load(loadAddress + segment.offset, segment.words);
+        }
+    }
+
+    /**
+     * Grava o executável.
+     * @param fileName Caminho do arquivo (normalmente com a extensão .dbx).
+     * @throws IOException Se a escrita falhar.
+     */
+    public void save(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long position = HEADER_SIZE + (long) SEGMENT_ENTRY_SIZE * segments.size();
+            channel.position(HEADER_SIZE);
+            for (Segment segment : segments) {
+                if (position > Integer.MAX_VALUE) {
+                    throw new IOException("Executável grande demais para o formato .dbx.");
+                }
+                if (buffer.remaining() < SEGMENT_ENTRY_SIZE) {
+                    write(channel, buffer, crc);
+                }
+                buffer.putInt(segment.offset);
+                buffer.putInt(segment.words.length);
+                buffer.putInt((int) position);
+                position += 4L * segment.words.length;
+            }
+            for (Segment segment : segments) {
+                int[] words = segment.words;
+                for (int i = 0; i < words.length; ) {
+                    if (buffer.remaining() < 4) {
+                        write(channel, buffer, crc);
+                    }
+                    int count = Math.min(words.length - i, buffer.remaining() / 4);
+                    buffer.asIntBuffer().put(words, i, count);
+                    buffer.position(buffer.position() + 4 * count);
+                    i += count;
+                }
+            }
+            write(channel, buffer, crc);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(entryPoint);
+            buffer.putInt(loadAddress);
+            buffer.putInt(segments.size());
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            channel.position(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Grava o conteúdo do buffer no canal, somando-o ao CRC, e esvazia o buffer.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Lê um executável gravado por save(), mapeando o arquivo.
+     * @param fileName Caminho do arquivo.
+     * @return O executável.
+     * @throws IOException Se a leitura falhar ou o arquivo não for um executável .dbx válido.
+     */
+    public static BinaryExecutable load(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Arquivo não é um executável .dbx válido: " + size + " bytes.");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer file = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (file.getInt(0) != MAGIC) {
+                throw new IOException("Arquivo não é um executável .dbx.");
+            }
+            int version = file.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Versão de executável não suportada: " + version);
+            }
+            int segmentCount = file.getInt(16);
+            if (segmentCount < 0 || HEADER_SIZE + (long) SEGMENT_ENTRY_SIZE * segmentCount > size) {
+                throw new IOException("Tabela de segmentos inválida.");
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer body = file.duplicate();
+            body.position(HEADER_SIZE);
+            crc.update(body);
+            if ((int) crc.getValue() != file.getInt(20)) {
+                throw new IOException("Executável corrompido: o CRC não confere.");
+            }
+
+            BinaryExecutable executable = new BinaryExecutable(file.getInt(8), file.getInt(12));
+            for (int s = 0; s < segmentCount; s++) {
+                int entry = HEADER_SIZE + SEGMENT_ENTRY_SIZE * s;
+                int offset = file.getInt(entry);
+                int count = file.getInt(entry + 4);
+                int position = file.getInt(entry + 8);
+                if (offset < 0 || count < 0 || position < 0 || position + 4L * count > size) {
+                    throw new IOException("Segmento " + s + " inválido.");
+                }
+                int[] words = new int[count];
+                ByteBuffer data = file.duplicate();
+                data.position(position);
+                IntBuffer ints = data.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                ints.get(words);
+                executable.addSegment(offset, words);
+            }
+            return executable;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package assembler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Combina módulos objeto (ObjectModule) em um executável (BinaryExecutable).
+ *
+ * - Endereços de carga: os módulos adicionados com endereço fixo (ex: o microprograma do IMUL em
+ *   Architecture.getImulMicroprogramStartAddress()) ficam nele; os outros ocupam, na ordem em que
+ *   foram adicionados, o primeiro intervalo livre a partir do endereço 0, fora das áreas reservadas
+ *   com reserve() (ex: a área onde o IMUL salva os registradores).
+ * - Variáveis: as de cada módulo são alocadas a partir de memorySize - 1, decrescendo, como no Assembler,
+ *   na ordem dos módulos. Variáveis com o mesmo nome em módulos diferentes são distintas.
+ * - Símbolos: as exportações de todos os módulos formam uma tabela global (nomes repetidos são erro);
+ *   cada importação precisa estar nela.
+ * Os erros de ligação lançam IllegalArgumentException.
+ */
+public class Linker {
+
+    /**
+     * Um módulo e onde ele fica, ou uma área reservada (module == null).
+     */
+    private static final class Placement {
+        final ObjectModule module;
+        final String name;
+        final int size;
+        final int fixedAddress; // -1 se o endereço for escolhido pelo Linker
+        int loadAddress;
+
+        Placement(ObjectModule module, String name, int size, int fixedAddress) {
+            this.module = module;
+            this.name = name;
+            this.size = size;
+            this.fixedAddress = fixedAddress;
+        }
+    }
+
+    private final int memorySize;
+    private final List<Placement> placements = new ArrayList<>();
+    private final List<Placement> reserved = new ArrayList<>();
+    private final Map<String, Integer> symbols = new HashMap<>();
+
+    public Linker(int memorySize) {
+        this.memorySize = memorySize;
+    }
+
+    /**
+     * Adiciona um módulo, carregado no primeiro intervalo livre.
+     */
+    public void add(ObjectModule module) {
+        placements.add(new Placement(module, module.getName(), module.getSize(), -1));
+    }
+
+    /**
+     * Adiciona um módulo carregado em um endereço fixo.
+     */
+    public void add(ObjectModule module, int loadAddress) {
+        if (loadAddress < 0) {
+            throw new IllegalArgumentException("Endereço de carga negativo para o módulo " + module.getName() + ": " + loadAddress);
+        }
+        placements.add(new Placement(module, module.getName(), module.getSize(), loadAddress));
+    }
+
+    /**
+     * Impede que módulos sejam colocados em [start, start + length).
+     */
+    public void reserve(int start, int length) {
+        if (start < 0 || length < 0) {
+            throw new IllegalArgumentException("Área reservada inválida: " + start + ", " + length);
+        }
+        reserved.add(new Placement(null, "área reservada em " + start, length, start));
+    }
+
+    /**
+     * Liga os módulos, com a execução começando no início do primeiro módulo adicionado.
+     */
+    public BinaryExecutable link() {
+        return link(null);
+    }
+
+    /**
+     * Liga os módulos.
+     * @param entrySymbol O símbolo exportado onde a execução começa, ou null para o início do primeiro módulo.
+     * @return O executável, com um segmento por módulo (endereço de carga 0, deslocamentos absolutos).
+     * @throws IllegalArgumentException Se os módulos não couberem na memória, se sobrepuserem,
+     *         exportarem o mesmo símbolo ou importarem um símbolo que ninguém exporta.
+     */
+    public BinaryExecutable link(String entrySymbol) {
+        if (placements.isEmpty()) {
+            throw new IllegalArgumentException("Erro de ligação: nenhum módulo para ligar.");
+        }
+        int variableCount = 0;
+        for (Placement placement : placements) {
+            variableCount += placement.module.getVariables().size();
+        }
+        int codeLimit = memorySize - variableCount; // Primeiro endereço das variáveis
+        assignAddresses(codeLimit);
+
+        symbols.clear();
+        for (Placement placement : placements) {
+            for (Map.Entry<String, Integer> export : placement.module.getExports().entrySet()) {
+                if (symbols.containsKey(export.getKey())) {
+                    throw new IllegalArgumentException("Erro de ligação: o símbolo '" + export.getKey()
+                            + "' é exportado por mais de um módulo (" + placement.module.getName() + ").");
+                }
+                symbols.put(export.getKey(), placement.loadAddress + export.getValue());
+            }
+        }
+
+        int entryPoint;
+        if (entrySymbol == null) {
+            entryPoint = placements.get(0).loadAddress;
+        } else {
+            Integer address = symbols.get(entrySymbol);
+            if (address == null) {
+                throw new IllegalArgumentException("Erro de ligação: ponto de entrada '" + entrySymbol + "' não exportado.");
+            }
+            entryPoint = address;
+        }
+
+        BinaryExecutable executable = new BinaryExecutable(entryPoint, 0);
+        int nextVariable = memorySize - 1;
+        for (Placement placement : placements) {
+            ObjectModule module = placement.module;
+            int[] words = module.getCode();
+            for (int position : module.relocations()) {
+                words[position] += placement.loadAddress;
+            }
+            int[] variableAddresses = new int[module.getVariables().size()];
+            for (int v = 0; v < variableAddresses.length; v++) {
+                variableAddresses[v] = nextVariable--;
+            }
+            int[] references = module.variableReferences();
+            for (int i = 0; i < references.length; i += 2) {
+                words[references[i]] = variableAddresses[references[i + 1]];
+            }
+            List<String> imports = module.getImports();
+            int[] importAddresses = new int[imports.size()];
+            for (int i = 0; i < importAddresses.length; i++) {
+                Integer address = symbols.get(imports.get(i));
+                if (address == null) {
+                    throw new IllegalArgumentException("Erro de ligação: o módulo " + module.getName()
+                            + " importa '" + imports.get(i) + "', que nenhum módulo exporta.");
+                }
+                importAddresses[i] = address;
+            }
+            references = module.importReferences();
+            for (int i = 0; i < references.length; i += 2) {
+                words[references[i]] = importAddresses[references[i + 1]];
+            }
+            executable.addSegment(placement.loadAddress, words);
+        }
+        return executable;
+    }
+
+    /**
+     * Confere os módulos de endereço fixo e encaixa os outros nos intervalos livres abaixo de `limit`.
+     */
+    private void assignAddresses(int limit) {
+        List<Placement> placed = new ArrayList<>();
+        for (Placement area : reserved) {
+            area.loadAddress = area.fixedAddress;
+            placed.add(area);
+        }
+        for (Placement placement : placements) {
+            if (placement.fixedAddress >= 0) {
+                placement.loadAddress = placement.fixedAddress;
+                checkFits(placement, limit);
+                for (Placement other : placed) {
+                    if (overlaps(placement, other)) {
+                        throw new IllegalArgumentException("Erro de ligação: o módulo " + placement.name
+                                + " se sobrepõe a " + other.name + ".");
+                    }
+                }
+                placed.add(placement);
+            }
+        }
+        Comparator<Placement> byAddress = Comparator.comparingInt(p -> p.loadAddress);
+        for (Placement placement : placements) {
+            if (placement.fixedAddress < 0) {
+                Collections.sort(placed, byAddress);
+                int address = 0;
+                for (Placement other : placed) {
+                    if (address + placement.size <= other.loadAddress) {
+                        break;
+                    }
+                    address = Math.max(address, other.loadAddress + other.size);
+                }
+                placement.loadAddress = address;
+                checkFits(placement, limit);
+                placed.add(placement);
+            }
+        }
+    }
+
+    private static boolean overlaps(Placement a, Placement b) {
+        return a.size > 0 && b.size > 0 && a.loadAddress < b.loadAddress + b.size && b.loadAddress < a.loadAddress + a.size;
+    }
+
+    private void checkFits(Placement placement, int limit) {
+        if ((long) placement.loadAddress + placement.size > limit) {
+            throw new IllegalArgumentException("Erro de ligação: o módulo " + placement.name + " ("
+                    + placement.size + " palavras em " + placement.loadAddress
+                    + ") invade a área de variáveis, que começa em " + limit + ".");
+        }
+    }
+
+    /**
+     * @param module Um módulo já ligado.
+     * @return O endereço de carga escolhido para ele na última chamada de link().
+     */
+    public int getLoadAddress(ObjectModule module) {
+        for (Placement placement : placements) {
+            if (placement.module == module) {
+                return placement.loadAddress;
+            }
+        }
+        throw new IllegalArgumentException("Módulo não adicionado: " + module.getName());
+    }
+
+    /**
+     * @return Os símbolos exportados e seus endereços absolutos na última chamada de link() (somente leitura).
+     *         Serve, por exemplo, para HotSpotProfiler.setLabels().
+     */
+    public Map<String, Integer> getSymbols() {
+        return Collections.unmodifiableMap(symbols);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Uso: java assembler.Linker <executavel.dbx> <modulo.dof>[@endereco] ... [--memory tamanho] [--entry simbolo]");
+            System.out.println("Exemplo: java assembler.Linker program.dbx program.dof imul.dof@0");
+            return;
+        }
+        int memorySize = 128; // Mesmo padrão do Assembler.main()
+        String entry = null;
+        List<String> modules = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--memory") && i + 1 < args.length) {
+                memorySize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--entry") && i + 1 < args.length) {
+                entry = args[++i];
+            } else {
+                modules.add(args[i]);
+            }
+        }
+        Linker linker = new Linker(memorySize);
+        for (String module : modules) {
+            int at = module.lastIndexOf('@');
+            if (at < 0) {
+                linker.add(ObjectModule.load(module));
+            } else {
+                linker.add(ObjectModule.load(module.substring(0, at)), Integer.parseInt(module.substring(at + 1)));
+            }
+        }
+        linker.link(entry).save(args[0]);
+        System.out.println("Ligação concluída. Arquivo executável gerado: " + args[0]);
+        for (Map.Entry<String, Integer> symbol : new TreeMap<>(linker.getSymbols()).entrySet()) {
+            System.out.println("  " + symbol.getKey() + " = " + symbol.getValue());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package assembler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Módulo objeto relocável (.dof), gerado por StreamingAssembler.assembleModule() e combinado pelo Linker.
+ *
+ * O código é montado como se começasse no endereço 0, e cada palavra que depende de onde o módulo
+ * ou os seus símbolos vão parar fica listada:
+ * - relocações: palavras com o endereço de uma label do próprio módulo (o Linker soma o endereço de carga);
+ * - referências a variáveis: as variáveis são do módulo e o Linker as aloca a partir do fim da memória;
+ * - referências a importações: símbolos usados e não declarados no módulo, procurados nas exportações
+ *   dos outros módulos.
+ * As exportações são as labels declaradas com ".global nome".
+ */
+public class ObjectModule {
+
+    public static final String EXTENSION = ".dof";
+
+    private static final int MAGIC = 0x4F41434F; // "OACO"
+    private static final int VERSION = 1;
+
+    private final String name;
+    private final int[] code;
+    private final Map<String, Integer> exports;   // Nome -> deslocamento no módulo
+    private final int[] relocations;              // Posições com endereços relativos ao início do módulo
+    private final List<String> variables;         // Em ordem de declaração
+    private final int[] variableReferences;       // Pares (posição, índice da variável)
+    private final List<String> imports;
+    private final int[] importReferences;         // Pares (posição, índice da importação)
+
+    ObjectModule(String name, int[] code, Map<String, Integer> exports, int[] relocations, List<String> variables,
+                 int[] variableReferences, List<String> imports, int[] importReferences) {
+        this.name = name;
+        this.code = code;
+        this.exports = exports;
+        this.relocations = relocations;
+        this.variables = variables;
+        this.variableReferences = variableReferences;
+        this.imports = imports;
+        this.importReferences = importReferences;
+    }
+
+    public String getName() { return name; }
+    public int getSize() { return code.length; }
+    public Map<String, Integer> getExports() { return Collections.unmodifiableMap(exports); }
+    public List<String> getVariables() { return Collections.unmodifiableList(variables); }
+    public List<String> getImports() { return Collections.unmodifiableList(imports); }
+    public int getRelocationCount() { return relocations.length; }
+
+    /**
+     * @return Uma cópia do código, com os endereços das labels relativos ao início do módulo
+     *         e 0 no lugar das variáveis e das importações.
+     */
+    public int[] getCode() { return code.clone(); }
+
+    // Usados pelo Linker (sem cópias)
+    int[] relocations() { return relocations; }
+    int[] variableReferences() { return variableReferences; }
+    int[] importReferences() { return importReferences; }
+
+    /**
+     * Grava o módulo.
+     * @param fileName Caminho do arquivo (normalmente com a extensão .dof).
+     * @throws IOException Se a escrita falhar.
+     */
+    public void save(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(name);
+            writeArray(out, code);
+            out.writeInt(exports.size());
+            for (Map.Entry<String, Integer> entry : exports.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            writeArray(out, relocations);
+            writeNames(out, variables);
+            writeArray(out, variableReferences);
+            writeNames(out, imports);
+            writeArray(out, importReferences);
+        }
+    }
+
+    /**
+     * Lê um módulo gravado por save().
+     * @param fileName Caminho do arquivo.
+     * @return O módulo.
+     * @throws IOException Se a leitura falhar ou o arquivo não for um módulo objeto válido.
+     */
+    public static ObjectModule load(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Arquivo não é um módulo objeto.");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Versão de módulo objeto não suportada: " + version);
+            }
+            String name = in.readUTF();
+            int[] code = readArray(in);
+            int exportCount = in.readInt();
+            if (exportCount < 0) {
+                throw new IOException("Módulo objeto corrompido.");
+            }
+            Map<String, Integer> exports = new LinkedHashMap<>();
+            for (int i = 0; i < exportCount; i++) {
+                exports.put(in.readUTF(), in.readInt());
+            }
+            int[] relocations = readArray(in);
+            List<String> variables = readNames(in);
+            int[] variableReferences = readArray(in);
+            List<String> imports = readNames(in);
+            int[] importReferences = readArray(in);
+
+            for (int offset : exports.values()) {
+                check(offset >= 0 && offset <= code.length);
+            }
+            for (int position : relocations) {
+                check(position >= 0 && position < code.length);
+            }
+            checkReferences(variableReferences, code.length, variables.size());
+            checkReferences(importReferences, code.length, imports.size());
+            return new ObjectModule(name, code, exports, relocations, variables, variableReferences, imports, importReferences);
+        }
+    }
+
+    private static void checkReferences(int[] references, int size, int targets) throws IOException {
+        check(references.length % 2 == 0);
+        for (int i = 0; i < references.length; i += 2) {
+            check(references[i] >= 0 && references[i] < size && references[i + 1] >= 0 && references[i + 1] < targets);
+        }
+    }
+
+    private static void check(boolean valid) throws IOException {
+        if (!valid) {
+            throw new IOException("Módulo objeto corrompido.");
+        }
+    }
+
+    private static void writeArray(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readArray(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        check(length >= 0);
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeNames(DataOutputStream out, List<String> names) throws IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    private static List<String> readNames(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        check(count >= 0);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(in.readUTF());
+        }
+        return names;
+    }
+}
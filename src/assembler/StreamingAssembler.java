@@ -0,0 +1,602 @@
+package assembler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import components.Opcodes;
+
+/**
+ * Montador de uma única passagem: lê o .dsf uma vez, linha a linha, e emite as palavras direto em
+ * um int[] que cresce conforme a necessidade.
+ *
+ * Aceita a mesma linguagem do Assembler (variáveis alocadas a partir de memorySize - 1, labels
+ * terminadas em ":", comentários com "#"). Como labels e variáveis podem ser usadas antes de
+ * declaradas, cada operando simbólico vira uma entrada na tabela de pendências (posição, símbolo);
+ * no fim do arquivo os símbolos são resolvidos uma vez e as posições são corrigidas (backpatching).
+ * Assim a memória usada é proporcional ao programa gerado: não há cópia das linhas, do programa
+ * objeto nem do executável em forma de texto.
+ *
+ * Diferenças em relação ao Assembler:
+ * - o endereço das labels é a posição real da palavra emitida (o Assembler conta call e imul
+ *   com 3 palavras na primeira passagem, mas call emite só 2);
+ * - operandos de endereço numéricos (ex: "store 27") são aceitos como endereços absolutos;
+ * - erros de montagem lançam IllegalArgumentException com o número da linha;
+ * - a linha ".global nome..." marca labels a exportar em assembleModule() (e é ignorada por assemble()).
+ */
+public class StreamingAssembler {
+
+    private static final int MAX_TOKENS = 5; // label: comando op1 op2 op3
+
+    private final int memorySize;
+
+    private int[] code;                 // Programa executável (somente as posições [0, size) valem)
+    private int size;
+    private int[] fixups;               // Pares (posição no código, id do símbolo) a corrigir no fim
+    private int fixupCount;
+    private final Map<String, Integer> symbolIds = new HashMap<>();      // Nome referenciado -> id
+    private final ArrayList<String> symbolNames = new ArrayList<>();      // id -> nome
+    private final Map<String, Integer> labelAddresses = new HashMap<>();
+    private final Map<String, Integer> variableAddresses = new LinkedHashMap<>(); // Na ordem de declaração
+    private final ArrayList<String> globals = new ArrayList<>(); // Labels declaradas com .global
+
+    private final String[] tokens = new String[MAX_TOKENS];
+    private int lineNumber;
+
+    // Só para a remontagem incremental (AssemblyCache): onde começa cada linha no código
+    // e em que linha cada label e variável foi declarada
+    private boolean trackLines;
+    private int[] lineStarts;
+    private int lineCount;
+    private final Map<String, Integer> labelLines = new HashMap<>();
+    private final Map<String, Integer> variableLines = new HashMap<>();
+
+    public StreamingAssembler(int memorySize) {
+        this.memorySize = memorySize;
+    }
+
+    /**
+     * Monta um programa inteiro.
+     * @param source O texto assembly (.dsf).
+     * @return O programa executável, a partir do endereço 0.
+     * @throws IOException Se a leitura falhar.
+     * @throws IllegalArgumentException Se o programa tiver erros de montagem.
+     */
+    public int[] assemble(Reader source) throws IOException {
+        begin(false);
+        BufferedReader br = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        String line;
+        while ((line = br.readLine()) != null) {
+            assembleLine(line);
+        }
+        resolve();
+        return getImage();
+    }
+
+    /**
+     * Monta filename.dsf e grava filename.dxf (o mesmo formato de Assembler.makeExecutable()).
+     * @param filenameWithoutExtension O nome do programa sem a extensão.
+     * @return O programa executável.
+     * @throws IOException Se a leitura ou a escrita falhar.
+     */
+    public int[] assemble(String filenameWithoutExtension) throws IOException {
+        int[] program;
+        try (Reader reader = new FileReader(filenameWithoutExtension + ".dsf")) {
+            program = assemble(reader);
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filenameWithoutExtension + ".dxf"))) {
+            for (int word : program) {
+                writer.write(Integer.toString(word));
+                writer.write('\n');
+            }
+            writer.write("-1\n"); // Marca o fim do programa para Architecture.readExec()
+        }
+        return program;
+    }
+
+    /**
+     * Monta filename.dsf e grava o executável binário filename.dbx (ver BinaryExecutable),
+     * carregado e iniciado no endereço 0.
+     * @param filenameWithoutExtension O nome do programa sem a extensão.
+     * @return O executável.
+     * @throws IOException Se a leitura ou a escrita falhar.
+     */
+    public BinaryExecutable assembleBinary(String filenameWithoutExtension) throws IOException {
+        BinaryExecutable executable;
+        try (Reader reader = new FileReader(filenameWithoutExtension + ".dsf")) {
+            executable = BinaryExecutable.of(assemble(reader));
+        }
+        executable.save(filenameWithoutExtension + BinaryExecutable.EXTENSION);
+        return executable;
+    }
+
+    /**
+     * Começa um programa novo.
+     * @param trackLines Guarda as informações por linha que splice() precisa.
+     */
+    void begin(boolean trackLines) {
+        code = new int[1024];
+        size = 0;
+        fixups = new int[256];
+        fixupCount = 0;
+        symbolIds.clear();
+        symbolNames.clear();
+        labelAddresses.clear();
+        variableAddresses.clear();
+        lineNumber = 0;
+        this.trackLines = trackLines;
+        lineStarts = trackLines ? new int[1024] : null;
+        lineCount = 0;
+        labelLines.clear();
+        variableLines.clear();
+        globals.clear();
+    }
+
+    /**
+     * Monta a próxima linha do programa começado por begin().
+     */
+    void assembleLine(String line) {
+        if (trackLines) {
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+            }
+            lineStarts[lineCount++] = size;
+        }
+        lineNumber++;
+        int count = tokenize(line);
+        if (count > 0) {
+            assembleTokens(count);
+        }
+    }
+
+    /**
+     * Remonta só um trecho do programa atual (começado com begin(true) e já resolvido): as linhas
+     * [first, first + removed) são trocadas por `inserted`. As palavras, labels, variáveis e pendências
+     * das linhas de fora do trecho são reaproveitadas (as que vêm depois dele, deslocadas) e todos os
+     * símbolos são resolvidos de novo a partir das tabelas guardadas.
+     * Se lançar uma exceção, o estado fica inconsistente e o programa deve ser montado de novo do zero.
+     * @return false se o trecho não puder ser remontado sozinho: uma variável declarada pela primeira vez
+     *         no trecho removido pode ser redeclarada depois dele, e essa redeclaração não foi guardada.
+     */
+    boolean splice(int first, int removed, List<String> inserted) {
+        if (!trackLines) {
+            throw new IllegalStateException("splice() exige um programa começado com begin(true).");
+        }
+        int end = first + removed;
+        int regionStart = lineStart(first);
+        int regionEnd = lineStart(end);
+
+        // Guarda o que vem depois do trecho
+        int[] suffixCode = Arrays.copyOfRange(code, regionEnd, size);
+        int[] suffixStarts = Arrays.copyOfRange(lineStarts, end, lineCount);
+        int[] suffixFixups = Arrays.copyOfRange(fixups, firstFixupAt(regionEnd), fixupCount);
+        ArrayList<String> suffixLabels = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : labelLines.entrySet()) {
+            if (entry.getValue() >= end) {
+                suffixLabels.add(entry.getKey());
+            }
+        }
+        int[] suffixLabelLines = new int[suffixLabels.size()];
+        int[] suffixLabelAddresses = new int[suffixLabels.size()];
+        for (int i = 0; i < suffixLabels.size(); i++) {
+            suffixLabelLines[i] = labelLines.get(suffixLabels.get(i));
+            suffixLabelAddresses[i] = labelAddresses.get(suffixLabels.get(i));
+        }
+        ArrayList<String> suffixVariables = new ArrayList<>();
+        ArrayList<String> removedVariables = new ArrayList<>();
+        for (String name : variableAddresses.keySet()) { // Em ordem de declaração
+            int line = variableLines.get(name);
+            if (line >= end) {
+                suffixVariables.add(name);
+            } else if (line >= first) {
+                removedVariables.add(name);
+            }
+        }
+        int[] suffixVariableLines = new int[suffixVariables.size()];
+        for (int i = 0; i < suffixVariables.size(); i++) {
+            suffixVariableLines[i] = variableLines.get(suffixVariables.get(i));
+        }
+
+        // Volta ao fim do prefixo e monta o trecho novo
+        size = regionStart;
+        lineCount = first;
+        lineNumber = first;
+        fixupCount = firstFixupAt(regionStart);
+        labelLines.values().removeIf(line -> line >= first);
+        labelAddresses.keySet().retainAll(labelLines.keySet());
+        variableLines.values().removeIf(line -> line >= first);
+        variableAddresses.keySet().retainAll(variableLines.keySet());
+        for (String line : inserted) {
+            assembleLine(line);
+        }
+        for (String name : removedVariables) {
+            if (!variableAddresses.containsKey(name)) {
+                return false;
+            }
+        }
+
+        // Recoloca o sufixo, deslocado
+        int delta = size - regionEnd;
+        int lineDelta = lineCount - end;
+        for (int start : suffixStarts) {
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+            }
+            lineStarts[lineCount++] = start + delta;
+        }
+        if (size + suffixCode.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + suffixCode.length));
+        }
+        System.arraycopy(suffixCode, 0, code, size, suffixCode.length);
+        size += suffixCode.length;
+        for (int i = 0; i < suffixLabels.size(); i++) {
+            String label = suffixLabels.get(i);
+            lineNumber = suffixLabelLines[i] + lineDelta + 1;
+            if (labelAddresses.containsKey(label)) {
+                throw error("Label duplicada encontrada: " + label);
+            }
+            labelAddresses.put(label, suffixLabelAddresses[i] + delta);
+            labelLines.put(label, suffixLabelLines[i] + lineDelta);
+        }
+        for (int i = 0; i < suffixVariables.size(); i++) {
+            String name = suffixVariables.get(i);
+            if (!variableAddresses.containsKey(name)) {
+                variableAddresses.put(name, 0);
+                variableLines.put(name, suffixVariableLines[i] + lineDelta);
+            }
+        }
+        if (fixupCount + suffixFixups.length > fixups.length) {
+            fixups = Arrays.copyOf(fixups, Math.max(fixups.length * 2, fixupCount + suffixFixups.length));
+        }
+        for (int i = 0; i < suffixFixups.length; i += 2) {
+            fixups[fixupCount++] = suffixFixups[i] + delta;
+            fixups[fixupCount++] = suffixFixups[i + 1];
+        }
+        lineNumber = lineCount;
+
+        // A ordem das variáveis pode ter mudado: os endereços são recalculados
+        int index = 0;
+        for (Map.Entry<String, Integer> entry : variableAddresses.entrySet()) {
+            entry.setValue(memorySize - 1 - index++);
+        }
+        resolve();
+        return true;
+    }
+
+    private int lineStart(int line) {
+        return line < lineCount ? lineStarts[line] : size;
+    }
+
+    /**
+     * @return O índice em `fixups` da primeira pendência na posição `position` ou depois
+     *         (as pendências estão em ordem de posição).
+     */
+    private int firstFixupAt(int position) {
+        int low = 0;
+        int high = fixupCount / 2;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (fixups[2 * middle] < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return 2 * low;
+    }
+
+    int getLineCount() { return lineCount; }
+
+    /**
+     * @return Uma cópia do programa executável atual.
+     */
+    int[] getImage() {
+        return Arrays.copyOf(code, size);
+    }
+
+    /**
+     * Divide a linha (sem o comentário) em tokens separados por espaços, sem expressões regulares.
+     * @return Quantos tokens foram colocados em `tokens`.
+     */
+    private int tokenize(String line) {
+        int end = line.indexOf('#');
+        if (end < 0) {
+            end = line.length();
+        }
+        int count = 0;
+        int i = 0;
+        while (true) {
+            while (i < end && line.charAt(i) <= ' ') {
+                i++;
+            }
+            if (i == end) {
+                return count;
+            }
+            int start = i;
+            while (i < end && line.charAt(i) > ' ') {
+                i++;
+            }
+            if (count == MAX_TOKENS) {
+                throw error("tokens demais na linha");
+            }
+            tokens[count++] = line.substring(start, i);
+        }
+    }
+
+    private void assembleTokens(int count) {
+        int first = 0;
+        if (tokens[0].endsWith(":")) { // Label, sozinha ou seguida de uma instrução
+            String label = tokens[0].substring(0, tokens[0].length() - 1);
+            if (labelAddresses.containsKey(label)) {
+                throw error("Label duplicada encontrada: " + label);
+            }
+            labelAddresses.put(label, size);
+            if (trackLines) {
+                labelLines.put(label, lineNumber - 1);
+            }
+            if (count == 1) {
+                return;
+            }
+            first = 1;
+        }
+        if (first == 0 && tokens[0].equals(".global")) {
+            if (count == 1) {
+                throw error(".global espera o nome de pelo menos uma label.");
+            }
+            for (int i = 1; i < count; i++) {
+                globals.add(tokens[i]);
+            }
+            return;
+        }
+        Integer opcode = Opcodes.getOpcode(tokens[first]);
+        if (opcode == null) {
+            if (first == 1) {
+                throw error("Comando desconhecido: " + tokens[first]);
+            }
+            // Declaração de variável (tokens seguintes, como uma inicialização, são ignorados)
+            if (!variableAddresses.containsKey(tokens[0])) {
+                variableAddresses.put(tokens[0], memorySize - 1 - variableAddresses.size());
+                if (trackLines) {
+                    variableLines.put(tokens[0], lineNumber - 1);
+                }
+            }
+            return;
+        }
+        int operands = count - first - 1;
+        int expected = Opcodes.getInstructionSize(opcode) - 1;
+        if (operands != expected) {
+            throw error("Comando " + tokens[first] + " espera " + expected + " operando(s), recebeu " + operands + ".");
+        }
+        emit(opcode);
+        switch (opcode) {
+            case Opcodes.LDI:
+                emit(parseInt(tokens[first + 1]));
+                break;
+            case Opcodes.MOVE_REG_REG:
+            case Opcodes.IMUL:
+                emit(register(tokens[first + 1]));
+                emit(register(tokens[first + 2]));
+                break;
+            case Opcodes.JEQ:
+            case Opcodes.JGT:
+            case Opcodes.JLW:
+                emit(register(tokens[first + 1]));
+                emit(register(tokens[first + 2]));
+                emitAddress(tokens[first + 3]);
+                break;
+            default:
+                if (expected == 1) { // add, sub, jmp, jz, jn, read, store, jnz, call
+                    emitAddress(tokens[first + 1]);
+                }
+                break;
+        }
+    }
+
+    private void emit(int word) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[size++] = word;
+    }
+
+    /**
+     * Emite um endereço: literal, se for numérico; senão uma pendência a ser corrigida em resolve().
+     */
+    private void emitAddress(String operand) {
+        char c = operand.charAt(0);
+        if ((c >= '0' && c <= '9') || c == '-') {
+            emit(parseInt(operand));
+            return;
+        }
+        Integer id = symbolIds.get(operand);
+        if (id == null) {
+            id = symbolNames.size();
+            symbolIds.put(operand, id);
+            symbolNames.add(operand);
+        }
+        if (fixupCount + 2 > fixups.length) {
+            fixups = Arrays.copyOf(fixups, fixups.length * 2);
+        }
+        fixups[fixupCount++] = size;
+        fixups[fixupCount++] = id;
+        emit(0);
+    }
+
+    private int register(String operand) {
+        try {
+            return Opcodes.getRegisterId(operand.toLowerCase());
+        } catch (IllegalArgumentException e) {
+            throw error("Nome de registrador inválido: " + operand);
+        }
+    }
+
+    private int parseInt(String operand) {
+        try {
+            return Integer.parseInt(operand);
+        } catch (NumberFormatException e) {
+            throw error("Valor inteiro inválido: " + operand);
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Erro de montagem na linha " + lineNumber + ": " + message);
+    }
+
+    /**
+     * Resolve cada símbolo referenciado uma vez (variáveis têm precedência sobre labels, como no
+     * Assembler) e corrige as posições pendentes.
+     */
+    void resolve() {
+        int[] addresses = new int[symbolNames.size()];
+        boolean[] resolved = new boolean[addresses.length];
+        for (int i = 0; i < fixupCount; i += 2) {
+            int id = fixups[i + 1];
+            if (!resolved[id]) {
+                String name = symbolNames.get(id);
+                Integer address = variableAddresses.get(name);
+                if (address == null) {
+                    address = labelAddresses.get(name);
+                }
+                if (address == null) {
+                    throw new IllegalArgumentException("Erro de montagem: Variável ou label '" + name + "' referenciada, mas não declarada!");
+                }
+                addresses[id] = address;
+                resolved[id] = true;
+            }
+            code[fixups[i]] = addresses[id];
+        }
+        if (size > memorySize - variableAddresses.size()) {
+            throw new IllegalArgumentException("Erro de montagem: o programa (" + size + " palavras) e as "
+                    + variableAddresses.size() + " variáveis não cabem em " + memorySize + " palavras de memória.");
+        }
+    }
+
+    /**
+     * Monta um módulo objeto relocável (ver ObjectModule e Linker): o código começa no endereço 0,
+     * as labels viram relocações, as variáveis ficam para o Linker alocar e os nomes usados sem
+     * declaração viram importações, em vez de erros.
+     * @param name O nome do módulo (aparece nas mensagens do Linker).
+     * @param source O texto assembly (.dsf).
+     * @return O módulo.
+     * @throws IOException Se a leitura falhar.
+     * @throws IllegalArgumentException Se o programa tiver erros de montagem ou exportar uma label não declarada.
+     */
+    public ObjectModule assembleModule(String name, Reader source) throws IOException {
+        begin(false);
+        BufferedReader br = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        String line;
+        while ((line = br.readLine()) != null) {
+            assembleLine(line);
+        }
+
+        Map<String, Integer> exports = new LinkedHashMap<>();
+        for (String global : globals) {
+            Integer address = labelAddresses.get(global);
+            if (address == null || variableAddresses.containsKey(global)) {
+                throw new IllegalArgumentException("Erro de montagem: '" + global + "' exportada com .global, mas não é uma label.");
+            }
+            exports.put(global, address);
+        }
+        Map<String, Integer> variableIndexes = new HashMap<>();
+        for (String variable : variableAddresses.keySet()) {
+            variableIndexes.put(variable, variableIndexes.size());
+        }
+        Map<String, Integer> importIndexes = new LinkedHashMap<>();
+        int[] relocations = new int[fixupCount / 2];
+        int[] variableReferences = new int[fixupCount];
+        int[] importReferences = new int[fixupCount];
+        int relocationCount = 0;
+        int variableCount = 0;
+        int importCount = 0;
+        for (int i = 0; i < fixupCount; i += 2) {
+            int position = fixups[i];
+            String symbol = symbolNames.get(fixups[i + 1]);
+            Integer variable = variableIndexes.get(symbol); // Variáveis têm precedência, como em resolve()
+            Integer label = labelAddresses.get(symbol);
+            if (variable != null) {
+                code[position] = 0;
+                variableReferences[variableCount++] = position;
+                variableReferences[variableCount++] = variable;
+            } else if (label != null) {
+                code[position] = label;
+                relocations[relocationCount++] = position;
+            } else {
+                Integer index = importIndexes.get(symbol);
+                if (index == null) {
+                    index = importIndexes.size();
+                    importIndexes.put(symbol, index);
+                }
+                code[position] = 0;
+                importReferences[importCount++] = position;
+                importReferences[importCount++] = index;
+            }
+        }
+        return new ObjectModule(name, getImage(), exports, Arrays.copyOf(relocations, relocationCount),
+                new ArrayList<>(variableAddresses.keySet()), Arrays.copyOf(variableReferences, variableCount),
+                new ArrayList<>(importIndexes.keySet()), Arrays.copyOf(importReferences, importCount));
+    }
+
+    /**
+     * Monta filename.dsf como módulo objeto e grava filename.dof.
+     * @param filenameWithoutExtension O nome do programa sem a extensão (também é o nome do módulo).
+     * @return O módulo.
+     * @throws IOException Se a leitura ou a escrita falhar.
+     */
+    public ObjectModule assembleModule(String filenameWithoutExtension) throws IOException {
+        ObjectModule module;
+        try (Reader reader = new FileReader(filenameWithoutExtension + ".dsf")) {
+            module = assembleModule(new File(filenameWithoutExtension).getName(), reader);
+        }
+        module.save(filenameWithoutExtension + ObjectModule.EXTENSION);
+        return module;
+    }
+
+    public int getMemorySize() { return memorySize; }
+
+    /**
+     * @return Os labels do último programa montado (nome -> endereço), somente leitura.
+     */
+    public Map<String, Integer> getLabels() { return Collections.unmodifiableMap(labelAddresses); }
+
+    /**
+     * @return As variáveis do último programa montado (nome -> endereço), na ordem de declaração, somente leitura.
+     */
+    public Map<String, Integer> getVariables() { return Collections.unmodifiableMap(variableAddresses); }
+
+    public static void main(String[] args) throws IOException {
+        String option = args.length > 0 && args[0].startsWith("-") ? args[0] : null;
+        int first = option == null ? 0 : 1;
+        if (args.length <= first || (option != null && !option.equals("-b") && !option.equals("-c"))) {
+            System.out.println("Uso: java assembler.StreamingAssembler [-b | -c] <nome_do_arquivo_assembly_sem_extensao> [tamanho_da_memoria]");
+            System.out.println("  -b: gera o executável binário (.dbx) em vez do .dxf");
+            System.out.println("  -c: gera o módulo objeto relocável (.dof), para o Linker");
+            return;
+        }
+        String filename = args[first];
+        int memorySize = args.length > first + 1 ? Integer.parseInt(args[first + 1]) : 128; // Mesmo padrão do Assembler.main()
+        StreamingAssembler assembler = new StreamingAssembler(memorySize);
+        if ("-b".equals(option)) {
+            BinaryExecutable executable = assembler.assembleBinary(filename);
+            System.out.println("Montagem concluída (" + executable.getSegments().get(0).getWords().length
+                    + " palavras). Arquivo executável gerado: " + filename + BinaryExecutable.EXTENSION);
+        } else if ("-c".equals(option)) {
+            ObjectModule module = assembler.assembleModule(filename);
+            System.out.println("Montagem concluída (" + module.getSize() + " palavras, " + module.getExports().size()
+                    + " exportações, " + module.getImports().size() + " importações). Módulo gerado: " + filename + ObjectModule.EXTENSION);
+        } else {
+            int[] program = assembler.assemble(filename);
+            System.out.println("Montagem concluída (" + program.length + " palavras). Arquivo executável gerado: " + filename + ".dxf");
+        }
+    }
+}
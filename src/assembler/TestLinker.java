@@ -0,0 +1,124 @@
+package assembler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import architecture.Architecture;
+import architecture.ExecutionMode;
+
+public class TestLinker {
+
+	private static final String MAIN =
+			"n\n" +
+			".global main\n" +
+			"main: read n\n" +
+			"  call twice\n" +           //imported from the library
+			"  jmp done\n" +             //local label: relocated
+			"  inc\n" +
+			"done: store n\n" +
+			"  halt\n";
+
+	private static final String LIBRARY =
+			"acc\n" +
+			".global twice\n" +
+			"twice: store acc\n" +
+			"  add acc\n" +
+			"  ret\n";
+
+	private static ObjectModule module(String name, String source) throws IOException {
+		return new StreamingAssembler(128).assembleModule(name, new StringReader(source));
+	}
+
+	@Test
+	public void testObjectModule() throws IOException {
+		ObjectModule main = module("main", MAIN);
+		//read n; call twice; jmp done; inc; store n; halt
+		assertArrayEquals(new int[] {5, 0, 14, 0, 2, 7, 8, 6, 0, 17}, main.getCode());
+		assertEquals(Collections.singletonMap("main", 0), main.getExports());
+		assertEquals(Arrays.asList("twice"), main.getImports());
+		assertEquals(Arrays.asList("n"), main.getVariables());
+		assertEquals(1, main.getRelocationCount());
+
+		File file = File.createTempFile("module", ObjectModule.EXTENSION);
+		file.deleteOnExit();
+		main.save(file.getPath());
+		ObjectModule loaded = ObjectModule.load(file.getPath());
+		assertEquals("main", loaded.getName());
+		assertArrayEquals(main.getCode(), loaded.getCode());
+		assertEquals(main.getExports(), loaded.getExports());
+		assertEquals(main.getImports(), loaded.getImports());
+		assertEquals(main.getVariables(), loaded.getVariables());
+
+		//only labels can be exported
+		try {
+			module("bad", "x\n.global x\nhalt\n");
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testLink() throws IOException {
+		ObjectModule main = module("main", MAIN);
+		ObjectModule library = module("library", LIBRARY);
+		Linker linker = new Linker(120); //variables from 119 down, clear of the stack, which grows down from 127
+		linker.reserve(0, 30);         //system area (IMUL microprogram and its save area)
+		linker.add(library, 100);
+		linker.add(main);              //first free address after the reserved area
+		BinaryExecutable executable = linker.link("main");
+		assertEquals(30, linker.getLoadAddress(main));
+		assertEquals(30, executable.getEntryPoint());
+		assertEquals(Integer.valueOf(100), linker.getSymbols().get("twice"));
+		//variables: library first (it was added first), then main
+		assertArrayEquals(new int[] {6, 119, 0, 119, 15}, executable.getSegments().get(0).getWords());
+		assertArrayEquals(new int[] {5, 118, 14, 100, 2, 37, 8, 6, 118, 17}, executable.getSegments().get(1).getWords());
+
+		Architecture arch = new Architecture(false, ExecutionMode.FUNCTIONAL);
+		arch.loadExecutable(executable);
+		arch.getMemory().setData(118, 21);
+		arch.controlUnitEexec();
+		assertEquals(42, arch.getMemory().getData(118));
+		assertEquals(8, arch.getInstructionCount()); //read, call, store, add, ret, jmp, store, halt
+
+		//unresolved imports, duplicate exports and overlapping modules are link errors
+		Linker alone = new Linker(128);
+		alone.add(main);
+		try {
+			alone.link();
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		Linker twice = new Linker(128);
+		twice.add(main);
+		twice.add(library);
+		twice.add(module("copy", LIBRARY));
+		try {
+			twice.link();
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		Linker overlapping = new Linker(128);
+		overlapping.add(library, 10);
+		overlapping.add(main, 12);
+		try {
+			overlapping.link();
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		//code may not reach the variables
+		Linker high = new Linker(128);
+		high.add(library, 123);
+		try {
+			high.link();
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
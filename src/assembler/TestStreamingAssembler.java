@@ -0,0 +1,231 @@
+package assembler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.regex.Pattern;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class TestStreamingAssembler {
+
+	@Test
+	public void testAssemble() throws IOException {
+		String source =
+				"x\n" +
+				"y   # second variable\n" +
+				"  jmp start\n" +             //forward reference, backpatched at the end
+				"loop: add x\n" +             //label on the same line as the instruction
+				"  call sub1\n" +
+				"  jlw %reg0 %REG1 loop\n" +
+				"start:\n" +
+				"  ldi -3\n" +
+				"  store 27\n" +              //numeric address
+				"  moveregreg %reg2 %reg3\n" +
+				"  imul %reg0 %reg1\n" +
+				"  inc\n" +
+				"  halt\n" +
+				"sub1: read y\n" +
+				"  ret\n";
+		StreamingAssembler assembler = new StreamingAssembler(128);
+		int[] program = assembler.assemble(new StringReader(source));
+
+		int[] expected = {
+				2, 10,         //jmp start
+				0, 127,        //loop: add x
+				14, 22,        //call sub1
+				13, 0, 1, 2,   //jlw %reg0 %reg1 loop
+				7, -3,         //start: ldi -3
+				6, 27,         //store 27
+				9, 2, 3,       //moveregreg %reg2 %reg3
+				16, 0, 1,      //imul %reg0 %reg1
+				8,             //inc
+				17,            //halt
+				5, 126,        //sub1: read y
+				15};           //ret
+		assertArrayEquals(expected, program);
+		assertEquals(Integer.valueOf(2), assembler.getLabels().get("loop"));
+		assertEquals(Integer.valueOf(10), assembler.getLabels().get("start"));
+		assertEquals(Integer.valueOf(22), assembler.getLabels().get("sub1"));
+		assertEquals(Integer.valueOf(127), assembler.getVariables().get("x"));
+		assertEquals(Integer.valueOf(126), assembler.getVariables().get("y"));
+
+		//the assembler can be reused: the previous program leaves nothing behind
+		assertArrayEquals(new int[] {17}, assembler.assemble(new StringReader("halt\n")));
+		assertTrue(assembler.getLabels().isEmpty());
+		assertTrue(assembler.getVariables().isEmpty());
+	}
+
+	@Test
+	public void testGrowth() throws IOException {
+		//more words and forward references than the initial buffers hold
+		StringBuilder source = new StringBuilder();
+		for (int i=0;i<3000;i++) {
+			source.append("jmp end\n");
+		}
+		source.append("end: halt\n");
+		int[] program = new StreamingAssembler(8192).assemble(new StringReader(source.toString()));
+		assertEquals(6001, program.length);
+		for (int i=0;i<3000;i++) {
+			assertEquals(2, program[2*i]);
+			assertEquals(6000, program[2*i+1]);
+		}
+		assertEquals(17, program[6000]);
+	}
+
+	@Test
+	public void testErrors() throws IOException {
+		String[] invalid = {
+				"jmp nowhere\nhalt\n",      //undeclared label
+				"a:\na:\nhalt\n",           //duplicate label
+				"add\n",                    //missing operand
+				"inc x\n",                  //extra operand
+				"moveregreg %reg0 %reg9\n", //invalid register
+				"ldi five\n",               //invalid immediate
+				"l: foo x\n"};              //unknown command after a label
+		for (String source : invalid) {
+			try {
+				new StreamingAssembler(128).assemble(new StringReader(source));
+				fail("Expected an assembly error for: " + source);
+			} catch (IllegalArgumentException e) {
+				//expected
+			}
+		}
+
+		//the program and its variables must fit in memory
+		try {
+			new StreamingAssembler(4).assemble(new StringReader("x\ny\nadd x\nhalt\n"));
+			fail("Expected the program not to fit");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void testBinaryExecutable() throws IOException {
+		BinaryExecutable executable = new BinaryExecutable(103, 100);
+		executable.addSegment(0, new int[] {7, -1, 17});
+		executable.addSegment(20, new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE});
+		executable.addSegment(30, new int[0]);
+		File file = File.createTempFile("exec", BinaryExecutable.EXTENSION);
+		file.deleteOnExit();
+		executable.save(file.getPath());
+		
+		BinaryExecutable loaded = BinaryExecutable.load(file.getPath());
+		assertEquals(103, loaded.getEntryPoint());
+		assertEquals(100, loaded.getLoadAddress());
+		assertEquals(3, loaded.getSegments().size());
+		assertEquals(20, loaded.getSegments().get(1).getOffset());
+		assertArrayEquals(new int[] {7, -1, 17}, loaded.getSegments().get(0).getWords());
+		assertArrayEquals(new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE}, loaded.getSegments().get(1).getWords());
+		assertEquals(0, loaded.getSegments().get(2).getWords().length);
+		
+		//words are little-endian: the first word (7) starts with its low byte
+		try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+			long first = raw.length() - 5 * 4;
+			raw.seek(first);
+			assertEquals(7, raw.read());
+			assertEquals(0, raw.read());
+			//any change after the header breaks the checksum
+			raw.seek(first);
+			raw.write(8);
+		}
+		try {
+			BinaryExecutable.load(file.getPath());
+			fail();
+		} catch (IOException e) {
+		}
+		
+		//large programs: several write buffers
+		int[] program = new int[100000];
+		for (int i=0;i<program.length;i++) {
+			program[i] = i * 31;
+		}
+		BinaryExecutable.of(program).save(file.getPath());
+		loaded = BinaryExecutable.load(file.getPath());
+		assertEquals(0, loaded.getEntryPoint());
+		assertArrayEquals(program, loaded.getSegments().get(0).getWords());
+	}
+
+	private static int[] assembleFresh(String source) throws IOException {
+		return new StreamingAssembler(128).assemble(new StringReader(source));
+	}
+
+	@Test
+	public void testAssemblyCache() throws IOException {
+		String[] lines = {
+				"x",
+				"y",
+				"start: read x",
+				"  jz end",
+				"  inc",
+				"  jeq %reg0 %reg1 start",
+				"  call sub1",
+				"  store y",
+				"end: halt",
+				"sub1: ldi 3",
+				"  ret"};
+		String source = String.join("\n", lines);
+		AssemblyCache cache = new AssemblyCache(128);
+		int[] first = cache.assemble("program", source);
+		assertArrayEquals(assembleFresh(source), first);
+		assertEquals(1, cache.getFullAssemblies());
+		
+		//same text: a hit, even under another name; the returned image is a copy
+		first[0] = -1;
+		assertArrayEquals(assembleFresh(source), cache.assemble("other", source));
+		assertEquals(1, cache.getHits());
+		
+		//edits are reassembled from the first changed line to the last changed line only
+		String[][] edits = {
+				{"  inc", "  jeq %reg2 %reg3 sub1"},           //grows: labels after it move
+				{"  jz end", "  add x\nloop: jnz loop\n  sub y"},   //new label inside the region
+				{"  call sub1", ""},                           //shrinks
+				{"y", "y\nz\n  store z"},                      //new variable
+				{"sub1: ldi 3", "sub1: ldi 4\n  ret\nsub2: ret"}, //edit near the end
+				{"x", "w"},                                    //first variable renamed: its references move to y
+		};
+		String current = source;
+		for (String[] edit : edits) {
+			current = current.replaceFirst("(?m)^" + Pattern.quote(edit[0]) + "$", edit[1]);
+			if (edit[0].equals("x")) {
+				current = current.replace("read x", "read w").replace("add x", "add w");
+			}
+			assertArrayEquals(current, assembleFresh(current), cache.assemble("program", current));
+		}
+		assertEquals(5, cache.getIncrementalAssemblies()); //renaming the first variable needs a full assembly
+		assertEquals(2, cache.getFullAssemblies());
+		
+		//an edit with an error is reported and does not break the next assembly
+		try {
+			cache.assemble("program", current.replace("end: halt", "end: halt\nend: halt"));
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		String fixed = current.replace("end: halt", "end: inc\n  halt");
+		assertArrayEquals(assembleFresh(fixed), cache.assemble("program", fixed));
+		
+		//images written to a directory are found by another cache
+		File directory = File.createTempFile("asmcache", "");
+		directory.delete();
+		cache = new AssemblyCache(128);
+		cache.setDirectory(directory);
+		cache.assemble(null, source);
+		AssemblyCache other = new AssemblyCache(128);
+		other.setDirectory(directory);
+		assertArrayEquals(assembleFresh(source), other.assemble(null, source));
+		assertEquals(1, other.getHits());
+		//a different memory size is a different configuration
+		AssemblyCache larger = new AssemblyCache(256);
+		larger.setDirectory(directory);
+		larger.assemble(null, source);
+		assertEquals(0, larger.getHits());
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+}
@@ -0,0 +1,75 @@
+package components;
+
+/**
+ * Armazenamento padrão da Memory: um int[] com todas as palavras, alocado e zerado na criação.
+ *
+ * Depois de fork(), pai e filho compartilham o array até a primeira escrita de cada um, que copia
+ * o array inteiro; para memórias grandes, o PagedMemoryStorage copia só a página escrita.
+ */
+public class ArrayMemoryStorage implements MemoryStorage {
+
+    private int[] data;
+    private boolean shared; // O array também é usado por outro armazenamento (copiar antes de escrever)
+
+    public ArrayMemoryStorage(int size) {
+        this.data = new int[size];
+    }
+
+    private ArrayMemoryStorage(int[] data) {
+        this.data = data;
+        this.shared = true;
+    }
+
+    @Override
+    public int size() {
+        return data.length;
+    }
+
+    @Override
+    public int get(int address) {
+        return data[address];
+    }
+
+    @Override
+    public void set(int address, int value) {
+        if (shared) {
+            unshare();
+        }
+        data[address] = value;
+    }
+
+    @Override
+    public void copyIn(int address, int[] values, int offset, int length) {
+        if (shared) {
+            unshare();
+        }
+        System.arraycopy(values, offset, data, address, length);
+    }
+
+    private void unshare() {
+        data = data.clone();
+        shared = false;
+    }
+
+    @Override
+    public ArrayMemoryStorage fork() {
+        shared = true;
+        return new ArrayMemoryStorage(data);
+    }
+
+    @Override
+    public int[] toArray() {
+        return data.clone();
+    }
+
+    /**
+     * @return O próprio array de trabalho (escritas nele não são vistas pelos observadores da Memory).
+     */
+    @Override
+    public int[] array() {
+        if (shared) {
+            unshare(); // Quem recebe o array pode escrever nele
+        }
+        return data;
+    }
+}
@@ -2,6 +2,7 @@ package components;
 
 public class Bus {
     private int data; // O valor que o barramento está transportando no momento
+    private CycleCounter cycles; // Modelo de ciclos (null = desligado)
 
     public Bus() {
         this.data = 0; // Inicializa o barramento com 0
@@ -12,8 +13,13 @@ public class Bus {
      * @param value O valor a ser colocado no barramento.
      */
     public void put(int value) {
+        if (cycles != null) {
+            cycles.charge(MicroOp.BUS_PUT);
+        }
         this.data = value;
-        // System.out.println("DEBUG: Bus (put) -> " + value); // Para depuração
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.busPut(this, value);
+        }
     }
 
     /**
@@ -21,7 +27,12 @@ public class Bus {
      * @return O valor atualmente no barramento.
      */
     public int get() {
-        // System.out.println("DEBUG: Bus (get) -> " + this.data); // Para depuração
+        if (cycles != null) {
+            cycles.charge(MicroOp.BUS_GET);
+        }
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.busGet(this, this.data);
+        }
         return this.data;
     }
 
@@ -33,6 +44,13 @@ public class Bus {
     // Se precisar de funcionalidades de "transferência com log" ou similares,
     // elas podem ser recriadas ou a depuração pode ser feita nos put/get.
 
+    /**
+     * Liga (ou desliga, com null) a contagem de ciclos das operações deste barramento.
+     */
+    public void setCycleCounter(CycleCounter cycles) {
+        this.cycles = cycles;
+    }
+
     @Override
     public String toString() {
         return "Bus [data=" + data + "]";
@@ -0,0 +1,224 @@
+package components;
+
+import java.util.Random;
+
+/**
+ * Um nível de cache associativa por conjuntos, usado pela CacheHierarchy.
+ *
+ * Guarda apenas tags e estado (válida, suja, informação de substituição): os dados continuam na
+ * Memory, de modo que a simulação da cache não altera o resultado dos programas, só as estatísticas.
+ * Capacidade e tamanho de linha são medidos em palavras.
+ */
+public class Cache {
+
+    public enum Replacement {
+        LRU,    // Menos recentemente usada
+        PLRU,   // Pseudo-LRU em árvore (associatividade potência de 2)
+        RANDOM  // Aleatória, com semente fixa para que as execuções sejam reprodutíveis
+    }
+
+    public enum WritePolicy {
+        WRITE_BACK,    // Escrita fica na cache (write-allocate); a linha suja vai para baixo ao ser expulsa
+        WRITE_THROUGH  // Escrita sempre desce para o próximo nível (no-write-allocate)
+    }
+
+    private static final long RANDOM_SEED = 0x0AC;
+
+    private final String name;
+    private final int lineSize;
+    private final int associativity;
+    private final int sets;
+    private final Replacement replacement;
+    private final WritePolicy writePolicy;
+    private final int hitLatency;
+
+    // Estado das linhas, indexado por conjunto * associatividade + via
+    private final int[] tags;
+    private final boolean[] valid;
+    private final boolean[] dirty;
+    private final long[] lastUse;  // LRU
+    private final int[] plruBits;  // PLRU: associatividade - 1 bits por conjunto
+    private final Random random = new Random(RANDOM_SEED);
+    private long clock;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long writeBacks;
+    private int evictedDirtyLine = -1; // Endereço da linha suja expulsa pelo último access() (-1 se nenhuma)
+
+    /**
+     * @param name Nome do nível nos relatórios (ex: "L1").
+     * @param capacity Capacidade em palavras.
+     * @param associativity Vias por conjunto.
+     * @param lineSize Palavras por linha.
+     * @param replacement Política de substituição.
+     * @param writePolicy Política de escrita.
+     * @param hitLatency Ciclos de um acerto neste nível.
+     */
+    public Cache(String name, int capacity, int associativity, int lineSize,
+                 Replacement replacement, WritePolicy writePolicy, int hitLatency) {
+        if (capacity <= 0 || associativity <= 0 || lineSize <= 0 || capacity % (associativity * lineSize) != 0) {
+            throw new IllegalArgumentException("Cache " + name + ": a capacidade (" + capacity
+                    + ") deve ser múltipla de associatividade x linha (" + associativity + " x " + lineSize + ").");
+        }
+        if (replacement == Replacement.PLRU && (associativity > 32 || (associativity & (associativity - 1)) != 0)) {
+            throw new IllegalArgumentException("Cache " + name + ": PLRU exige associatividade potência de 2 (até 32).");
+        }
+        if (hitLatency < 0) {
+            throw new IllegalArgumentException("Cache " + name + ": latência negativa.");
+        }
+        this.name = name;
+        this.lineSize = lineSize;
+        this.associativity = associativity;
+        this.sets = capacity / (associativity * lineSize);
+        this.replacement = replacement;
+        this.writePolicy = writePolicy;
+        this.hitLatency = hitLatency;
+        int lines = sets * associativity;
+        tags = new int[lines];
+        valid = new boolean[lines];
+        dirty = new boolean[lines];
+        lastUse = new long[lines];
+        plruBits = new int[sets];
+    }
+
+    /**
+     * Acessa uma palavra: em caso de falta, a linha é trazida para a cache (exceto escrita em
+     * write-through), expulsando uma vítima se o conjunto estiver cheio.
+     * @param address O endereço da palavra.
+     * @param write true para escrita.
+     * @return true se foi um acerto.
+     */
+    public boolean access(int address, boolean write) {
+        evictedDirtyLine = -1;
+        int line = address / lineSize;
+        int set = line % sets;
+        int tag = line / sets;
+        int base = set * associativity;
+        for (int way = 0; way < associativity; way++) {
+            int i = base + way;
+            if (valid[i] && tags[i] == tag) {
+                hits++;
+                touch(set, way);
+                if (write && writePolicy == WritePolicy.WRITE_BACK) {
+                    dirty[i] = true;
+                }
+                return true;
+            }
+        }
+        misses++;
+        if (write && writePolicy == WritePolicy.WRITE_THROUGH) {
+            return false;
+        }
+        int way = victim(set);
+        int i = base + way;
+        if (valid[i]) {
+            evictions++;
+            if (dirty[i]) {
+                writeBacks++;
+                evictedDirtyLine = (tags[i] * sets + set) * lineSize;
+            }
+        }
+        valid[i] = true;
+        tags[i] = tag;
+        dirty[i] = write;
+        touch(set, way);
+        return false;
+    }
+
+    private int victim(int set) {
+        int base = set * associativity;
+        for (int way = 0; way < associativity; way++) {
+            if (!valid[base + way]) {
+                return way;
+            }
+        }
+        switch (replacement) {
+            case LRU: {
+                int oldest = 0;
+                for (int way = 1; way < associativity; way++) {
+                    if (lastUse[base + way] < lastUse[base + oldest]) {
+                        oldest = way;
+                    }
+                }
+                return oldest;
+            }
+            case PLRU: {
+                // Desce a árvore seguindo os bits: 0 = a metade esquerda é a menos recente
+                int node = 0;
+                int bits = plruBits[set];
+                while (node < associativity - 1) {
+                    node = 2 * node + 1 + ((bits >>> node) & 1);
+                }
+                return node - (associativity - 1);
+            }
+            default:
+                return random.nextInt(associativity);
+        }
+    }
+
+    private void touch(int set, int way) {
+        if (replacement == Replacement.LRU) {
+            lastUse[set * associativity + way] = ++clock;
+        } else if (replacement == Replacement.PLRU) {
+            // Sobe da folha até a raiz, apontando cada nó para a metade oposta à usada
+            int node = way + associativity - 1;
+            int bits = plruBits[set];
+            while (node > 0) {
+                int parent = (node - 1) / 2;
+                boolean cameFromLeft = node == 2 * parent + 1;
+                bits = cameFromLeft ? bits | (1 << parent) : bits & ~(1 << parent);
+                node = parent;
+            }
+            plruBits[set] = bits;
+        }
+    }
+
+    /**
+     * Invalida todas as linhas e zera as estatísticas.
+     */
+    public void reset() {
+        for (int i = 0; i < valid.length; i++) {
+            valid[i] = false;
+            dirty[i] = false;
+            lastUse[i] = 0;
+        }
+        for (int set = 0; set < sets; set++) {
+            plruBits[set] = 0;
+        }
+        random.setSeed(RANDOM_SEED);
+        clock = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        writeBacks = 0;
+        evictedDirtyLine = -1;
+    }
+
+    /**
+     * @return O primeiro endereço da linha suja expulsa pelo último access(), ou -1 se nenhuma foi.
+     */
+    public int getEvictedDirtyLine() { return evictedDirtyLine; }
+
+    public String getName() { return name; }
+    public int getCapacity() { return sets * associativity * lineSize; }
+    public int getAssociativity() { return associativity; }
+    public int getLineSize() { return lineSize; }
+    public int getSetCount() { return sets; }
+    public Replacement getReplacement() { return replacement; }
+    public WritePolicy getWritePolicy() { return writePolicy; }
+    public int getHitLatency() { return hitLatency; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public long getWriteBacks() { return writeBacks; }
+
+    /**
+     * @return A fração de acessos que acertaram (0 se não houve acessos).
+     */
+    public double getHitRate() {
+        long accesses = hits + misses;
+        return accesses == 0 ? 0 : (double) hits / accesses;
+    }
+}
@@ -0,0 +1,138 @@
+package components;
+
+/**
+ * Hierarquia de caches (ex: L1 e L2) entre o barramento e a Memory.
+ *
+ * Ligada com Memory.setCacheHierarchy(), recebe cada read() e a fase de dado de cada store().
+ * Um acesso desce pelos níveis até acertar; cada nível visitado soma sua latência e, se nenhum
+ * acertar, soma-se a latência da memória principal. Em write-through a escrita sempre continua
+ * para o nível de baixo. Linhas sujas expulsas são escritas no nível seguinte fora do caminho
+ * crítico (não somam latência ao acesso).
+ *
+ * As estatísticas acumulam até reset(); para medir um programa, chame reset() antes de executá-lo.
+ */
+public class CacheHierarchy {
+
+    private final Cache[] levels;
+    private final int memoryLatency;
+
+    private long accesses;
+    private long reads;
+    private long writes;
+    private long totalLatency;
+    private long memoryAccesses;
+
+    /**
+     * @param memoryLatency Ciclos de um acesso à memória principal.
+     * @param levels Os níveis, do mais próximo do processador (L1) para o mais distante.
+     */
+    public CacheHierarchy(int memoryLatency, Cache... levels) {
+        if (memoryLatency < 0) {
+            throw new IllegalArgumentException("Latência da memória negativa: " + memoryLatency);
+        }
+        this.memoryLatency = memoryLatency;
+        this.levels = levels.clone();
+    }
+
+    /**
+     * Simula um acesso a uma palavra.
+     * @param address O endereço.
+     * @param write true para escrita.
+     * @return A latência do acesso em ciclos.
+     */
+    public int access(int address, boolean write) {
+        accesses++;
+        if (write) {
+            writes++;
+        } else {
+            reads++;
+        }
+        int latency = 0;
+        boolean done = false;
+        for (int i = 0; i < levels.length && !done; i++) {
+            Cache level = levels[i];
+            latency += level.getHitLatency();
+            boolean hit = level.access(address, write);
+            int victim = level.getEvictedDirtyLine();
+            if (victim >= 0) {
+                writeBack(i + 1, victim);
+            }
+            done = hit && !(write && level.getWritePolicy() == Cache.WritePolicy.WRITE_THROUGH);
+        }
+        if (!done) {
+            latency += memoryLatency;
+            memoryAccesses++;
+        }
+        totalLatency += latency;
+        return latency;
+    }
+
+    /**
+     * Escreve uma linha expulsa a partir do nível `from` (a memória principal, se não houver).
+     */
+    private void writeBack(int from, int address) {
+        for (int i = from; i < levels.length; i++) {
+            boolean hit = levels[i].access(address, true);
+            int victim = levels[i].getEvictedDirtyLine();
+            if (victim >= 0) {
+                writeBack(i + 1, victim);
+            }
+            if (hit && levels[i].getWritePolicy() == Cache.WritePolicy.WRITE_BACK) {
+                return;
+            }
+        }
+        memoryAccesses++;
+    }
+
+    /**
+     * Invalida todos os níveis e zera as estatísticas.
+     */
+    public void reset() {
+        for (Cache level : levels) {
+            level.reset();
+        }
+        accesses = 0;
+        reads = 0;
+        writes = 0;
+        totalLatency = 0;
+        memoryAccesses = 0;
+    }
+
+    public int getLevelCount() { return levels.length; }
+    public Cache getLevel(int index) { return levels[index]; }
+    public int getMemoryLatency() { return memoryLatency; }
+    public long getAccesses() { return accesses; }
+    public long getReads() { return reads; }
+    public long getWrites() { return writes; }
+    public long getTotalLatency() { return totalLatency; }
+
+    /**
+     * @return Acessos que chegaram à memória principal (faltas no último nível e write-backs).
+     */
+    public long getMemoryAccesses() { return memoryAccesses; }
+
+    /**
+     * @return A latência média por acesso em ciclos (0 se não houve acessos).
+     */
+    public double getAverageLatency() {
+        return accesses == 0 ? 0 : (double) totalLatency / accesses;
+    }
+
+    /**
+     * @return Um resumo por nível, pronto para ser impresso.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("----- Hierarquia de caches -----\n");
+        sb.append(String.format("Acessos: %d (%d leituras, %d escritas), latência média %.2f ciclos%n",
+                accesses, reads, writes, getAverageLatency()));
+        for (Cache level : levels) {
+            sb.append(String.format("%s (%d palavras, %d vias, linha %d, %s, %s): %d acertos, %d faltas (%.2f%%), %d expulsões, %d write-backs%n",
+                    level.getName(), level.getCapacity(), level.getAssociativity(), level.getLineSize(),
+                    level.getReplacement(), level.getWritePolicy(), level.getHits(), level.getMisses(),
+                    100 * level.getHitRate(), level.getEvictions(), level.getWriteBacks()));
+        }
+        sb.append(String.format("Memória principal: %d acessos%n", memoryAccesses));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package components;
+
+/**
+ * Observador das operações dos componentes: barramentos, transferências dos registradores,
+ * operações da ULA e acessos à memória. Registrado com Instrumentation.addListener().
+ *
+ * Todos os métodos têm implementação vazia, então basta sobrescrever os eventos de interesse.
+ * Os eventos são de todas as instâncias; o componente vem como parâmetro para que o observador filtre.
+ */
+public interface ComponentEventListener {
+
+    /**
+     * Um valor foi colocado no barramento.
+     */
+    default void busPut(Bus bus, int value) { }
+
+    /**
+     * Um valor foi lido do barramento.
+     */
+    default void busGet(Bus bus, int value) { }
+
+    /**
+     * O registrador colocou o seu valor em um barramento (read() e internalRead()).
+     */
+    default void registerRead(Register register, Bus bus, int value) { }
+
+    /**
+     * O registrador recebeu um valor de um barramento (store() e internalStore()).
+     */
+    default void registerStore(Register register, Bus bus, int value) { }
+
+    /**
+     * A ULA executou uma operação.
+     * @param operation "add", "sub", "inc" ou "compare".
+     * @param operand0 O primeiro operando.
+     * @param operand1 O segundo operando (o valor anterior de internalReg1 no inc).
+     * @param result O resultado, guardado em internalReg1.
+     */
+    default void ulaOperation(Ula ula, String operation, int operand0, int operand1, int result) { }
+
+    /**
+     * A memória foi lida pelo barramento (read()) ou por uma instrução (readData()).
+     */
+    default void memoryRead(Memory memory, int address, int value) { }
+
+    /**
+     * A memória foi escrita pelo barramento (fase de dado do store()) ou por uma instrução (writeData()).
+     */
+    default void memoryWrite(Memory memory, int address, int value) { }
+}
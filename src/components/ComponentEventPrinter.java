@@ -0,0 +1,52 @@
+package components;
+
+import java.io.PrintStream;
+
+/**
+ * Imprime os eventos dos componentes, como faziam as linhas "DEBUG:" que ficavam comentadas no código.
+ * Uso: Instrumentation.addListener(new ComponentEventPrinter(System.out)) e, no fim,
+ * Instrumentation.removeListener(...) para voltar à execução sem custo.
+ */
+public class ComponentEventPrinter implements ComponentEventListener {
+
+    private final PrintStream out;
+
+    public ComponentEventPrinter(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void busPut(Bus bus, int value) {
+        out.println("DEBUG: Bus (put) -> " + value);
+    }
+
+    @Override
+    public void busGet(Bus bus, int value) {
+        out.println("DEBUG: Bus (get) -> " + value);
+    }
+
+    @Override
+    public void registerRead(Register register, Bus bus, int value) {
+        out.println("DEBUG: " + register.getRegisterName() + " leu " + value + " para o barramento.");
+    }
+
+    @Override
+    public void registerStore(Register register, Bus bus, int value) {
+        out.println("DEBUG: " + register.getRegisterName() + " armazenou " + value + " do barramento.");
+    }
+
+    @Override
+    public void ulaOperation(Ula ula, String operation, int operand0, int operand1, int result) {
+        out.println("DEBUG: ULA " + operation + "(" + operand0 + ", " + operand1 + ") = " + result);
+    }
+
+    @Override
+    public void memoryRead(Memory memory, int address, int value) {
+        out.println("DEBUG: Memory leu MEM[" + address + "] = " + value);
+    }
+
+    @Override
+    public void memoryWrite(Memory memory, int address, int value) {
+        out.println("DEBUG: Memory armazenou " + value + " em MEM[" + address + "]");
+    }
+}
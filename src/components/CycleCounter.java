@@ -0,0 +1,187 @@
+package components;
+
+/**
+ * Modelo de ciclos: cobra um custo configurável por micro-operação (ver MicroOp) e acumula
+ * os totais por opcode e para o programa inteiro.
+ *
+ * Os componentes (Bus, Register, ULA, Memory) chamam charge() quando têm um contador ligado;
+ * a Architecture marca o início e o fim de cada instrução para atribuir os ciclos ao opcode executado.
+ * Os modos que não passam pelos barramentos (pré-decodificação e FUNCTIONAL) chamam chargeInstruction(),
+ * que cobra de uma vez as micro-operações que o microprograma daquele opcode executaria (ver
+ * INSTRUCTION_MICRO_OPS), de modo que os três modos chegam aos mesmos totais.
+ * Os totais acumulam entre execuções até reset(). Por padrão toda micro-operação custa 1 ciclo.
+ */
+public class CycleCounter {
+
+    private static final MicroOp[] MICRO_OPS = MicroOp.values();
+    private static final int UNKNOWN_OPCODE = Opcodes.OPCODE_COUNT; // Posição extra para opcodes inválidos
+
+    /**
+     * Micro-operações de cada instrução no caminho microprogramado (fetch, decodificação e microprograma),
+     * indexadas por opcode e na ordem de MicroOp. Cada microprograma executa sempre as mesmas
+     * micro-operações (os desvios condicionais passam pela statusMemory, tomados ou não).
+     * Um opcode inválido custa o fetch e a decodificação (a linha do halt, que não faz mais nada).
+     * Conferida contra os microprogramas em TestArchitecture.testCycleCounterAllModes().
+     */
+    private static final int[][] INSTRUCTION_MICRO_OPS = {
+        // BUS_PUT, BUS_GET, REG_READ, REG_STORE, REG_INTERNAL_READ, REG_INTERNAL_STORE,
+        // ULA_STORE, ULA_READ, ULA_OPERATION, MEM_READ, MEM_STORE
+        {14, 15, 1, 2, 5, 3, 4, 4, 3, 3, 0},  // add
+        {14, 15, 1, 2, 5, 3, 4, 4, 3, 3, 0},  // sub
+        { 9, 10, 1, 2, 3, 2, 2, 2, 2, 2, 0},  // jmp
+        {12, 13, 1, 2, 3, 2, 2, 2, 2, 3, 2},  // jz
+        {12, 13, 1, 2, 3, 2, 2, 2, 2, 3, 2},  // jn
+        {10, 11, 1, 2, 3, 2, 2, 2, 2, 3, 0},  // read
+        {10, 11, 2, 1, 3, 2, 2, 2, 2, 2, 2},  // store
+        { 9, 10, 1, 2, 3, 2, 2, 2, 2, 2, 0},  // ldi
+        { 8,  8, 1, 1, 3, 2, 2, 3, 2, 1, 0},  // inc
+        {15, 15, 1, 1, 5, 4, 4, 4, 3, 3, 0},  // move
+        {12, 13, 1, 2, 3, 2, 2, 2, 2, 3, 2},  // jnz
+        {26, 25, 1, 2, 7, 4, 7, 7, 5, 5, 2},  // jeq
+        {26, 25, 1, 2, 7, 4, 7, 7, 5, 5, 2},  // jgt
+        {26, 25, 1, 2, 7, 4, 7, 7, 5, 5, 2},  // jlw
+        {14, 15, 1, 2, 4, 3, 3, 3, 3, 2, 2},  // call
+        { 7,  7, 1, 1, 2, 1, 1, 1, 1, 2, 0},  // ret
+        {32, 32, 6, 2, 4, 3, 3, 3, 3, 3, 18}, // imul
+        { 3,  3, 1, 1, 1, 0, 0, 0, 0, 1, 0},  // halt
+    };
+
+    private final long[] costs = new long[MICRO_OPS.length];
+    private final long[] microOpCounts = new long[MICRO_OPS.length];
+    private final long[] cyclesByOpcode = new long[Opcodes.OPCODE_COUNT + 1];
+    private final long[] instructionsByOpcode = new long[Opcodes.OPCODE_COUNT + 1];
+
+    private long cycles;           // Total do programa
+    private long instructions;
+    private long instructionStart; // Valor de `cycles` no início da instrução atual
+
+    public CycleCounter() {
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = 1;
+        }
+    }
+
+    /**
+     * Altera o custo de uma micro-operação (vale para as próximas cobranças).
+     * @param op A micro-operação.
+     * @param cost O custo em ciclos (0 para não contar).
+     */
+    public void setCost(MicroOp op, long cost) {
+        if (cost < 0) {
+            throw new IllegalArgumentException("Custo negativo para " + op + ": " + cost);
+        }
+        costs[op.ordinal()] = cost;
+    }
+
+    public long getCost(MicroOp op) { return costs[op.ordinal()]; }
+
+    /**
+     * Cobra uma micro-operação.
+     * @param op A micro-operação executada.
+     */
+    public void charge(MicroOp op) {
+        microOpCounts[op.ordinal()]++;
+        cycles += costs[op.ordinal()];
+    }
+
+    /**
+     * Cobra uma instrução inteira pela tabela INSTRUCTION_MICRO_OPS e a atribui ao opcode
+     * (equivale a beginInstruction(), as micro-operações do microprograma e endInstruction()).
+     * @param opcode O opcode executado.
+     */
+    public void chargeInstruction(int opcode) {
+        int[] microOps = INSTRUCTION_MICRO_OPS[opcode >= 0 && opcode < Opcodes.OPCODE_COUNT ? opcode : Opcodes.HALT];
+        beginInstruction();
+        for (int i = 0; i < microOps.length; i++) {
+            microOpCounts[i] += microOps[i];
+            cycles += microOps[i] * costs[i];
+        }
+        endInstruction(opcode);
+    }
+
+    /**
+     * Marca o início de uma instrução (antes do fetch).
+     */
+    public void beginInstruction() {
+        instructionStart = cycles;
+    }
+
+    /**
+     * Marca o fim da instrução e atribui a ela os ciclos gastos desde beginInstruction().
+     * @param opcode O opcode executado.
+     */
+    public void endInstruction(int opcode) {
+        int bucket = opcode >= 0 && opcode < Opcodes.OPCODE_COUNT ? opcode : UNKNOWN_OPCODE;
+        cyclesByOpcode[bucket] += cycles - instructionStart;
+        instructionsByOpcode[bucket]++;
+        instructions++;
+    }
+
+    /**
+     * Zera todos os totais (os custos configurados são mantidos).
+     */
+    public void reset() {
+        for (int i = 0; i < microOpCounts.length; i++) {
+            microOpCounts[i] = 0;
+        }
+        for (int i = 0; i < cyclesByOpcode.length; i++) {
+            cyclesByOpcode[i] = 0;
+            instructionsByOpcode[i] = 0;
+        }
+        cycles = 0;
+        instructions = 0;
+        instructionStart = 0;
+    }
+
+    public long getTotalCycles() { return cycles; }
+    public long getInstructionCount() { return instructions; }
+    public long getMicroOpCount(MicroOp op) { return microOpCounts[op.ordinal()]; }
+
+    /**
+     * @param opcode O opcode (um valor fora de [0, OPCODE_COUNT) consulta a soma dos opcodes inválidos).
+     * @return Os ciclos gastos pelas execuções desse opcode.
+     */
+    public long getCyclesForOpcode(int opcode) {
+        return cyclesByOpcode[opcode >= 0 && opcode < Opcodes.OPCODE_COUNT ? opcode : UNKNOWN_OPCODE];
+    }
+
+    /**
+     * @param opcode O opcode (um valor fora de [0, OPCODE_COUNT) consulta a soma dos opcodes inválidos).
+     * @return Quantas vezes esse opcode foi executado.
+     */
+    public long getInstructionsForOpcode(int opcode) {
+        return instructionsByOpcode[opcode >= 0 && opcode < Opcodes.OPCODE_COUNT ? opcode : UNKNOWN_OPCODE];
+    }
+
+    /**
+     * @return Média de ciclos por instrução (0 se nada foi executado).
+     */
+    public double getCyclesPerInstruction() {
+        return instructions == 0 ? 0 : (double) cycles / instructions;
+    }
+
+    /**
+     * Monta um relatório com os ciclos por opcode e as contagens de micro-operações.
+     * @return O relatório, pronto para ser impresso.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("----- Ciclos por instrução -----\n");
+        sb.append(String.format("%-22s %12s %14s %10s%n", "Instrução", "Execuções", "Ciclos", "CPI"));
+        for (int op = 0; op < cyclesByOpcode.length; op++) {
+            if (instructionsByOpcode[op] == 0) {
+                continue;
+            }
+            String name = op == UNKNOWN_OPCODE ? "(inválida)" : Opcodes.getInstructionName(op);
+            sb.append(String.format("%-22s %12d %14d %10.2f%n", name, instructionsByOpcode[op], cyclesByOpcode[op],
+                    (double) cyclesByOpcode[op] / instructionsByOpcode[op]));
+        }
+        sb.append(String.format("%-22s %12d %14d %10.2f%n", "Total", instructions, cycles, getCyclesPerInstruction()));
+        sb.append("----- Micro-operações -----\n");
+        sb.append(String.format("%-22s %12s %14s%n", "Micro-operação", "Quantidade", "Custo unitário"));
+        for (MicroOp op : MICRO_OPS) {
+            sb.append(String.format("%-22s %12d %14d%n", op, microOpCounts[op.ordinal()], costs[op.ordinal()]));
+        }
+        return sb.toString();
+    }
+}
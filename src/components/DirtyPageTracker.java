@@ -0,0 +1,73 @@
+package components;
+
+import java.util.Arrays;
+
+/**
+ * Registra quais páginas da memória foram escritas desde a última chamada de clear()
+ * (ex: desde o último checkpoint). É um MemoryWriteListener: vê as escritas de store(),
+ * setData()/writeData() e load(), mas não as feitas diretamente no array de getDataList().
+ */
+public class DirtyPageTracker implements MemoryWriteListener {
+
+    public static final int DEFAULT_PAGE_BITS = 6; // Páginas de 64 palavras
+
+    private final int pageBits;
+    private final boolean[] dirty;
+    private int[] dirtyList;  // As páginas sujas, na ordem em que foram sujas
+    private int dirtyCount;
+
+    /**
+     * @param memorySize O tamanho da memória observada.
+     * @param pageBits log2 do tamanho da página em palavras.
+     */
+    public DirtyPageTracker(int memorySize, int pageBits) {
+        if (pageBits < 0 || pageBits > 20) {
+            throw new IllegalArgumentException("Tamanho de página inválido: 2^" + pageBits + " palavras");
+        }
+        this.pageBits = pageBits;
+        this.dirty = new boolean[((memorySize - 1) >>> pageBits) + 1];
+        this.dirtyList = new int[Math.min(dirty.length, 16)];
+    }
+
+    @Override
+    public void memoryWritten(int startAddress, int length) {
+        int last = Math.min(startAddress + length - 1, (dirty.length << pageBits) - 1);
+        for (int page = Math.max(0, startAddress) >>> pageBits; page <= last >>> pageBits; page++) {
+            if (!dirty[page]) {
+                dirty[page] = true;
+                if (dirtyCount == dirtyList.length) {
+                    int[] grown = new int[Math.min(dirty.length, dirtyList.length * 2)];
+                    System.arraycopy(dirtyList, 0, grown, 0, dirtyCount);
+                    dirtyList = grown;
+                }
+                dirtyList[dirtyCount++] = page;
+            }
+        }
+    }
+
+    public boolean isDirty(int page) { return dirty[page]; }
+    public int getDirtyPageCount() { return dirtyCount; }
+    public int getPageSize() { return 1 << pageBits; }
+    public int getPageBits() { return pageBits; }
+    public int getPageCount() { return dirty.length; }
+
+    /**
+     * @return Os índices das páginas sujas, em ordem crescente.
+     */
+    public int[] getDirtyPages() {
+        int[] pages = new int[dirtyCount];
+        System.arraycopy(dirtyList, 0, pages, 0, dirtyCount);
+        Arrays.sort(pages);
+        return pages;
+    }
+
+    /**
+     * Marca todas as páginas como limpas.
+     */
+    public void clear() {
+        for (int i = 0; i < dirtyCount; i++) {
+            dirty[dirtyList[i]] = false;
+        }
+        dirtyCount = 0;
+    }
+}
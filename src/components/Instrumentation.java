@@ -0,0 +1,126 @@
+package components;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
+
+/**
+ * Instrumentação dos componentes (Bus, Register, ULA e Memory) sem custo quando desligada.
+ *
+ * Cada ponto instrumentado é `if (Instrumentation.isEnabled()) { Instrumentation.evento(...); }`.
+ * isEnabled() invoca um MethodHandle constante ligado a um MutableCallSite cujo alvo é a constante
+ * false enquanto não há observadores: o JIT trata o resultado como constante e remove o teste e o
+ * evento do código compilado. Registrar o primeiro observador troca o alvo para true e invalida
+ * (MutableCallSite.syncAll) o código compilado que dependia dele; remover o último volta para false.
+ *
+ * Os observadores são globais: recebem os eventos de todas as instâncias dos componentes.
+ * Substitui os antigos "System.out.println("DEBUG: ...")" comentados (ver ComponentEventPrinter).
+ */
+public final class Instrumentation {
+
+    private static final MutableCallSite ENABLED_SITE = new MutableCallSite(MethodHandles.constant(boolean.class, false));
+    private static final MethodHandle ENABLED = ENABLED_SITE.dynamicInvoker();
+
+    private static volatile ComponentEventListener[] listeners = new ComponentEventListener[0];
+
+    private Instrumentation() {
+    }
+
+    /**
+     * @return true se há algum observador registrado.
+     */
+    public static boolean isEnabled() {
+        try {
+            return (boolean) ENABLED.invokeExact();
+        } catch (Throwable e) {
+            throw new AssertionError(e); // O alvo é sempre uma constante
+        }
+    }
+
+    /**
+     * Registra um observador dos eventos dos componentes.
+     * @param listener O observador.
+     */
+    public static synchronized void addListener(ComponentEventListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        ComponentEventListener[] grown = new ComponentEventListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, grown, 0, listeners.length);
+        grown[listeners.length] = listener;
+        listeners = grown;
+        if (grown.length == 1) {
+            setEnabled(true);
+        }
+    }
+
+    /**
+     * Remove um observador registrado com addListener(). Sem observadores, a instrumentação volta
+     * a não ter custo.
+     * @param listener O observador.
+     */
+    public static synchronized void removeListener(ComponentEventListener listener) {
+        ComponentEventListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                ComponentEventListener[] shrunk = new ComponentEventListener[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, i);
+                System.arraycopy(current, i + 1, shrunk, i, current.length - i - 1);
+                listeners = shrunk;
+                if (shrunk.length == 0) {
+                    setEnabled(false);
+                }
+                return;
+            }
+        }
+    }
+
+    private static void setEnabled(boolean enabled) {
+        ENABLED_SITE.setTarget(MethodHandles.constant(boolean.class, enabled));
+        MutableCallSite.syncAll(new MutableCallSite[] {ENABLED_SITE});
+    }
+
+    // --- Despacho (chamado pelos componentes só quando isEnabled()) ---
+
+    static void busPut(Bus bus, int value) {
+        for (ComponentEventListener listener : listeners) {
+            listener.busPut(bus, value);
+        }
+    }
+
+    static void busGet(Bus bus, int value) {
+        for (ComponentEventListener listener : listeners) {
+            listener.busGet(bus, value);
+        }
+    }
+
+    static void registerRead(Register register, Bus bus, int value) {
+        for (ComponentEventListener listener : listeners) {
+            listener.registerRead(register, bus, value);
+        }
+    }
+
+    static void registerStore(Register register, Bus bus, int value) {
+        for (ComponentEventListener listener : listeners) {
+            listener.registerStore(register, bus, value);
+        }
+    }
+
+    static void ulaOperation(Ula ula, String operation, int operand0, int operand1, int result) {
+        for (ComponentEventListener listener : listeners) {
+            listener.ulaOperation(ula, operation, operand0, operand1, result);
+        }
+    }
+
+    static void memoryRead(Memory memory, int address, int value) {
+        for (ComponentEventListener listener : listeners) {
+            listener.memoryRead(memory, address, value);
+        }
+    }
+
+    static void memoryWrite(Memory memory, int address, int value) {
+        for (ComponentEventListener listener : listeners) {
+            listener.memoryWrite(memory, address, value);
+        }
+    }
+}
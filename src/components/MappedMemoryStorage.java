@@ -0,0 +1,154 @@
+package components;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Armazenamento da Memory em um arquivo mapeado em memória (MappedByteBuffer), fora do heap.
+ *
+ * O arquivo é a própria imagem da memória: palavras de 32 bits big-endian, sem cabeçalho
+ * (o tamanho da memória é o tamanho do arquivo / 4). Assim:
+ * - memórias grandes não pressionam o coletor de lixo;
+ * - abrir uma imagem salva é só mapear o arquivo (open()), sem copiar nada;
+ * - o estado final da memória fica no arquivo; force() ou close() garantem que foi gravado no disco.
+ *
+ * O arquivo é mapeado em fatias de 2^28 palavras, porque cada mapeamento é limitado a 2 GB.
+ */
+public class MappedMemoryStorage implements MemoryStorage, AutoCloseable {
+
+    private static final int CHUNK_BITS = 28; // 2^28 palavras = 1 GB por mapeamento
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] buffers;
+    private final IntBuffer[] chunks; // Visões de int sobre os mapeamentos
+    private final int size;
+
+    private MappedMemoryStorage(FileChannel channel, int size) throws IOException {
+        this.channel = channel;
+        this.size = size;
+        int count = (int) (((long) size + CHUNK_MASK) >>> CHUNK_BITS);
+        buffers = new MappedByteBuffer[count];
+        chunks = new IntBuffer[count];
+        for (int c = 0; c < count; c++) {
+            long first = (long) c << CHUNK_BITS;
+            long words = Math.min(1L << CHUNK_BITS, size - first);
+            buffers[c] = channel.map(FileChannel.MapMode.READ_WRITE, first * 4, words * 4);
+            chunks[c] = buffers[c].asIntBuffer();
+        }
+    }
+
+    /**
+     * Cria (ou trunca) um arquivo de imagem com `size` palavras zeradas e o mapeia.
+     * @param fileName Caminho do arquivo.
+     * @param size Quantidade de palavras.
+     * @return O armazenamento.
+     * @throws IOException Se o arquivo não puder ser criado ou mapeado.
+     */
+    public static MappedMemoryStorage create(String fileName, int size) throws IOException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Memory size must be positive.");
+        }
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new MappedMemoryStorage(channel, size); // Mapear além do fim estende o arquivo com zeros
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Mapeia um arquivo de imagem existente (ex: o estado final de uma execução anterior).
+     * As escritas na memória passam a alterar o arquivo.
+     * @param fileName Caminho do arquivo.
+     * @return O armazenamento.
+     * @throws IOException Se o arquivo não existir, não puder ser mapeado ou não tiver um tamanho válido.
+     */
+    public static MappedMemoryStorage open(String fileName) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long bytes = channel.size();
+            if (bytes == 0 || bytes % 4 != 0 || bytes / 4 > Integer.MAX_VALUE) {
+                throw new IOException("Arquivo não é uma imagem de memória válida: " + bytes + " bytes.");
+            }
+            return new MappedMemoryStorage(channel, (int) (bytes / 4));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int get(int address) {
+        return chunks[address >>> CHUNK_BITS].get(address & CHUNK_MASK);
+    }
+
+    @Override
+    public void set(int address, int value) {
+        chunks[address >>> CHUNK_BITS].put(address & CHUNK_MASK, value);
+    }
+
+    @Override
+    public void copyIn(int address, int[] values, int offset, int length) {
+        while (length > 0) {
+            IntBuffer chunk = chunks[address >>> CHUNK_BITS].duplicate();
+            int start = address & CHUNK_MASK;
+            int count = Math.min(length, chunk.capacity() - start);
+            chunk.position(start);
+            chunk.put(values, offset, count);
+            address += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * O arquivo mapeado não é compartilhado: pai e filho escreveriam no mesmo arquivo.
+     * @throws UnsupportedOperationException Sempre.
+     */
+    @Override
+    public MemoryStorage fork() {
+        throw new UnsupportedOperationException("Memória mapeada em arquivo não suporta fork(); use PagedMemoryStorage.");
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] copy = new int[size];
+        for (int c = 0; c < chunks.length; c++) {
+            IntBuffer chunk = chunks[c].duplicate();
+            chunk.position(0);
+            chunk.get(copy, c << CHUNK_BITS, chunk.capacity());
+        }
+        return copy;
+    }
+
+    /**
+     * Grava no disco as páginas alteradas do arquivo.
+     */
+    public void force() {
+        for (MappedByteBuffer buffer : buffers) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Grava as alterações e fecha o arquivo. O mapeamento continua válido até ser coletado,
+     * mas a memória não deve mais ser usada.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,51 @@
+package components;
+
+/**
+ * Onde a Memory guarda suas palavras. A Memory faz as verificações de limite e os avisos aos
+ * observadores; o armazenamento só recebe endereços válidos (0 a size() - 1).
+ *
+ * Implementações: ArrayMemoryStorage (um int[], o padrão), PagedMemoryStorage (páginas alocadas
+ * na primeira escrita, para espaços de endereçamento grandes e esparsos) e MappedMemoryStorage
+ * (um arquivo mapeado em memória, fora do heap).
+ */
+public interface MemoryStorage {
+
+    /**
+     * @return Quantidade de palavras endereçáveis.
+     */
+    int size();
+
+    int get(int address);
+
+    void set(int address, int value);
+
+    /**
+     * Copia `length` palavras de `values` (a partir de `offset`) para a memória, a partir de `address`.
+     */
+    default void copyIn(int address, int[] values, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            set(address + i, values[offset + i]);
+        }
+    }
+
+    /**
+     * Cria um armazenamento filho com o mesmo conteúdo, que compartilha os dados com este em
+     * copy-on-write: quem escrever primeiro (pai ou filho) copia só o trecho escrito.
+     * @return O armazenamento filho.
+     * @throws UnsupportedOperationException Se o armazenamento não puder ser compartilhado.
+     */
+    MemoryStorage fork();
+
+    /**
+     * @return Uma cópia do conteúdo completo.
+     */
+    int[] toArray();
+
+    /**
+     * @return O próprio array de trabalho, se as palavras ficam em um int[] (ArrayMemoryStorage),
+     *         ou null (demais implementações).
+     */
+    default int[] array() {
+        return null;
+    }
+}
@@ -0,0 +1,17 @@
+package components;
+
+/**
+ * Observador das escritas feitas na memória.
+ * A Memory avisa seus observadores depois que uma ou mais palavras consecutivas foram alteradas
+ * (por `store()`, `setData()` ou `load()`), o que permite, por exemplo, invalidar instruções já decodificadas.
+ * Escritas feitas diretamente no array devolvido por `getDataList()` NÃO são notificadas.
+ */
+public interface MemoryWriteListener {
+
+    /**
+     * Chamado após a escrita.
+     * @param startAddress O primeiro endereço alterado.
+     * @param length A quantidade de palavras consecutivas alteradas (1 para `store()`/`setData()`).
+     */
+    void memoryWritten(int startAddress, int length);
+}
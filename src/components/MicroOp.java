@@ -0,0 +1,19 @@
+package components;
+
+/**
+ * As micro-operações dos componentes que contam como um passo do microprograma.
+ * Usadas pelo CycleCounter para cobrar um custo (em ciclos) por operação.
+ */
+public enum MicroOp {
+    BUS_PUT,            // Bus.put()
+    BUS_GET,            // Bus.get()
+    REG_READ,           // Register.read(): registrador -> extbus
+    REG_STORE,          // Register.store(): extbus -> registrador
+    REG_INTERNAL_READ,  // Register.internalRead(): registrador -> seu barramento interno
+    REG_INTERNAL_STORE, // Register.internalStore(): seu barramento interno -> registrador
+    ULA_STORE,          // ULA.store()/internalStore(): barramento -> registrador interno
+    ULA_READ,           // ULA.read()/internalRead(): registrador interno -> barramento
+    ULA_OPERATION,      // ULA.add()/sub()/inc()/dec()/compare()
+    MEM_READ,           // Memory.read()
+    MEM_STORE           // Memory.store() (cada fase), storeIn0()/storeIn1()
+}
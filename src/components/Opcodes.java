@@ -1,5 +1,6 @@
 package components;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -59,6 +60,8 @@ public final class Opcodes {
     public static final int IMUL = 16;
     public static final int HALT = 17; // HALT é uma instrução comum para parar a execução
 
+    public static final int OPCODE_COUNT = 18; // Quantidade de opcodes (tamanho de tabelas indexadas por opcode)
+
     // Nomes simbólicos para os registradores, se o Assembler precisar (ex: para %REG0)
     public static final String REG_PREFIX = "%reg"; // Para parsing no assembler
     public static final String REG0_NAME = "%reg0";
@@ -149,6 +152,14 @@ public final class Opcodes {
         return OPCODE_MAP.get(instructionName.toLowerCase());
     }
 
+    /**
+     * @return A tabela completa de mnemônicos (nome -> opcode), somente leitura.
+     *         Útil para quem precisa identificar a configuração do montador (ex: AssemblyCache).
+     */
+    public static Map<String, Integer> getOpcodeTable() {
+        return Collections.unmodifiableMap(OPCODE_MAP);
+    }
+
     /**
      * Retorna o nome da instrução assembly para um dado opcode numérico.
      * Útil para depuração.
@@ -159,6 +170,42 @@ public final class Opcodes {
         return INSTRUCTION_NAMES.getOrDefault(opcode, "UNKNOWN");
     }
 
+    /**
+     * Retorna o número de palavras de memória que uma instrução ocupa (opcode + parâmetros),
+     * exatamente como os microprogramas da Architecture.java consomem os parâmetros.
+     * Útil para quem precisa decodificar a memória sem executar (ex: cache de pré-decodificação).
+     * @param opcode O valor numérico do opcode.
+     * @return O tamanho da instrução em palavras, ou -1 se o opcode não for conhecido.
+     */
+    public static int getInstructionSize(int opcode) {
+        switch (opcode) {
+            case INC:
+            case RET:
+            case HALT:
+                return 1; // Apenas o opcode
+            case ADD:
+            case SUB:
+            case JMP:
+            case JZ:
+            case JN:
+            case READ:
+            case STORE:
+            case LDI:
+            case JNZ:
+            case CALL:
+                return 2; // Opcode + 1 parâmetro (endereço ou imediato)
+            case MOVE_REG_REG:
+            case IMUL:
+                return 3; // Opcode + 2 IDs de registradores
+            case JEQ:
+            case JGT:
+            case JLW:
+                return 4; // Opcode + 2 regs + 1 endereço
+            default:
+                return -1;
+        }
+    }
+
     /**
      * Retorna o ID numérico de um registrador a partir do seu nome (ex: "%reg0" -> 0).
      * Útil para o Assembler.
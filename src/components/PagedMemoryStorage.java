@@ -0,0 +1,154 @@
+package components;
+
+/**
+ * Armazenamento esparso: as palavras ficam em páginas de tamanho fixo, alocadas na primeira escrita
+ * de um valor diferente de zero. Páginas nunca escritas são lidas como zero, de modo que um espaço
+ * de endereçamento grande (ex: os 16M palavras dos campos de endereço de 24 bits) só ocupa memória
+ * nas regiões usadas.
+ *
+ * fork() copia apenas a tabela de páginas: pai e filho compartilham as páginas, e a primeira escrita
+ * de cada um em uma página compartilhada copia só aquela página (copy-on-write).
+ */
+public class PagedMemoryStorage implements MemoryStorage {
+
+    public static final int DEFAULT_PAGE_BITS = 12; // Páginas de 4096 palavras
+    public static final int ADDRESS_SPACE_24_BITS = 1 << 24;
+
+    private final int size;
+    private final int pageBits;
+    private final int offsetMask;
+    private final int[][] pages; // null = página nunca escrita (só zeros)
+    private final boolean[] shared; // Página também usada por outro armazenamento (copiar antes de escrever)
+    private int allocatedPages;
+
+    public PagedMemoryStorage(int size) {
+        this(size, DEFAULT_PAGE_BITS);
+    }
+
+    /**
+     * @param size Quantidade de palavras endereçáveis.
+     * @param pageBits log2 do tamanho da página em palavras (0 a 20).
+     */
+    public PagedMemoryStorage(int size, int pageBits) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Memory size must be positive.");
+        }
+        if (pageBits < 0 || pageBits > 20) {
+            throw new IllegalArgumentException("Tamanho de página inválido: 2^" + pageBits + " palavras");
+        }
+        this.size = size;
+        this.pageBits = pageBits;
+        this.offsetMask = (1 << pageBits) - 1;
+        this.pages = new int[(int) (((long) size + offsetMask) >>> pageBits)][];
+        this.shared = new boolean[pages.length];
+    }
+
+    private PagedMemoryStorage(PagedMemoryStorage parent) {
+        this.size = parent.size;
+        this.pageBits = parent.pageBits;
+        this.offsetMask = parent.offsetMask;
+        this.pages = parent.pages.clone();
+        this.shared = new boolean[pages.length];
+        this.allocatedPages = parent.allocatedPages;
+        for (int index = 0; index < pages.length; index++) {
+            if (pages[index] != null) {
+                shared[index] = true;
+                parent.shared[index] = true;
+            }
+        }
+    }
+
+    @Override
+    public PagedMemoryStorage fork() {
+        return new PagedMemoryStorage(this);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int get(int address) {
+        int[] page = pages[address >>> pageBits];
+        return page == null ? 0 : page[address & offsetMask];
+    }
+
+    @Override
+    public void set(int address, int value) {
+        int[] page = pages[address >>> pageBits];
+        if (page == null) {
+            if (value == 0) {
+                return; // A página continua lendo zero
+            }
+            page = allocate(address >>> pageBits);
+        } else if (shared[address >>> pageBits]) {
+            page = unshare(address >>> pageBits);
+        }
+        page[address & offsetMask] = value;
+    }
+
+    @Override
+    public void copyIn(int address, int[] values, int offset, int length) {
+        int pageSize = offsetMask + 1;
+        while (length > 0) {
+            int index = address >>> pageBits;
+            int start = address & offsetMask;
+            int chunk = Math.min(length, pageSize - start);
+            int[] page = pages[index];
+            if (page == null && !allZero(values, offset, chunk)) {
+                page = allocate(index);
+            } else if (page != null && shared[index]) {
+                page = unshare(index);
+            }
+            if (page != null) {
+                System.arraycopy(values, offset, page, start, chunk);
+            }
+            address += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private static boolean allZero(int[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (values[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] allocate(int index) {
+        int[] page = new int[offsetMask + 1];
+        pages[index] = page;
+        allocatedPages++;
+        return page;
+    }
+
+    private int[] unshare(int index) {
+        int[] page = pages[index].clone();
+        pages[index] = page;
+        shared[index] = false;
+        return page;
+    }
+
+    /**
+     * Aloca `size` palavras: evite em espaços grandes.
+     */
+    @Override
+    public int[] toArray() {
+        int[] copy = new int[size];
+        for (int index = 0; index < pages.length; index++) {
+            if (pages[index] != null) {
+                int start = index << pageBits;
+                System.arraycopy(pages[index], 0, copy, start, Math.min(offsetMask + 1, size - start));
+            }
+        }
+        return copy;
+    }
+
+    public int getPageSize() { return offsetMask + 1; }
+    public int getPageCount() { return pages.length; }
+    public int getAllocatedPages() { return allocatedPages; }
+}
@@ -6,6 +6,7 @@ public class Register {
     private Bus extbus; // Referência ao barramento externo
     private Bus intbus1; // Referência ao barramento interno 1 (se o registrador for conectado a ele)
     private Bus intbus2; // Referência ao barramento interno 2 (se o registrador for conectado a ele)
+    private CycleCounter cycles; // Modelo de ciclos (null = desligado)
 
     // Construtor para registradores de uso geral que se conectam a todos os barramentos
     public Register(String name, Bus extbus, Bus intbus1, Bus intbus2) {
@@ -53,8 +54,13 @@ public class Register {
      * Corresponde a `RPG.read();` ou `PC.read();` no seu `Architecture.java`.
      */
     public void read() {
+        if (cycles != null) {
+            cycles.charge(MicroOp.REG_READ);
+        }
         extbus.put(this.value);
-        // System.out.println(name + " leu " + this.value + " para extbus."); // Para depuração
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.registerRead(this, extbus, this.value);
+        }
     }
 
     /**
@@ -63,38 +69,67 @@ public class Register {
      * Corresponde a `RPG.store();` ou `PC.store();` no seu `Architecture.java`.
      */
     public void store() {
+        if (cycles != null) {
+            cycles.charge(MicroOp.REG_STORE);
+        }
         this.value = extbus.get();
-        // System.out.println(name + " armazenou " + this.value + " de extbus."); // Para depuração
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.registerStore(this, extbus, this.value);
+        }
     }
 
     /**
-     * Coloca o valor do registrador no barramento interno 1 (intbus1).
-     * Usado para enviar dados do registrador como primeiro operando para a ULA.
-     * Corresponde a `RPG.internalRead();` no seu `Architecture.java`.
+     * Coloca o valor do registrador no seu barramento interno: o intbus1 se estiver ligado a ele
+     * (ex: RPG, RPG1, que alimentam a ULA pelo intbus1), senão o intbus2 (ex: PC, IR, StkTOP).
+     * Corresponde a `RPG.internalRead();` ou `PC.internalRead();` no seu `Architecture.java`.
      */
     public void internalRead() {
-        if (intbus1 == null) {
-            System.err.println("Atenção: " + name + " tentou usar intbus1 mas não está conectado.");
+        if (cycles != null) {
+            cycles.charge(MicroOp.REG_INTERNAL_READ);
+        }
+        Bus bus = internalBus();
+        if (bus == null) {
+            System.err.println("Atenção: " + name + " tentou usar um barramento interno mas não está conectado.");
             return;
         }
-        intbus1.put(this.value);
-        // System.out.println(name + " leu " + this.value + " para intbus1."); // Para depuração
+        bus.put(this.value);
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.registerRead(this, bus, this.value);
+        }
     }
     
     /**
-     * Armazena o valor do barramento interno 2 (intbus2) no registrador.
-     * Usado para receber dados da ULA (resultado) ou de outros registradores via intbus2.
+     * Armazena no registrador o valor do seu barramento interno (o mesmo de internalRead()).
      * Corresponde a `PC.internalStore();` no seu `Architecture.java`.
      */
     public void internalStore() {
-        if (intbus2 == null) {
-            System.err.println("Atenção: " + name + " tentou usar intbus2 para store mas não está conectado.");
+        if (cycles != null) {
+            cycles.charge(MicroOp.REG_INTERNAL_STORE);
+        }
+        Bus bus = internalBus();
+        if (bus == null) {
+            System.err.println("Atenção: " + name + " tentou usar um barramento interno para store mas não está conectado.");
             return;
         }
-        this.value = intbus2.get();
-        // System.out.println(name + " armazenou " + this.value + " de intbus2."); // Para depuração
+        this.value = bus.get();
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.registerStore(this, bus, this.value);
+        }
     }
 
+    /**
+     * @return O barramento interno do registrador (intbus1 tem preferência), ou null.
+     */
+    private Bus internalBus() {
+        return intbus1 != null ? intbus1 : intbus2;
+    }
+
+    /**
+     * Liga (ou desliga, com null) a contagem de ciclos das micro-operações deste registrador.
+     */
+    public void setCycleCounter(CycleCounter cycles) {
+        this.cycles = cycles;
+    }
 
     // --- Métodos de Acesso e Modificação de Valor ---
 
@@ -2,6 +2,9 @@ package components;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
 public class TestBus {
@@ -16,4 +19,68 @@ public class TestBus {
 		assertEquals(2, bus.get());
 	}
 
+	@Test
+	public void testInstrumentation() {
+		Bus extbus = new Bus();
+		Bus intbus1 = new Bus();
+		Bus intbus2 = new Bus();
+		Register rpg = new Register("RPG", extbus, intbus1, intbus2);
+		Ula ula = new Ula(intbus1, intbus2);
+		Memory memory = new Memory(16, extbus);
+		List<String> events = new ArrayList<>();
+		ComponentEventListener listener = new ComponentEventListener() {
+			@Override
+			public void busPut(Bus bus, int value) {
+				if (bus == extbus) {
+					events.add("put " + value);
+				}
+			}
+			@Override
+			public void registerRead(Register register, Bus bus, int value) {
+				events.add(register.getRegisterName() + " -> " + value);
+			}
+			@Override
+			public void ulaOperation(Ula u, String operation, int operand0, int operand1, int result) {
+				events.add(operation + " " + operand0 + " " + operand1 + " = " + result);
+			}
+			@Override
+			public void memoryRead(Memory m, int address, int value) {
+				events.add("MEM[" + address + "] = " + value);
+			}
+			@Override
+			public void memoryWrite(Memory m, int address, int value) {
+				events.add("MEM[" + address + "] <- " + value);
+			}
+		};
+		assertFalse(Instrumentation.isEnabled());
+		Instrumentation.addListener(listener);
+		try {
+			assertTrue(Instrumentation.isEnabled());
+			memory.setData(3, 8); //loads are not instrumented
+			rpg.setData(3);
+			rpg.read();
+			memory.read();
+			intbus1.put(2);
+			ula.store(0);
+			intbus1.put(5);
+			ula.store(1);
+			ula.sub();
+			memory.writeData(4, 1);
+			assertEquals(6, events.size());
+			assertEquals("put 3", events.get(0));
+			assertEquals("RPG -> 3", events.get(1));
+			assertEquals("MEM[3] = 8", events.get(2));
+			assertEquals("put 8", events.get(3));
+			assertEquals("sub 2 5 = -3", events.get(4));
+			assertEquals("MEM[4] <- 1", events.get(5));
+		} finally {
+			Instrumentation.removeListener(listener);
+		}
+		//without listeners nothing is reported
+		assertFalse(Instrumentation.isEnabled());
+		events.clear();
+		rpg.read();
+		memory.read();
+		assertTrue(events.isEmpty());
+	}
 }
@@ -0,0 +1,126 @@
+package components;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestCache {
+
+	@Test
+	public void testReplacementPolicies() {
+		//LRU: a single set with 2 ways and one-word lines
+		Cache lru = new Cache("L1", 2, 2, 1, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK, 1);
+		assertFalse(lru.access(0, false));
+		assertFalse(lru.access(1, false));
+		assertTrue(lru.access(0, false));
+		assertFalse(lru.access(2, false)); //evicts 1, the least recently used
+		assertTrue(lru.access(0, false));
+		assertFalse(lru.access(1, false));
+		assertEquals(2, lru.getHits());
+		assertEquals(4, lru.getMisses());
+		assertEquals(2, lru.getEvictions());
+		
+		//tree PLRU only approximates LRU: after 0,1,2,3,0 the tree points at way 2, not at 1
+		Cache plru = new Cache("L1", 4, 4, 1, Cache.Replacement.PLRU, Cache.WritePolicy.WRITE_BACK, 1);
+		for (int address : new int[] {0, 1, 2, 3, 0}) {
+			plru.access(address, false);
+		}
+		assertFalse(plru.access(4, false));
+		assertTrue(plru.access(1, false));
+		assertFalse(plru.access(2, false));
+		
+		//random replacement is reproducible after a reset
+		Cache random = new Cache("L1", 4, 4, 1, Cache.Replacement.RANDOM, Cache.WritePolicy.WRITE_BACK, 1);
+		boolean[] first = new boolean[32];
+		for (int i=0;i<32;i++) {
+			first[i] = random.access(i % 7, false);
+		}
+		random.reset();
+		for (int i=0;i<32;i++) {
+			assertEquals(first[i], random.access(i % 7, false));
+		}
+		
+		//invalid geometries
+		try {
+			new Cache("L1", 10, 4, 1, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK, 1);
+			fail("capacity must be a multiple of ways x line size");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new Cache("L1", 12, 3, 1, Cache.Replacement.PLRU, Cache.WritePolicy.WRITE_BACK, 1);
+			fail("PLRU needs a power of 2 ways");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testWritePolicies() {
+		//write back: a dirty line is written back when evicted
+		Cache wb = new Cache("L1", 2, 1, 2, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK, 1);
+		assertFalse(wb.access(0, true)); //write allocate
+		assertTrue(wb.access(1, false));
+		assertFalse(wb.access(2, false)); //line 1 -> set 0, evicts the dirty line 0
+		assertEquals(0, wb.getEvictedDirtyLine());
+		assertEquals(1, wb.getWriteBacks());
+		assertFalse(wb.access(0, false)); //clean eviction
+		assertEquals(-1, wb.getEvictedDirtyLine());
+		
+		//write through: writes never allocate nor dirty lines
+		Cache wt = new Cache("L1", 2, 1, 2, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_THROUGH, 1);
+		assertFalse(wt.access(0, true));
+		assertFalse(wt.access(0, false));
+		assertTrue(wt.access(1, true));
+		assertFalse(wt.access(2, false));
+		assertEquals(0, wt.getWriteBacks());
+	}
+
+	@Test
+	public void testHierarchyInFrontOfMemory() {
+		Bus bus = new Bus();
+		Memory memory = new Memory(16, bus);
+		Cache l1 = new Cache("L1", 4, 1, 2, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK, 1);
+		Cache l2 = new Cache("L2", 8, 2, 2, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK, 5);
+		CacheHierarchy caches = new CacheHierarchy(50, l1, l2);
+		memory.setCacheHierarchy(caches);
+		
+		int[] addresses = {0, 1, 4, 0};
+		for (int address : addresses) {
+			bus.put(address);
+			memory.read();
+		}
+		//0: misses everywhere (56), 1: same L1 line (1), 4: evicts line 0 from L1 (56), 0: L2 hit (6)
+		assertEquals(4, caches.getAccesses());
+		assertEquals(119, caches.getTotalLatency());
+		assertEquals(29.75, caches.getAverageLatency(), 0.0001);
+		assertEquals(1, l1.getHits());
+		assertEquals(3, l1.getMisses());
+		assertEquals(2, l1.getEvictions());
+		assertEquals(1, l2.getHits());
+		assertEquals(2, l2.getMisses());
+		assertEquals(2, caches.getMemoryAccesses());
+		
+		//the data phase of store() is a write; the address phase is not an access
+		bus.put(0);
+		memory.store();
+		bus.put(7);
+		memory.store();
+		assertEquals(5, caches.getAccesses());
+		assertEquals(1, caches.getWrites());
+		//evicting the dirty line writes it back into L2, off the critical path
+		bus.put(4);
+		memory.read();
+		assertEquals(1, l1.getWriteBacks());
+		assertEquals(2, caches.getMemoryAccesses());
+		//the cache is a timing model only: the data is still in the memory
+		assertEquals(7, memory.getData(0));
+		
+		caches.reset();
+		assertEquals(0, caches.getAccesses());
+		assertEquals(0, l1.getHits());
+		memory.setCacheHierarchy(null);
+		bus.put(0);
+		memory.read();
+		assertEquals(0, caches.getAccesses());
+	}
+
+}
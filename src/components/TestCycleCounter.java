@@ -0,0 +1,69 @@
+package components;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestCycleCounter {
+
+	@Test
+	public void testChargeMicroOps() {
+		CycleCounter counter = new CycleCounter();
+		Bus extbus = new Bus();
+		Bus intbus1 = new Bus();
+		Bus intbus2 = new Bus();
+		Register reg = new Register("R", extbus, intbus1, intbus2);
+		extbus.setCycleCounter(counter);
+		reg.setCycleCounter(counter);
+		
+		extbus.put(5);      //1 bus put
+		reg.store();        //1 register store + 1 bus get
+		reg.read();         //1 register read + 1 bus put
+		assertEquals(5, counter.getTotalCycles());
+		assertEquals(2, counter.getMicroOpCount(MicroOp.BUS_PUT));
+		assertEquals(1, counter.getMicroOpCount(MicroOp.BUS_GET));
+		assertEquals(1, counter.getMicroOpCount(MicroOp.REG_STORE));
+		
+		//configurable costs: buses are free, registers cost 3
+		counter.reset();
+		counter.setCost(MicroOp.BUS_PUT, 0);
+		counter.setCost(MicroOp.BUS_GET, 0);
+		counter.setCost(MicroOp.REG_READ, 3);
+		reg.read();
+		assertEquals(3, counter.getTotalCycles());
+		assertEquals(1, counter.getMicroOpCount(MicroOp.BUS_PUT));
+		
+		//components without a counter are not charged
+		intbus1.put(1);
+		assertEquals(3, counter.getTotalCycles());
+	}
+
+	@Test
+	public void testPerOpcodeTotals() {
+		CycleCounter counter = new CycleCounter();
+		counter.beginInstruction();
+		counter.charge(MicroOp.MEM_READ);
+		counter.charge(MicroOp.MEM_READ);
+		counter.endInstruction(Opcodes.ADD);
+		counter.beginInstruction();
+		counter.charge(MicroOp.ULA_OPERATION);
+		counter.endInstruction(Opcodes.ADD);
+		counter.beginInstruction();
+		counter.charge(MicroOp.MEM_STORE);
+		counter.endInstruction(99); //invalid opcode
+		
+		assertEquals(2, counter.getInstructionsForOpcode(Opcodes.ADD));
+		assertEquals(3, counter.getCyclesForOpcode(Opcodes.ADD));
+		assertEquals(1, counter.getCyclesForOpcode(99));
+		assertEquals(0, counter.getInstructionsForOpcode(Opcodes.SUB));
+		assertEquals(3, counter.getInstructionCount());
+		assertEquals(4, counter.getTotalCycles());
+		assertEquals(4.0 / 3, counter.getCyclesPerInstruction(), 1e-9);
+		assertTrue(counter.report().contains(Opcodes.getInstructionName(Opcodes.ADD)));
+		
+		counter.reset();
+		assertEquals(0, counter.getTotalCycles());
+		assertEquals(0, counter.getCyclesForOpcode(Opcodes.ADD));
+	}
+
+}
@@ -2,6 +2,11 @@ package components;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
 public class TestMemory {
@@ -67,4 +72,229 @@ public class TestMemory {
 	}
 
 
+	@Test
+	public void testPagedStorage() {
+		Bus bus = new Bus();
+		PagedMemoryStorage storage = new PagedMemoryStorage(PagedMemoryStorage.ADDRESS_SPACE_24_BITS);
+		Memory memory = new Memory(storage, bus); //16M words, no page allocated yet
+		assertEquals(1 << 24, memory.getMemorySize());
+		assertEquals(0, storage.getAllocatedPages());
+		//untouched pages read zero and writing zero keeps them unallocated
+		bus.put((1 << 24) - 1);
+		memory.read();
+		assertEquals(0, bus.get());
+		memory.setData(5000000, 0);
+		assertEquals(0, storage.getAllocatedPages());
+		//the first non-zero write allocates a single page
+		bus.put((1 << 24) - 1);
+		memory.store();
+		bus.put(42);
+		memory.store();
+		assertEquals(42, memory.getData((1 << 24) - 1));
+		assertEquals(1, storage.getAllocatedPages());
+		//loading across a page boundary touches both pages only
+		int[] program = {1, 2, 3, 4};
+		memory.load(storage.getPageSize() - 2, program);
+		assertEquals(3, storage.getAllocatedPages());
+		assertEquals(3, memory.getData(storage.getPageSize()));
+		
+		//bounds checks are the same as the array memory
+		try {
+			memory.getData(1 << 24);
+			fail("address out of bounds");
+		} catch (IndexOutOfBoundsException e) {
+			assertEquals("Memory read error: Address 16777216 is out of bounds [0, 16777215]", e.getMessage());
+		}
+		try {
+			memory.load((1 << 24) - 2, program);
+			fail("program does not fit");
+		} catch (IllegalArgumentException e) {
+		}
+		
+		//a small paged memory behaves exactly as the array one
+		Memory paged = new Memory(new PagedMemoryStorage(100, 4), bus);
+		Memory array = new Memory(100, bus);
+		for (int i=0;i<100;i+=3) {
+			paged.setData(i, i*i);
+			array.setData(i, i*i);
+		}
+		assertArrayEquals(array.getDataList(), paged.copyDataList());
+		//there is no live array to hand out, and a copy would silently drop the writes
+		try {
+			paged.getDataList();
+			fail("paged storage has no working array");
+		} catch (UnsupportedOperationException e) {
+		}
+	}
+
+	@Test
+	public void testMappedStorage() throws IOException {
+		File file = File.createTempFile("memory", ".img");
+		file.deleteOnExit();
+		Bus bus = new Bus();
+		try (MappedMemoryStorage storage = MappedMemoryStorage.create(file.getPath(), 1000)) {
+			Memory memory = new Memory(storage, bus);
+			assertEquals(1000, memory.getMemorySize());
+			assertEquals(4000, file.length()); //32-bit words, no header
+			bus.put(999);
+			memory.store();
+			bus.put(-7);
+			memory.store();
+			memory.load(10, new int[] {1, 2, 3});
+			bus.put(11);
+			memory.read();
+			assertEquals(2, bus.get());
+		}
+		//the image persists and is mapped back without copying
+		try (MappedMemoryStorage storage = MappedMemoryStorage.open(file.getPath())) {
+			Memory memory = new Memory(storage, bus);
+			assertEquals(1000, memory.getMemorySize());
+			assertEquals(-7, memory.getData(999));
+			assertEquals(3, memory.getData(12));
+			assertEquals(0, memory.getData(500));
+			try {
+				memory.getDataList();
+				fail("the words live in the file");
+			} catch (UnsupportedOperationException e) {
+			}
+			int[] copy = memory.copyDataList();
+			copy[12] = 100;
+			assertEquals(3, memory.getData(12));
+			try {
+				memory.setData(1000, 1);
+				fail("address out of bounds");
+			} catch (IndexOutOfBoundsException e) {
+			}
+		}
+	}
+
+	@Test
+	public void testForkCopyOnWrite() {
+		PagedMemoryStorage parent = new PagedMemoryStorage(1 << 20, 10);
+		for (int i=0;i<8;i++) {
+			parent.set(i << 10, i + 1); //8 pages
+		}
+		PagedMemoryStorage child = parent.fork();
+		assertEquals(8, child.getAllocatedPages());
+		for (int i=0;i<8;i++) {
+			assertEquals(i + 1, child.get(i << 10));
+		}
+		//writes on either side stay on that side
+		child.set(0, 100);
+		parent.set(1 << 10, 200);
+		child.set(9 << 10, 300); //a new page exists only in the child
+		assertEquals(1, parent.get(0));
+		assertEquals(100, child.get(0));
+		assertEquals(200, parent.get(1 << 10));
+		assertEquals(2, child.get(1 << 10));
+		assertEquals(0, parent.get(9 << 10));
+		assertEquals(8, parent.getAllocatedPages());
+		assertEquals(9, child.getAllocatedPages());
+		//bulk loads also copy a shared page first
+		child.fork();
+		child.copyIn(2 << 10, new int[] {7, 7}, 0, 2);
+		assertEquals(3, parent.get(2 << 10));
+		
+		//the array storage shares the whole array until the first write
+		Bus bus = new Bus();
+		Memory memory = new Memory(16, bus);
+		memory.setData(3, 33);
+		Memory forked = new Memory(memory.getStorage().fork(), bus);
+		assertEquals(33, forked.getData(3));
+		forked.setData(3, 44);
+		memory.setData(4, 55);
+		assertEquals(33, memory.getData(3));
+		assertEquals(44, forked.getData(3));
+		assertEquals(0, forked.getData(4));
+		//the live array handed out by getDataList() is never shared
+		Memory other = new Memory(memory.getStorage().fork(), bus);
+		other.getDataList()[3] = 66;
+		assertEquals(33, memory.getData(3));
+	}
+
+	@Test
+	public void testWatchpoints() {
+		Bus bus = new Bus();
+		Memory memory = new Memory(256, bus);
+		List<int[]> hits = new ArrayList<>();
+		WatchpointListener listener = (watchpoint, pc, address, oldValue, newValue) -> hits.add(new int[] {address, oldValue, newValue});
+		memory.setProgramCounterSource(() -> 7);
+		assertFalse(memory.hasWatchpoints());
+		
+		Watchpoint writes = memory.addWatchpoint(100, 4, Watchpoint.Kind.WRITE, listener);
+		Watchpoint changes = memory.addWatchpoint(200, 1, Watchpoint.Kind.CHANGE, listener);
+		Watchpoint reads = memory.addWatchpoint(10, 1, Watchpoint.Kind.READ, listener);
+		assertTrue(memory.hasWatchpoints());
+		//store through the bus
+		bus.put(101);
+		memory.store();
+		bus.put(5);
+		memory.store();
+		assertEquals(1, hits.size());
+		assertArrayEquals(new int[] {101, 0, 5}, hits.get(0));
+		//outside the ranges, and loader/debug accesses, are not watched
+		memory.writeData(104, 1);
+		memory.setData(102, 1);
+		memory.getData(10);
+		assertEquals(1, hits.size());
+		//value-change watchpoints ignore writes of the same value
+		memory.writeData(200, 0);
+		memory.writeData(200, 9);
+		assertEquals(2, hits.size());
+		assertArrayEquals(new int[] {200, 0, 9}, hits.get(1));
+		//reads, through the bus and readData()
+		memory.setData(10, 3);
+		bus.put(10);
+		memory.read();
+		assertEquals(3, bus.get());
+		assertEquals(3, memory.readData(10));
+		assertEquals(4, hits.size());
+		assertArrayEquals(new int[] {10, 3, 3}, hits.get(3));
+		
+		memory.removeWatchpoint(writes);
+		memory.removeWatchpoint(changes);
+		memory.removeWatchpoint(reads);
+		assertFalse(memory.hasWatchpoints());
+		memory.writeData(101, 8);
+		assertEquals(4, hits.size());
+		
+		try {
+			memory.addWatchpoint(250, 10, Watchpoint.Kind.WRITE, listener);
+			fail("range out of bounds");
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+
+	@Test
+	public void testDirtyPageTracker() {
+		Bus bus = new Bus();
+		Memory memory = new Memory(300, bus); //5 pages of 64 words, the last one partial
+		DirtyPageTracker tracker = new DirtyPageTracker(memory.getMemorySize(), DirtyPageTracker.DEFAULT_PAGE_BITS);
+		memory.addWriteListener(tracker);
+		assertEquals(5, tracker.getPageCount());
+		assertEquals(64, tracker.getPageSize());
+		
+		memory.setData(299, 1);
+		bus.put(10); //store through the bus
+		memory.store();
+		bus.put(2);
+		memory.store();
+		memory.load(60, new int[] {1, 2, 3, 4, 5, 6}); //crosses from page 0 to page 1
+		memory.setData(11, 3);
+		assertEquals(3, tracker.getDirtyPageCount());
+		assertArrayEquals(new int[] {0, 1, 4}, tracker.getDirtyPages());
+		assertFalse(tracker.isDirty(2));
+		
+		//reads do not dirty pages
+		bus.put(200);
+		memory.read();
+		assertFalse(tracker.isDirty(3));
+		
+		tracker.clear();
+		assertEquals(0, tracker.getDirtyPageCount());
+		assertFalse(tracker.isDirty(0));
+		memory.writeData(130, 7);
+		assertArrayEquals(new int[] {2}, tracker.getDirtyPages());
+	}
 }
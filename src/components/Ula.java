@@ -1,13 +1,14 @@
 package components;
 
-public class ULA {
-    private int internalReg0; // Equivalente ao operando que vem de intbus1 (primeiro parâmetro da ULA)
-    private int internalReg1; // Equivalente ao operando/resultado que vem de intbus2 (segundo parâmetro/resultado da ULA)
+public class Ula {
+    private int internalReg0; // Primeiro operando
+    private int internalReg1; // Segundo operando e resultado
 
-    private Bus intbus1; // Barramento interno 1 (entrada para ULA)
-    private Bus intbus2; // Barramento interno 2 (entrada/saída da ULA)
+    private Bus intbus1; // Barramento interno 1: store()/read() (RPG, RPG1)
+    private Bus intbus2; // Barramento interno 2: internalStore()/internalRead() (PC, IR, Flags, pilha)
+    private CycleCounter cycles; // Modelo de ciclos (null = desligado)
 
-    public ULA(Bus intbus1, Bus intbus2) {
+    public Ula(Bus intbus1, Bus intbus2) {
         this.intbus1 = intbus1;
         this.intbus2 = intbus2;
         this.internalReg0 = 0; // Inicializa registradores internos
@@ -15,60 +16,95 @@ public class ULA {
     }
 
     /**
-     * Armazena um valor de um barramento interno em um registrador interno da ULA.
+     * Armazena o valor do intbus1 em um registrador interno da ULA.
      * @param internalRegIndex O índice do registrador interno da ULA (0 ou 1).
-     * 0: Armazena o valor de intbus1 em internalReg0.
-     * 1: Armazena o valor de intbus2 em internalReg1.
      */
     public void store(int internalRegIndex) {
-        if (internalRegIndex == 0) {
-            this.internalReg0 = intbus1.get();
-        } else if (internalRegIndex == 1) {
-            this.internalReg1 = intbus2.get(); // Note: This internalReg1 is sourced from intbus2 for regular store
-        } else {
-            throw new IllegalArgumentException("ULA: Índice de registrador interno inválido: " + internalRegIndex);
-        }
+        charge(MicroOp.ULA_STORE);
+        setInternalRegister(internalRegIndex, intbus1.get());
+    }
+
+    /**
+     * Coloca o valor de um registrador interno da ULA no intbus1.
+     * @param internalRegIndex O índice do registrador interno da ULA (0 ou 1).
+     */
+    public void read(int internalRegIndex) {
+        charge(MicroOp.ULA_READ);
+        intbus1.put(getInternalRegister(internalRegIndex));
     }
     
     /**
-     * Armazena um valor de um barramento interno em um registrador interno da ULA.
-     * Usado para casos onde a entrada é do intbus2 (como no seu microcódigo `ula.internalStore(1);`).
-     * Note: A sua API original tem `store(0)` e `internalStore(1)`. Estou mantendo a distinção.
-     * @param internalRegIndex O índice do registrador interno da ULA (apenas 1 é esperado aqui, pelo seu uso).
+     * Armazena o valor do intbus2 em um registrador interno da ULA.
+     * @param internalRegIndex O índice do registrador interno da ULA (0 ou 1).
      */
     public void internalStore(int internalRegIndex) {
-        if (internalRegIndex == 0) { // Pode ser usado se houver um caminho intbus1 -> internalReg0 via internalStore.
-            this.internalReg0 = intbus1.get();
-        } else if (internalRegIndex == 1) {
-            this.internalReg1 = intbus2.get(); // This internalReg1 is sourced from intbus2 for internalStore
-        } else {
-            throw new IllegalArgumentException("ULA: Índice de registrador interno inválido para internalStore: " + internalRegIndex);
+        charge(MicroOp.ULA_STORE);
+        setInternalRegister(internalRegIndex, intbus2.get());
+    }
+
+    /**
+     * Coloca o valor de um registrador interno da ULA no intbus2.
+     * @param internalRegIndex O índice do registrador interno da ULA (0 ou 1).
+     */
+    public void internalRead(int internalRegIndex) {
+        charge(MicroOp.ULA_READ);
+        intbus2.put(getInternalRegister(internalRegIndex));
+    }
+
+    /**
+     * Liga (ou desliga, com null) a contagem de ciclos das operações da ULA.
+     */
+    public void setCycleCounter(CycleCounter cycles) {
+        this.cycles = cycles;
+    }
+
+    private void charge(MicroOp op) {
+        if (cycles != null) {
+            cycles.charge(op);
         }
     }
 
+    /**
+     * Retorna o valor de um registrador interno da ULA sem passar pelos barramentos
+     * (usado por checkpoint/restore e depuração).
+     * @param internalRegIndex O índice do registrador interno da ULA (0 ou 1).
+     */
+    public int getInternalRegister(int internalRegIndex) {
+        if (internalRegIndex == 0) {
+            return internalReg0;
+        } else if (internalRegIndex == 1) {
+            return internalReg1;
+        }
+        throw new IllegalArgumentException("ULA: Índice de registrador interno inválido: " + internalRegIndex);
+    }
 
     /**
-     * Coloca o valor de um registrador interno da ULA em um barramento interno.
+     * Altera o valor de um registrador interno da ULA sem passar pelos barramentos
+     * (usado por checkpoint/restore).
      * @param internalRegIndex O índice do registrador interno da ULA (0 ou 1).
-     * 0: Coloca o valor de internalReg0 em intbus1.
-     * 1: Coloca o valor de internalReg1 em intbus2.
+     * @param value O novo valor.
      */
-    public void internalRead(int internalRegIndex) {
+    public void setInternalRegister(int internalRegIndex, int value) {
         if (internalRegIndex == 0) {
-            intbus1.put(this.internalReg0);
+            internalReg0 = value;
         } else if (internalRegIndex == 1) {
-            intbus2.put(this.internalReg1);
+            internalReg1 = value;
         } else {
             throw new IllegalArgumentException("ULA: Índice de registrador interno inválido: " + internalRegIndex);
         }
     }
-    
+
     /**
      * Realiza uma operação de adição: internalReg1 <- internalReg0 + internalReg1.
      * O resultado é armazenado em internalReg1.
      */
     public void add() {
-        this.internalReg1 = this.internalReg0 + this.internalReg1;
+        charge(MicroOp.ULA_OPERATION);
+        int operand1 = this.internalReg1;
+        this.internalReg1 = this.internalReg0 + operand1;
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.ulaOperation(this, "add", internalReg0, operand1, internalReg1);
+        }
     }
 
     /**
@@ -76,7 +112,12 @@ public class ULA {
      * O resultado é armazenado em internalReg1.
      */
     public void sub() {
-        this.internalReg1 = this.internalReg0 - this.internalReg1;
+        charge(MicroOp.ULA_OPERATION);
+        int operand1 = this.internalReg1;
+        this.internalReg1 = this.internalReg0 - operand1;
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.ulaOperation(this, "sub", internalReg0, operand1, internalReg1);
+        }
     }
 
     /**
@@ -84,7 +125,23 @@ public class ULA {
      * O resultado é armazenado em internalReg1.
      */
     public void inc() {
+        charge(MicroOp.ULA_OPERATION);
         this.internalReg1++;
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.ulaOperation(this, "inc", internalReg0, internalReg1 - 1, internalReg1);
+        }
+    }
+
+    /**
+     * Realiza uma operação de decremento: internalReg1 <- internalReg1 - 1.
+     * O resultado é armazenado em internalReg1.
+     */
+    public void dec() {
+        charge(MicroOp.ULA_OPERATION);
+        this.internalReg1--;
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.ulaOperation(this, "dec", internalReg0, internalReg1 + 1, internalReg1);
+        }
     }
 
     /**
@@ -95,9 +152,13 @@ public class ULA {
      * @param operand2 O segundo operando (subtraendo).
      */
     public void compare(int operand1, int operand2) {
+        charge(MicroOp.ULA_OPERATION);
         this.internalReg0 = operand1; // Coloca o primeiro operando em internalReg0
         this.internalReg1 = operand2; // Coloca o segundo operando em internalReg1 (pois ULA.sub() usa ambos)
         // Agora, podemos chamar sub() para realizar a operação
         this.internalReg1 = this.internalReg0 - this.internalReg1; // Resultado em internalReg1
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.ulaOperation(this, "compare", operand1, operand2, internalReg1);
+        }
     }
 }
\ No newline at end of file
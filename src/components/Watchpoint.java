@@ -0,0 +1,34 @@
+package components;
+
+/**
+ * Um watchpoint em um intervalo de endereços da Memory (ver Memory.addWatchpoint()).
+ */
+public final class Watchpoint {
+
+    public enum Kind {
+        READ,   // Toda leitura do intervalo
+        WRITE,  // Toda escrita, mesmo que repita o valor
+        CHANGE  // Escritas que mudam o valor
+    }
+
+    private final int start;
+    private final int length;
+    private final Kind kind;
+    private final WatchpointListener listener;
+
+    Watchpoint(int start, int length, Kind kind, WatchpointListener listener) {
+        this.start = start;
+        this.length = length;
+        this.kind = kind;
+        this.listener = listener;
+    }
+
+    public int getStart() { return start; }
+    public int getLength() { return length; }
+    public Kind getKind() { return kind; }
+    public WatchpointListener getListener() { return listener; }
+
+    boolean contains(int address) {
+        return address >= start && address - start < length;
+    }
+}
@@ -0,0 +1,16 @@
+package components;
+
+/**
+ * Avisado quando um acesso da execução atinge um Watchpoint.
+ */
+public interface WatchpointListener {
+
+    /**
+     * @param watchpoint O watchpoint atingido.
+     * @param pc O endereço da instrução que fez o acesso.
+     * @param address O endereço acessado.
+     * @param oldValue O valor antes do acesso.
+     * @param newValue O valor depois do acesso (igual a oldValue nas leituras).
+     */
+    void watchpointHit(Watchpoint watchpoint, int pc, int address, int oldValue, int newValue);
+}